@@ -0,0 +1,6 @@
+// the Vector API jump kernel, built apart from BFSPuzzleSolver since the module it needs is incubating
+module BFSPuzzleSolver.vector {
+    requires BFSPuzzleSolver;
+    requires jdk.incubator.vector;
+    exports puzzles.hoppers.vector to BFSPuzzleSolver;
+}
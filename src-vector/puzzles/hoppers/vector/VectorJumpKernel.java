@@ -0,0 +1,74 @@
+package puzzles.hoppers.vector;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import puzzles.hoppers.model.FrontierBatch;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.model.JumpKernel;
+
+/**
+ * A {@link JumpKernel} that tests a jump on as many states as the CPU's
+ * vectors hold at once, with the incubating Vector API. Only the tests run
+ * in vectors; the children of the lanes that pass are written one at a time
+ * as in the plain kernel, since this JDK's vectors can't pack the passing
+ * lanes together. The states left over after the last full vector take the
+ * plain path.
+ *
+ * It is only made by {@link JumpKernel#of(HoppersConfig, boolean)}, by name,
+ * so nothing else links against the vector module. It is kept out of the
+ * main source root so the default build never sees the incubating module;
+ * build and run it with
+ *
+ *   javac -p out:javafx -d out-vector $(find src-vector -name "*.java")
+ *   java -p out:out-vector:javafx --add-modules BFSPuzzleSolver.vector
+ *       -m BFSPuzzleSolver/puzzles.hoppers.solver.BatchBenchmark
+ */
+public class VectorJumpKernel extends JumpKernel {
+    private final static VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Turn the jumps of a board into masks
+     * @param config any config of the board
+     */
+    public VectorJumpKernel(HoppersConfig config) {
+        super(config);
+    }
+
+    @Override
+    public String getName() {
+        return "vector x" + SPECIES.length();
+    }
+
+    @Override
+    protected void expand(int j, FrontierBatch in, int start, int end, FrontierBatch out) {
+        long[] fromColumn = greenColumn(in, fromWord[j]);
+        long[] overColumn = greenColumn(in, overWord[j]);
+        long[] toColumn = greenColumn(in, toWord[j]);
+        long[] redColumn = redColumn(in);
+        int bound = start + SPECIES.loopBound(end - start);
+        int i = start;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Long> overGreen = LongVector.fromArray(SPECIES, overColumn, i)
+                    .and(overBit[j]).compare(VectorOperators.NE, 0);
+            if (!overGreen.anyTrue()) {
+                continue;
+            }
+            LongVector redCell = LongVector.fromArray(SPECIES, redColumn, i);
+            VectorMask<Long> greenFrom = LongVector.fromArray(SPECIES, fromColumn, i)
+                    .and(fromBit[j]).compare(VectorOperators.NE, 0);
+            VectorMask<Long> legal = overGreen
+                    .and(LongVector.fromArray(SPECIES, toColumn, i).and(toBit[j]).compare(VectorOperators.EQ, 0))
+                    .and(redCell.compare(VectorOperators.NE, to[j]))
+                    .and(greenFrom.or(redCell.compare(VectorOperators.EQ, from[j])));
+            long lanes = legal.toLong();
+            while (lanes != 0) {
+                int lane = Long.numberOfTrailingZeros(lanes);
+                emit(j, in, i + lane, greenFrom.laneIsSet(lane), out);
+                lanes &= lanes - 1;
+            }
+        }
+        super.expand(j, in, i, end, out);
+    }
+}
@@ -1,35 +1,39 @@
 package puzzles.chess.gui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.Background;
-import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import puzzles.chess.model.ChessConfig;
-import puzzles.chess.model.Position;
+import puzzles.common.ModelEvent;
 import puzzles.common.Observer;
 import puzzles.chess.model.ChessModel;
-import puzzles.hoppers.model.HoppersModel;
+import puzzles.common.gui.BoardCanvas;
+import puzzles.common.solver.Configuration;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
-public class ChessGUI extends Application implements Observer<ChessModel, String> {
+public class ChessGUI extends Application implements Observer<ChessModel, ModelEvent> {
     private ChessModel model;
 
     /** The size of all icons, in square dimension */
     private final static int ICON_SIZE = 75;
     /** the font size for labels and buttons */
     private final static int FONT_SIZE = 12;
+    /** the number of solution steps shown each second when playing */
+    private final static double PLAY_RATE = 4;
+    /** added to the message of a move after which the puzzle can no longer be solved */
+    private final static String LOSING_MOVE = "(no solution from here)";
 
     private Stage stage;
     private BorderPane gameLayout;
@@ -37,23 +41,20 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
     /** The resources directory is located directly underneath the gui package */
     private final static String RESOURCES_DIR = "resources/";
 
-    // for demonstration purposes
-    private Image bishop = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"bishop.png"));
-    private Image blue = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"blue.png"));
-    private Image king = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"king.png"));
-    private Image knight = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"knight.png"));
-    private Image pawn = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"pawn.png"));
-    private Image queen = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"queen.png"));
-    private Image rook = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"rook.png"));
-
-    /** a definition of light and dark and for the button backgrounds */
-    private static final Background LIGHT =
-            new Background( new BackgroundFill(Color.WHITE, null, null));
-    private static final Background DARK =
-            new Background( new BackgroundFill(Color.MIDNIGHTBLUE, null, null));
+    /** a definition of light and dark for the cell backgrounds */
+    private static final Color LIGHT = Color.WHITE;
+    private static final Color DARK = Color.MIDNIGHTBLUE;
+    /** the board, which only repaints the cells that change */
+    private BoardCanvas board;
     private Label gameMessage;
     private String filename;
 
+    /**
+     * Create the gui, which JavaFX does before calling init
+     */
+    public ChessGUI() {
+    }
+
     /**
      *
      * @throws IOException
@@ -63,7 +64,8 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
         // get the file name from the command line
         String filename = getParameters().getRaw().get(0);
         this.model = new ChessModel(filename);
-        model.addObserver(this);
+        // drawn on the JavaFX thread, once for each burst of events
+        model.addObserver(this, Platform::runLater);
     }
 
     /**
@@ -79,6 +81,7 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
         this.stage = stage;
         this.filename = model.getFilename();
         this.gameMessage = new Label("Loaded: " + filename);
+        this.board = chessBoard();
         this.gameLayout = makeGameLayout();
         gameMessage.setAlignment(Pos.TOP_CENTER);
         Scene scene = new Scene(gameLayout);
@@ -100,7 +103,7 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
         topPane.setCenter(gameMessage);
         borderPane.setTop(topPane);
 
-        borderPane.setCenter(chessBoard());
+        borderPane.setCenter(board);
 
         // Bottom
         BorderPane bottomPane = new BorderPane();
@@ -112,17 +115,21 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
     }
 
     /**
-     * Make the load, reset, and hint buttons
+     * Make the load, reset, undo, redo, hint, and play buttons
      *
-     * @return an hbox containing the load, reset, and hint buttons
+     * @return an hbox containing the load, reset, undo, redo, hint, and
+     * play buttons
      */
     private HBox makeButtons() {
         HBox buttonBox = new HBox();
         buttonBox.setAlignment(Pos.CENTER);
         Button load = new Button("Load");
         Button reset = new Button("Reset");
+        Button undo = new Button("Undo");
+        Button redo = new Button("Redo");
         Button hint = new Button("Hint");
-        buttonBox.getChildren().addAll(load, reset, hint);
+        Button play = new Button("Play");
+        buttonBox.getChildren().addAll(load, reset, undo, redo, hint, play);
 
 
         FileChooser chooser = new FileChooser();
@@ -134,6 +141,8 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
                         currentPath + File.separator, "")));
 
         reset.setOnAction(event -> model.reset());
+        undo.setOnAction(event -> model.undo());
+        redo.setOnAction(event -> model.redo());
         hint.setOnAction(event -> {
             if (model.getPieces().size() == 1) {
                 gameMessage.setText("Already solved!");
@@ -142,69 +151,93 @@ public class ChessGUI extends Application implements Observer<ChessModel, String
                 model.hint();
             }
         });
+        play.setOnAction(event -> playSolution());
         return buttonBox;
     }
 
     /**
-     * Make the chessboard of the GUI made up of buttons
+     * Animate the solution from the current board without changing the
+     * model, then show the model's board again
+     */
+    private void playSolution() {
+        List<Configuration> path = model.getSolution();
+        if (path.isEmpty()) {
+            gameMessage.setText("No solution.");
+            return;
+        }
+        List<char[][]> frames = new ArrayList<>();
+        for (Configuration config : path) {
+            frames.add(toGrid((ChessConfig) config));
+        }
+        gameMessage.setText("Playing solution...");
+        board.play(frames, PLAY_RATE, () -> {
+            gameMessage.setText("Solution played in " + (path.size() - 1) + " captures");
+            board.draw(currentGrid());
+        });
+    }
+
+    /**
+     * Make the chessboard of the GUI drawn on a canvas
      *
-     * @return a gridpane of the chess buttons
+     * @return the canvas showing the current board
      */
-    private GridPane chessBoard() {
-        GridPane board = new GridPane();
-        for (int r = 0; r < model.getRows(); r++) {
-            for (int c = 0; c < model.getCols(); c++) {
-                Button button = new Button();
-                setPieceGraphic(button, r, c);
-
-                if ((r + c) % 2 == 0) {
-                    button.setBackground(LIGHT);
-                } else {
-                    button.setBackground(DARK);
-                }
-                int finalR = r;
-                int finalC = c;
-                button.setOnAction(e -> model.select(finalR, finalC));
-                button.setMinSize(ICON_SIZE, ICON_SIZE);
-                button.setMaxSize(ICON_SIZE, ICON_SIZE);
-                button.setAlignment(Pos.CENTER);
-                board.add(button, c, r);
+    private BoardCanvas chessBoard() {
+        BoardCanvas canvas = new BoardCanvas(ICON_SIZE, (r, c) -> (r + c) % 2 == 0 ? LIGHT : DARK);
+        canvas.setImage(ChessConfig.BISHOP, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "bishop.png"));
+        canvas.setImage(ChessConfig.KING, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "king.png"));
+        canvas.setImage(ChessConfig.KNIGHT, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "knight.png"));
+        canvas.setImage(ChessConfig.PAWN, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "pawn.png"));
+        canvas.setImage(ChessConfig.QUEEN, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "queen.png"));
+        canvas.setImage(ChessConfig.ROOK, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "rook.png"));
+        canvas.setOnCellClicked(model::select);
+        canvas.draw(currentGrid());
+        return canvas;
+    }
+
+    /**
+     * Get the cells of the model's current board
+     *
+     * @return a grid of piece characters
+     */
+    private char[][] currentGrid() {
+        char[][] grid = new char[model.getRows()][model.getCols()];
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                grid[r][c] = model.getCellPiece(r, c);
             }
         }
-        return board;
+        return grid;
     }
 
     /**
-     * Set the image for the piece
+     * Get the cells of a board
      *
-     * @param button the button to change the graphic of
-     * @param row the row of the button
-     * @param col the column of the button
+     * @param config the board
+     * @return a grid of piece characters
      */
-    private void setPieceGraphic(Button button, int row, int col) {
-        if (model.getCellPiece(row, col) == ChessConfig.BISHOP) {
-            button.setGraphic(new ImageView(bishop));
-        } else if (model.getCellPiece(row, col) == ChessConfig.KING) {
-            button.setGraphic(new ImageView(king));
-        } else if (model.getCellPiece(row, col) == ChessConfig.KNIGHT) {
-            button.setGraphic(new ImageView(knight));
-        } else if (model.getCellPiece(row, col) == ChessConfig.PAWN) {
-            button.setGraphic(new ImageView(pawn));
-        } else if (model.getCellPiece(row, col) == ChessConfig.QUEEN) {
-            button.setGraphic(new ImageView(queen));
-        } else if (model.getCellPiece(row, col) == ChessConfig.ROOK) {
-            button.setGraphic(new ImageView(rook));
+    private static char[][] toGrid(ChessConfig config) {
+        char[][] grid = new char[config.getRows()][config.getCols()];
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                grid[r][c] = config.getCellPiece(r, c);
+            }
         }
+        return grid;
     }
 
     @Override
-    public void update(ChessModel chessModel, String msg) {
-        gameMessage.setText(msg);
-        gameLayout.setCenter(chessBoard());
-        this.stage.sizeToScene();  // when a different sized puzzle is loaded
-        if (model.getPieces().size() == 1) {
-            gameMessage.setText(msg);
+    public void update(ChessModel chessModel, ModelEvent event) {
+        board.stop();
+        board.draw(event.getBoard());
+        // the labels come with a later copy of the event, worked out off this thread
+        if (event.getKind() == ModelEvent.Kind.MOVED && event.isLabelled() && !event.isSolvable()) {
+            gameMessage.setText(event.getMessage() + " " + LOSING_MOVE);
+        } else {
+            gameMessage.setText(event.getMessage());
         }
+        // outline the moves of the selected piece that can still win
+        board.highlight(event.getWinningTargets());
+        this.stage.sizeToScene();  // when a different sized puzzle is loaded
     }
 
     public static void main(String[] args) {
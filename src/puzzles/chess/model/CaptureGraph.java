@@ -0,0 +1,229 @@
+package puzzles.chess.model;
+
+import java.util.ArrayList;
+
+/**
+ * The graph of captures that could ever happen between the occupied cells
+ * of a chess config.
+ *
+ * Pieces only move by capturing, so every cell a piece can ever stand on is
+ * one of the cells occupied right now. The graph has one node per occupied
+ * cell and an edge from a to b when some piece that could ever stand on a
+ * attacks b. Blocking pieces are ignored, since they can only disappear, so
+ * every capture that can happen later is an edge of this graph.
+ */
+public class CaptureGraph {
+    /** piece types in bit order for the type masks */
+    private final static String TYPES = "BKNPQR";
+
+    private final int size;
+    private final int[] rows;
+    private final int[] cols;
+    /** bit mask of the piece types that could ever stand on each node */
+    private final int[] types;
+    /** adjacency matrix, edges[a][b] is true if a can capture b */
+    private final boolean[][] edges;
+
+    /**
+     * Build the capture graph of a config
+     *
+     * @param config the config to build the graph of
+     */
+    public CaptureGraph(ChessConfig config) {
+        ArrayList<Position> pieces = config.getPieces();
+        this.size = pieces.size();
+        this.rows = new int[size];
+        this.cols = new int[size];
+        this.types = new int[size];
+        this.edges = new boolean[size][size];
+        for (int i = 0; i < size; i++) {
+            Position p = pieces.get(i);
+            rows[i] = p.getRow();
+            cols[i] = p.getCol();
+            types[i] = 1 << TYPES.indexOf(p.getPiece());
+        }
+
+        // spread piece types along possible captures until nothing changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int a = 0; a < size; a++) {
+                for (int b = 0; b < size; b++) {
+                    if (a != b) {
+                        int moving = attackingTypes(types[a], a, b) & ~types[b];
+                        if (moving != 0) {
+                            types[b] |= moving;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                edges[a][b] = a != b && attackingTypes(types[a], a, b) != 0;
+            }
+        }
+    }
+
+    /**
+     * Find which of some piece types attack one node from another,
+     * ignoring any pieces in between
+     *
+     * @param mask bit mask of the piece types on the attacking node
+     * @param a the attacking node
+     * @param b the attacked node
+     * @return bit mask of the types in the mask that attack b from a
+     */
+    private int attackingTypes(int mask, int a, int b) {
+        int result = 0;
+        for (int t = 0; t < TYPES.length(); t++) {
+            if ((mask & (1 << t)) != 0
+                    && attacks(TYPES.charAt(t), rows[b] - rows[a], cols[b] - cols[a])) {
+                result |= 1 << t;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Does a piece attack a cell at an offset from it on an empty board?
+     *
+     * @param piece the attacking piece
+     * @param dr row offset of the attacked cell
+     * @param dc column offset of the attacked cell
+     * @return whether the piece attacks the cell
+     */
+    public static boolean attacks(char piece, int dr, int dc) {
+        int ar = Math.abs(dr);
+        int ac = Math.abs(dc);
+        if (ar == 0 && ac == 0) {
+            return false;
+        }
+        if (piece == ChessConfig.PAWN) {
+            return dr == -1 && ac == 1;
+        } else if (piece == ChessConfig.KING) {
+            return ar <= 1 && ac <= 1;
+        } else if (piece == ChessConfig.KNIGHT) {
+            return (ar == 1 && ac == 2) || (ar == 2 && ac == 1);
+        } else if (piece == ChessConfig.ROOK) {
+            return ar == 0 || ac == 0;
+        } else if (piece == ChessConfig.BISHOP) {
+            return ar == ac;
+        } else if (piece == ChessConfig.QUEEN) {
+            return ar == 0 || ac == 0 || ar == ac;
+        }
+        return false;
+    }
+
+    /**
+     * Getter for the number of nodes, one per piece
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is there an edge from one node to another?
+     *
+     * @param a the capturing node
+     * @param b the captured node
+     * @return whether a piece on a could ever capture the piece on b
+     */
+    public boolean hasEdge(int a, int b) {
+        return edges[a][b];
+    }
+
+    /**
+     * Does a node have no edges at all?
+     *
+     * @param node the node
+     * @return true if the piece on the node can never capture or be captured
+     */
+    public boolean isIsolated(int node) {
+        for (int other = 0; other < size; other++) {
+            if (edges[node][other] || edges[other][node]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count the groups of nodes joined by edges in either direction.
+     * Pieces in different groups can never meet.
+     *
+     * @return the number of groups
+     */
+    public int countGroups() {
+        int[] group = new int[size];
+        int[] stack = new int[size];
+        int groups = 0;
+        for (int start = 0; start < size; start++) {
+            if (group[start] == 0) {
+                groups++;
+                group[start] = groups;
+                int top = 0;
+                stack[top++] = start;
+                while (top > 0) {
+                    int a = stack[--top];
+                    for (int b = 0; b < size; b++) {
+                        if (group[b] == 0 && (edges[a][b] || edges[b][a])) {
+                            group[b] = groups;
+                            stack[top++] = b;
+                        }
+                    }
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Count the sink groups: sets of nodes that can all reach each other by
+     * captures and have no capture leading out of the set. A piece in a
+     * sink group can never leave it, and a piece captured there is replaced
+     * by its capturer, so every sink group keeps a piece to the end.
+     *
+     * @return the number of sink groups
+     */
+    public int countSinkGroups() {
+        boolean[][] reach = new boolean[size][size];
+        int[] stack = new int[size];
+        for (int start = 0; start < size; start++) {
+            reach[start][start] = true;
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0) {
+                int a = stack[--top];
+                for (int b = 0; b < size; b++) {
+                    if (edges[a][b] && !reach[start][b]) {
+                        reach[start][b] = true;
+                        stack[top++] = b;
+                    }
+                }
+            }
+        }
+        int sinks = 0;
+        for (int node = 0; node < size; node++) {
+            // count each group once, at its first node, if everything it reaches reaches back
+            boolean first = true;
+            boolean sink = true;
+            for (int other = 0; other < size; other++) {
+                if (reach[node][other] && reach[other][node] && other < node) {
+                    first = false;
+                }
+                if (reach[node][other] && !reach[other][node]) {
+                    sink = false;
+                }
+            }
+            if (first && sink) {
+                sinks++;
+            }
+        }
+        return sinks;
+    }
+}
@@ -2,7 +2,11 @@ package puzzles.chess.model;
 
 import javafx.geometry.Pos;
 import puzzles.chess.solver.Chess;
+import puzzles.common.MoveHistory;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.MoveConfiguration;
+import puzzles.common.solver.MutableConfiguration;
+import puzzles.common.solver.PackedKey;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -15,7 +19,7 @@ import java.util.Objects;
 /**
  * The configuration class of the Chess puzzle
  */
-public class ChessConfig implements Configuration {
+public class ChessConfig implements MutableConfiguration, MoveConfiguration {
     public static char BISHOP = 'B';
     public static char KING = 'K';
     public static char KNIGHT = 'N';
@@ -23,8 +27,29 @@ public class ChessConfig implements Configuration {
     public static char QUEEN = 'Q';
     public static char ROOK = 'R';
     public static char EMPTY = '.';
-    private static int ROWS;
-    private static int COLS;
+    /** cell codes used when packing a board, in code order */
+    private final static String CELL_CODES = ".BKNPQR";
+    /** bits used for each cell of a packed board */
+    private final static int CELL_BITS = 3;
+    /** bits used for a cell index in a move */
+    private final static int MOVE_CELL_BITS = 12;
+    private final static int MOVE_CELL_MASK = (1 << MOVE_CELL_BITS) - 1;
+    /**
+     * The capture directions of each piece, in the order the moves methods
+     * try them. The directions of a group are tried one step further at a
+     * time, all of them at each distance.
+     */
+    private final static int[][][] PAWN_DIRECTIONS = {{{-1, -1}, {-1, 1}}};
+    private final static int[][][] KING_DIRECTIONS =
+            {{{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}}};
+    private final static int[][][] KNIGHT_DIRECTIONS =
+            {{{2, 1}, {2, -1}, {-2, -1}, {-2, 1}, {1, 2}, {-1, 2}, {-1, -2}, {1, -2}}};
+    private final static int[][][] BISHOP_DIRECTIONS = {{{-1, -1}, {-1, 1}, {1, -1}, {1, 1}}};
+    private final static int[][][] ROOK_DIRECTIONS = {{{-1, 0}, {1, 0}}, {{0, -1}, {0, 1}}};
+    private final static int[][][] QUEEN_DIRECTIONS =
+            {{{-1, 0}, {1, 0}, {-1, -1}, {-1, 1}, {1, 1}, {1, -1}}, {{0, -1}, {0, 1}}};
+    private final int rows;
+    private final int cols;
     private char[][] board;
     private ArrayList<Configuration> successors;
     private int numPieces;
@@ -37,42 +62,63 @@ public class ChessConfig implements Configuration {
      * @throws IOException
      */
     public ChessConfig(String filename) throws IOException {
-        BufferedReader in = new BufferedReader(new FileReader(filename));
-        String line = in.readLine();
-        String[] field = line.split("\\s+");
-        this.ROWS = Integer.parseInt(field[0]);
-        this.COLS = Integer.parseInt(field[1]);
+        try (BufferedReader in = new BufferedReader(new FileReader(filename))) {
+            String line = in.readLine();
+            String[] field = line.split("\\s+");
+            this.rows = Integer.parseInt(field[0]);
+            this.cols = Integer.parseInt(field[1]);
+
+            this.board = new char[rows][cols];
+            pieces = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                line = in.readLine();
+                field = line.split("\\s+");
+                for (int c = 0; c < cols; c++) {
+                    if (field[c].charAt(0) == BISHOP) {
+                        board[r][c] = BISHOP;
+                        pieces.add(new Position(r, c, BISHOP));
+                    } else if (field[c].charAt(0) == KING) {
+                        board[r][c] = KING;
+                        pieces.add(new Position(r, c, KING));
+                    } else if (field[c].charAt(0) == KNIGHT) {
+                        board[r][c] = KNIGHT;
+                        pieces.add(new Position(r, c, KNIGHT));
+                    } else if (field[c].charAt(0) == PAWN) {
+                        board[r][c] = PAWN;
+                        pieces.add(new Position(r, c, PAWN));
+                    } else if (field[c].charAt(0) == QUEEN) {
+                        board[r][c] = QUEEN;
+                        pieces.add(new Position(r, c, QUEEN));
+                    } else if (field[c].charAt(0) == ROOK) {
+                        board[r][c] = ROOK;
+                        pieces.add(new Position(r, c, ROOK));
+                    } else if (field[c].charAt(0) == EMPTY) {
+                        board[r][c] = EMPTY;
+                    }
+                }
+                this.numPieces = pieces.size();
+            }
+        }
+    }
 
-        this.board = new char[ROWS][COLS];
-        pieces = new ArrayList<>();
-        for (int r = 0; r < ROWS; r++) {
-            line = in.readLine();
-            field = line.split("\\s+");
-            for (int c = 0; c < COLS; c++) {
-                if (field[c].charAt(0) == BISHOP) {
-                    board[r][c] = BISHOP;
-                    pieces.add(new Position(r, c, BISHOP));
-                } else if (field[c].charAt(0) == KING) {
-                    board[r][c] = KING;
-                    pieces.add(new Position(r, c, KING));
-                } else if (field[c].charAt(0) == KNIGHT) {
-                    board[r][c] = KNIGHT;
-                    pieces.add(new Position(r, c, KNIGHT));
-                } else if (field[c].charAt(0) == PAWN) {
-                    board[r][c] = PAWN;
-                    pieces.add(new Position(r, c, PAWN));
-                } else if (field[c].charAt(0) == QUEEN) {
-                    board[r][c] = QUEEN;
-                    pieces.add(new Position(r, c, QUEEN));
-                } else if (field[c].charAt(0) == ROOK) {
-                    board[r][c] = ROOK;
-                    pieces.add(new Position(r, c, ROOK));
-                } else if (field[c].charAt(0) == EMPTY) {
-                    board[r][c] = EMPTY;
+    /**
+     * Create a ChessConfig from a board of pieces
+     *
+     * @param board the board, which is used without copying
+     */
+    public ChessConfig(char[][] board) {
+        this.rows = board.length;
+        this.cols = board[0].length;
+        this.board = board;
+        this.pieces = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (board[i][j] != EMPTY) {
+                    pieces.add(new Position(i, j, board[i][j]));
                 }
             }
-            this.numPieces = pieces.size();
         }
+        this.numPieces = pieces.size();
     }
 
     /**
@@ -90,17 +136,19 @@ public class ChessConfig implements Configuration {
      */
     public ChessConfig(ChessConfig other, int startRow,
                        int startCol, int endRow, int endCol) {
-        board = new char[ROWS][COLS];
+        this.rows = other.rows;
+        this.cols = other.cols;
+        board = new char[rows][cols];
         this.pieces = new ArrayList<>();
-        for (int i = 0; i < ROWS; i++) {
-            System.arraycopy(other.board[i], 0, this.board[i], 0, COLS);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(other.board[i], 0, this.board[i], 0, cols);
         }
         // piece replaces captured piece's position
         board[endRow][endCol] = board[startRow][startCol];
         // original position of piece is empty
         board[startRow][startCol] = EMPTY;
-        for (int i = 0; i < ROWS; i++) {
-            for (int j = 0; j < COLS; j++) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
                 if (this.board[i][j] != EMPTY) {
                     pieces.add(new Position(i, j, this.board[i][j]));
                 }
@@ -122,6 +170,7 @@ public class ChessConfig implements Configuration {
     public Collection<Configuration> getNeighbors() {
         successors = new ArrayList<>();
         // Win condition: only one piece on the board
+            ArrayList<Position> pieces = getPieces();
             for (int i = 0; i < pieces.size(); i++) {
                 Position p = pieces.get(i);
                 if (p.getPiece() == PAWN) {
@@ -201,7 +250,7 @@ public class ChessConfig implements Configuration {
         boolean bottLeftCapture = false;
         boolean bottRightCapture = false;
 
-        for (int i = 1; i < ROWS; i++) {
+        for (int i = 1; i < rows; i++) {
             int upRow = p.getRow() - i;
             int leftCol = p.getCol() - i;
             int downRow = p.getRow() + i;
@@ -436,7 +485,7 @@ public class ChessConfig implements Configuration {
         boolean captureUp = false;
         boolean captureDown = false;
 
-        for (int i = 1; i < ROWS; i++) {
+        for (int i = 1; i < rows; i++) {
             int upRow = p.getRow() - i;
             int downRow = p.getRow() + i;
 
@@ -457,7 +506,7 @@ public class ChessConfig implements Configuration {
             }
         }
 
-        for (int i = 1; i < COLS; i++) {
+        for (int i = 1; i < cols; i++) {
             int leftCol = p.getCol() - i;
             int rightCol = p.getCol() + i;
 
@@ -500,7 +549,7 @@ public class ChessConfig implements Configuration {
         boolean captureUp = false;
         boolean captureDown = false;
 
-        for (int i = 1; i < ROWS; i++) {
+        for (int i = 1; i < rows; i++) {
             int upRow = p.getRow() - i;
             int downRow = p.getRow() + i;
             int leftCol = p.getCol() - i;
@@ -562,7 +611,7 @@ public class ChessConfig implements Configuration {
             }
         }
 
-        for (int i = 1; i < COLS; i++){
+        for (int i = 1; i < cols; i++){
             int leftCol = p.getCol() - i;
             int rightCol = p.getCol() + i;
 
@@ -594,7 +643,7 @@ public class ChessConfig implements Configuration {
      * @return whether the cell exists on the board
      */
     public boolean isValidPos(int row, int col) {
-        if (col >= 0 && col < COLS && row >= 0 && row < ROWS) {
+        if (col >= 0 && col < cols && row >= 0 && row < rows) {
             return true;
         } else {
             return false;
@@ -616,6 +665,274 @@ public class ChessConfig implements Configuration {
         return false;
     }
 
+    /**
+     * Check if the piece on one cell can capture the piece on another,
+     * walking only the one direction that leads there instead of making
+     * every capture of the piece
+     *
+     * @param startRow row of the capturing piece
+     * @param startCol column of the capturing piece
+     * @param endRow row of the piece to capture
+     * @param endCol column of the piece to capture
+     * @return whether the capture is legal
+     */
+    public boolean canCapture(int startRow, int startCol, int endRow, int endCol) {
+        if (!isValidPos(startRow, startCol) || !isValidPos(endRow, endCol)
+                || (startRow == endRow && startCol == endCol) || !isCapture(endRow, endCol)) {
+            return false;
+        }
+        char piece = board[startRow][startCol];
+        int[][][] groups;
+        boolean slides = false;
+        if (piece == PAWN) {
+            groups = PAWN_DIRECTIONS;
+        } else if (piece == BISHOP) {
+            groups = BISHOP_DIRECTIONS;
+            slides = true;
+        } else if (piece == KING) {
+            groups = KING_DIRECTIONS;
+        } else if (piece == KNIGHT) {
+            groups = KNIGHT_DIRECTIONS;
+        } else if (piece == ROOK) {
+            groups = ROOK_DIRECTIONS;
+            slides = true;
+        } else if (piece == QUEEN) {
+            groups = QUEEN_DIRECTIONS;
+            slides = true;
+        } else {
+            return false;
+        }
+        int reach = slides ? Math.max(rows, cols) : 2;
+        for (int[][] group : groups) {
+            for (int[] direction : group) {
+                for (int i = 1; i < reach; i++) {
+                    int r = startRow + direction[0] * i;
+                    int c = startCol + direction[1] * i;
+                    if (r == endRow && c == endCol) {
+                        return true;
+                    }
+                    if (!isValidPos(r, c) || isCapture(r, c)) {
+                        break;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Make a capture on this board instead of on a copy. The caller checks
+     * that the capture is legal.
+     *
+     * @param startRow row of the capturing piece
+     * @param startCol column of the capturing piece
+     * @param endRow row of the captured piece
+     * @param endCol column of the captured piece
+     * @return the piece that was captured
+     */
+    public char capture(int startRow, int startCol, int endRow, int endCol) {
+        char captured = board[endRow][endCol];
+        board[endRow][endCol] = board[startRow][startCol];
+        board[startRow][startCol] = EMPTY;
+        findPieces();
+        return captured;
+    }
+
+    /**
+     * Take back a capture made by {@link #capture(int, int, int, int)}
+     *
+     * @param startRow row the capturing piece came from
+     * @param startCol column the capturing piece came from
+     * @param endRow row of the captured piece
+     * @param endCol column of the captured piece
+     * @param captured the piece that was captured
+     */
+    public void uncapture(int startRow, int startCol, int endRow, int endCol, char captured) {
+        board[startRow][startCol] = board[endRow][endCol];
+        board[endRow][endCol] = captured;
+        findPieces();
+    }
+
+    /**
+     * Find the capture that turns this board into a neighbor.
+     * Exactly one cell is emptied by a capture, that is where the piece
+     * came from. If it could have captured several pieces of its own
+     * kind the boards after are the same, so any of those captures will do.
+     *
+     * @param neighbor the board after the capture
+     * @return the packed capture
+     */
+    @Override
+    public long findMove(Configuration neighbor) {
+        ChessConfig next = (ChessConfig) neighbor;
+        int fromRow = -1;
+        int fromCol = -1;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!isEmpty(r, c) && next.isEmpty(r, c)) {
+                    fromRow = r;
+                    fromCol = c;
+                }
+            }
+        }
+        char piece = getCellPiece(fromRow, fromCol);
+        int toRow = -1;
+        int toCol = -1;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!isEmpty(r, c) && next.getCellPiece(r, c) == piece
+                        && canCapture(fromRow, fromCol, r, c)
+                        && (toRow < 0 || getCellPiece(r, c) != piece)) {
+                    toRow = r;
+                    toCol = c;
+                }
+            }
+        }
+        return MoveHistory.encode(fromRow, fromCol, toRow, toCol, getCellPiece(toRow, toCol));
+    }
+
+    /**
+     * Make a capture on a copy of this board, if it is legal
+     *
+     * @param move the packed capture
+     * @return the board after the capture, or null if it is not legal here
+     */
+    @Override
+    public Configuration afterMove(long move) {
+        int startRow = MoveHistory.fromRow(move);
+        int startCol = MoveHistory.fromCol(move);
+        int endRow = MoveHistory.toRow(move);
+        int endCol = MoveHistory.toCol(move);
+        if (!canCapture(startRow, startCol, endRow, endCol)) {
+            return null;
+        }
+        return new ChessConfig(this, startRow, startCol, endRow, endCol);
+    }
+
+    /**
+     * Each piece can make at most eight captures
+     *
+     * @return eight for every cell of the board
+     */
+    @Override
+    public int getMaxMoves() {
+        return rows * cols * 8;
+    }
+
+    /**
+     * Write the captures of every piece, in the order of
+     * {@link #getNeighbors()}, except that the knight's capture up one and
+     * left two is written once where getNeighbors makes it twice. A move
+     * holds the cell moved from, the cell captured and the piece captured.
+     *
+     * @param moves the array to write into
+     * @param offset where in the array to start writing
+     * @return the number of moves written
+     */
+    @Override
+    public int generateMoves(int[] moves, int offset) {
+        int found = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                char piece = board[r][c];
+                if (piece == PAWN) {
+                    found += captures(r, c, PAWN_DIRECTIONS, false, moves, offset + found);
+                } else if (piece == BISHOP) {
+                    found += captures(r, c, BISHOP_DIRECTIONS, true, moves, offset + found);
+                } else if (piece == KING) {
+                    found += captures(r, c, KING_DIRECTIONS, false, moves, offset + found);
+                } else if (piece == KNIGHT) {
+                    found += captures(r, c, KNIGHT_DIRECTIONS, false, moves, offset + found);
+                } else if (piece == ROOK) {
+                    found += captures(r, c, ROOK_DIRECTIONS, true, moves, offset + found);
+                } else if (piece == QUEEN) {
+                    found += captures(r, c, QUEEN_DIRECTIONS, true, moves, offset + found);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Write the captures of one piece
+     *
+     * @param row row of the piece
+     * @param col column of the piece
+     * @param groups the groups of directions the piece captures in
+     * @param slides whether the piece slides over empty cells
+     * @param moves the array to write into
+     * @param offset where in the array to start writing
+     * @return the number of moves written
+     */
+    private int captures(int row, int col, int[][][] groups, boolean slides, int[] moves, int offset) {
+        int found = 0;
+        int from = row * cols + col;
+        int reach = slides ? Math.max(rows, cols) : 2;
+        for (int[][] group : groups) {
+            // bit d is set once direction d of the group has captured
+            int captured = 0;
+            for (int i = 1; i < reach; i++) {
+                for (int d = 0; d < group.length; d++) {
+                    int r = row + group[d][0] * i;
+                    int c = col + group[d][1] * i;
+                    if ((captured & (1 << d)) == 0 && isValidPos(r, c) && isCapture(r, c)) {
+                        moves[offset + found] = from | (r * cols + c) << MOVE_CELL_BITS
+                                | board[r][c] << (2 * MOVE_CELL_BITS);
+                        found++;
+                        captured |= 1 << d;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Make a capture on this board. The list of pieces is only rebuilt when
+     * it is next asked for.
+     *
+     * @param move a move made by {@link #generateMoves(int[], int)}
+     */
+    @Override
+    public void applyMove(int move) {
+        int from = move & MOVE_CELL_MASK;
+        int to = (move >>> MOVE_CELL_BITS) & MOVE_CELL_MASK;
+        board[to / cols][to % cols] = board[from / cols][from % cols];
+        board[from / cols][from % cols] = EMPTY;
+        numPieces--;
+        pieces = null;
+    }
+
+    /**
+     * Take back a capture made by {@link #applyMove(int)}
+     *
+     * @param move the move
+     */
+    @Override
+    public void undoMove(int move) {
+        int from = move & MOVE_CELL_MASK;
+        int to = (move >>> MOVE_CELL_BITS) & MOVE_CELL_MASK;
+        board[from / cols][from % cols] = board[to / cols][to % cols];
+        board[to / cols][to % cols] = (char) (move >>> (2 * MOVE_CELL_BITS));
+        numPieces++;
+        pieces = null;
+    }
+
+    /**
+     * Rebuild the list of pieces from the board
+     */
+    private void findPieces() {
+        pieces = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (board[i][j] != EMPTY) {
+                    pieces.add(new Position(i, j, board[i][j]));
+                }
+            }
+        }
+        numPieces = pieces.size();
+    }
+
     /**
      * Check if the current config equals another config
      * @param other the other config
@@ -626,8 +943,8 @@ public class ChessConfig implements Configuration {
         boolean result = false;
         if (other instanceof ChessConfig) {
             ChessConfig o = (ChessConfig) other;
-            for (int i = 0; i < ROWS; i++) {
-                for (int j = 0; j < COLS; j++) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
                     if (this.board[i][j] == o.board[i][j]) {
                         result = true;
                     } else {
@@ -670,6 +987,9 @@ public class ChessConfig implements Configuration {
      * @return list of pieces in the configuration
      */
     public ArrayList<Position> getPieces() {
+        if (pieces == null) {
+            findPieces();
+        }
         return pieces;
     }
 
@@ -679,7 +999,7 @@ public class ChessConfig implements Configuration {
      * @return the number of rows of the chessboard
      */
     public int getRows() {
-        return ROWS;
+        return rows;
     }
 
     /**
@@ -688,7 +1008,7 @@ public class ChessConfig implements Configuration {
      * @return the number of columns of the chessboard
      */
     public int getCols() {
-        return COLS;
+        return cols;
     }
 
     @Override
@@ -696,12 +1016,43 @@ public class ChessConfig implements Configuration {
         return this.toString().hashCode();
     }
 
+    /**
+     * Pack the board into longs, three bits per cell
+     *
+     * @return the packed board
+     */
+    @Override
+    public long[] pack() {
+        return PackedKey.pack(board, CELL_CODES, CELL_BITS);
+    }
+
+    /**
+     * Pack the board into longs that are already there
+     *
+     * @param words where the packed board goes
+     */
+    @Override
+    public void pack(long[] words) {
+        PackedKey.pack(board, CELL_CODES, CELL_BITS, words);
+    }
+
+    /**
+     * Rebuild a board of this size from packed longs
+     *
+     * @param words the words made by {@link #pack()}
+     * @return the config of the packed board
+     */
+    @Override
+    public ChessConfig unpack(long[] words) {
+        return new ChessConfig(PackedKey.unpack(words, rows, cols, CELL_CODES, CELL_BITS));
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < ROWS; i++) {
+        for (int i = 0; i < rows; i++) {
             sb.append("\n");
-            for (int j = 0; j < COLS; j++) {
+            for (int j = 0; j < cols; j++) {
                 sb.append(board[i][j]);
                 sb.append(" ");
             }
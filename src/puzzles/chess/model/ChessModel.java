@@ -1,18 +1,24 @@
 package puzzles.chess.model;
 
 import javafx.geometry.Pos;
+import puzzles.common.Coordinates;
+import puzzles.common.EventBus;
+import puzzles.common.ModelEvent;
+import puzzles.common.MoveHistory;
 import puzzles.common.Observer;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.HintPrefetcher;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.WinTable;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class ChessModel {
-    /** the collection of observers of this model */
-    private final List<Observer<ChessModel, String>> observers = new LinkedList<>();
+    /** tells the observers of this model about its events */
+    private final EventBus<ChessModel> events = new EventBus<>(this);
 
     /** the current configuration */
     private ChessConfig currentConfig;
@@ -24,6 +30,16 @@ public class ChessModel {
     private Position currSelection;
     /** current filename */
     private String filename;
+    /** which boards of the loaded file can still be solved, labelled as they are asked about */
+    private WinTable wins;
+    /** the captures made since loading, the extra bits hold the piece captured */
+    private final MoveHistory history = new MoveHistory();
+    /** labels events off the thread that made them */
+    private final HintPrefetcher prefetcher = new HintPrefetcher();
+    /** true once a view wants labelled events, so a model nobody draws labels nothing */
+    private volatile boolean labelling;
+    /** the last event published, so the labelled copy of an older one is dropped */
+    private ModelEvent lastEvent;
 
     /**
      * The view calls this to add itself as an observer.
@@ -31,7 +47,26 @@ public class ChessModel {
      * @param observer the view
      */
     public void addObserver(Observer<ChessModel, String> observer) {
-        this.observers.add(observer);
+        events.subscribe((model, event) -> {
+            if (!event.isLabelled()) {
+                observer.update(model, event.getMessage());
+            }
+        });
+    }
+
+    /**
+     * A view calls this to be told of events through an executor, such as
+     * the JavaFX thread's. Events that come faster than it runs are merged
+     * into the latest one, which has a copy of the board at that time.
+     * Each event is followed by a labelled copy once the background thread
+     * knows whether the board can be solved and which captures can still win.
+     *
+     * @param observer the view
+     * @param executor runs the view's update
+     */
+    public void addObserver(Observer<ChessModel, ModelEvent> observer, Executor executor) {
+        labelling = true;
+        events.subscribe(observer, executor);
     }
 
     /**
@@ -46,34 +81,165 @@ public class ChessModel {
             ChessConfig temp = new ChessConfig(filename);
             currentConfig = temp;
             this.filename = filename;
-            alertObservers("Loaded: " + filename);
+            wins = new WinTable(temp);
+            history.clear();
+            isSelection = false;
+            alertObservers(ModelEvent.Kind.LOADED, "Loaded: %s", filename);
         } catch(IOException e) {
-            alertObservers("Failed to load: " + filename);
+            alertObservers(ModelEvent.Kind.LOAD_FAILED, "Failed to load: %s", filename);
         }
     }
 
     /**
-     * Give the next step of the solution for the config
+     * Make the first capture that leads to a board that can still be
+     * solved, looked up in the table of winning boards
      *
      * If there is no solution, alert observers that there is no solution
      * If the puzzle is already solved, alert observers that it is solved
      */
     public void hint() {
-        Solver solve = new Solver(currentConfig);
-        List<Configuration> path = solve.solve();
-        if (path.isEmpty()) {
-            alertObservers("No solution.");
+        if (!wins.isWinning(currentConfig)) {
+            alertObservers(ModelEvent.Kind.NO_HINT, "No solution.");
+        } else if (currentConfig.isSolution()) {
+            alertObservers(ModelEvent.Kind.NO_HINT, "Already solved!");
         } else {
-            // get next part of solution
-            if (!path.isEmpty()) {
-                currentConfig = (ChessConfig) path.get(1);
-                alertObservers("Next step!");
-            } else if (getPieces().size() == 1) {
-                alertObservers("Already solved!");
+            for (Configuration neighbor : currentConfig.getNeighbors()) {
+                if (wins.isWinning((ChessConfig) neighbor)) {
+                    long move = findCapture((ChessConfig) neighbor);
+                    makeCapture(move);
+                    history.record(move);
+                    isSelection = false;
+                    alertObservers(ModelEvent.Kind.HINT, "Next step!");
+                    return;
+                }
             }
         }
     }
 
+    /**
+     * Check whether the current board can still be solved
+     *
+     * @return true if some captures from here reach a solution
+     */
+    public boolean isSolvable() {
+        return wins.isWinning(currentConfig);
+    }
+
+    /**
+     * Find the cells the selected piece can capture on and still leave a
+     * board that can be solved
+     *
+     * @return the cells of the winning captures, empty if nothing is selected
+     */
+    public List<Coordinates> getWinningTargets() {
+        if (!isSelection) {
+            return new ArrayList<>();
+        }
+        return winningTargets(currentConfig, currSelection.getRow(), currSelection.getCol(), wins);
+    }
+
+    /**
+     * Find the cells a piece can capture on and still leave a board that can be solved
+     *
+     * @param config the board, which is not changed
+     * @param row the row of the piece
+     * @param col the column of the piece
+     * @param wins the labels of the board
+     * @return the cells of the winning captures
+     */
+    private static List<Coordinates> winningTargets(ChessConfig config, int row, int col, WinTable wins) {
+        List<Coordinates> targets = new ArrayList<>();
+        for (int r = 0; r < config.getRows(); r++) {
+            for (int c = 0; c < config.getCols(); c++) {
+                if (config.canCapture(row, col, r, c)
+                        && wins.isWinning(new ChessConfig(config, row, col, r, c))) {
+                    targets.add(new Coordinates(r, c));
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Find the capture that turns the current board into the next one
+     *
+     * @param next the board after the capture
+     * @return the packed capture
+     */
+    private long findCapture(ChessConfig next) {
+        return currentConfig.findMove(next);
+    }
+
+    /**
+     * Make a packed capture on the current board
+     *
+     * @param move the packed capture
+     */
+    private void makeCapture(long move) {
+        currentConfig.capture(MoveHistory.fromRow(move), MoveHistory.fromCol(move),
+                MoveHistory.toRow(move), MoveHistory.toCol(move));
+    }
+
+    /**
+     * Take back a packed capture on the current board
+     *
+     * @param move the packed capture
+     */
+    private void revertCapture(long move) {
+        currentConfig.uncapture(MoveHistory.fromRow(move), MoveHistory.fromCol(move),
+                MoveHistory.toRow(move), MoveHistory.toCol(move),
+                (char) MoveHistory.extra(move));
+    }
+
+    /**
+     * Take back the last capture
+     */
+    public void undo() {
+        if (!history.canUndo()) {
+            alertObservers(ModelEvent.Kind.NOTHING_TO_DO, "Nothing to undo.");
+            return;
+        }
+        long move = history.undo();
+        revertCapture(move);
+        isSelection = false;
+        alertObservers(ModelEvent.Kind.UNDONE, "Undid capture from %s", describe(move));
+    }
+
+    /**
+     * Make the last capture taken back again
+     */
+    public void redo() {
+        if (!history.canRedo()) {
+            alertObservers(ModelEvent.Kind.NOTHING_TO_DO, "Nothing to redo.");
+            return;
+        }
+        long move = history.redo();
+        makeCapture(move);
+        isSelection = false;
+        alertObservers(ModelEvent.Kind.REDONE, "Redid capture from %s", describe(move));
+    }
+
+    /**
+     * Describe where a packed capture goes from and to
+     *
+     * @param move the packed capture
+     * @return the from and to cells, as in "(0, 1) to (1, 2)"
+     */
+    private String describe(long move) {
+        return "(" + MoveHistory.fromRow(move) + ", " + MoveHistory.fromCol(move)
+                + ") to (" + MoveHistory.toRow(move) + ", " + MoveHistory.toCol(move) + ")";
+    }
+
+    /**
+     * Solve the puzzle from the current board without changing it
+     *
+     * @return the boards from the current one to a solution, or an empty
+     * list if there is no solution
+     */
+    public List<Configuration> getSolution() {
+        return new Solver(currentConfig).solve();
+    }
+
     /**
      * Select a cell in the chessboard
      * Empty cells cannot be selected
@@ -93,67 +259,40 @@ public class ChessModel {
                     !currentConfig.isEmpty(row, col)) {
                 currSelection = new Position(row, col,
                         currentConfig.getCellPiece(row, col));
-                alertObservers("Selected " + currSelection.toString());
                 isSelection = true;
+                alertObservers(ModelEvent.Kind.SELECTED, "Selected %s", currSelection);
             } else {
-                alertObservers("Invalid selection (" + row + ", " + col + ")");
                 isSelection = false;
+                alertObservers(ModelEvent.Kind.SELECTED, "Invalid selection (%d, %d)", row, col);
             }
         } else {
-                Position endCell = new Position(row, col,
-                        currentConfig.getCellPiece(row, col));
-                // Make new ChessConfig assuming the capture is valid
-                ChessConfig endConfig = new ChessConfig(currentConfig,
-                        currSelection.getRow(), currSelection.getCol(),
-                        endCell.getRow(), endCell.getCol());
-
-                ArrayList<Configuration> validMoves = new ArrayList<>();
-                char currPiece = currSelection.getPiece();
-                if (currPiece == ChessConfig.PAWN) {
-                    validMoves.addAll(currentConfig.pawnMoves(currSelection));
-                } else if (currPiece == ChessConfig.BISHOP) {
-                    validMoves.addAll(currentConfig.bishopMoves(currSelection));
-                } else if (currPiece == ChessConfig.KING) {
-                    validMoves.addAll(currentConfig.kingMoves(currSelection));
-                } else if (currPiece == ChessConfig.KNIGHT) {
-                    validMoves.addAll(currentConfig.knightMoves(currSelection));
-                } else if (currPiece == ChessConfig.ROOK) {
-                    validMoves.addAll(currentConfig.rookMoves(currSelection));
-                } else if (currPiece == ChessConfig.QUEEN) {
-                    validMoves.addAll(currentConfig.queenMoves(currSelection));
-                }
-
-                boolean valid = false;
-                for (Configuration c : validMoves) {
-                    if (endConfig.equals(c)
-                            && !(currSelection.equals(endCell))) {
-                        valid = true;
-                        currentConfig = endConfig;
-                        alertObservers("Captured from "
-                                + currSelection.toString() + " to "
-                                + endCell.toString());
-                        isSelection = false;
-                    }
-                }
-                if (!valid) {
-                    alertObservers("Can't capture from "
-                            + currSelection.toString() + " to "
-                            + endCell.toString());
-                    isSelection = false;
-                }
+            Position endCell = new Position(row, col, currentConfig.isValidPos(row, col)
+                    ? currentConfig.getCellPiece(row, col) : ChessConfig.EMPTY);
+            if (currentConfig.canCapture(currSelection.getRow(), currSelection.getCol(), row, col)) {
+                char captured = currentConfig.capture(
+                        currSelection.getRow(), currSelection.getCol(), row, col);
+                history.record(MoveHistory.encode(
+                        currSelection.getRow(), currSelection.getCol(), row, col, captured));
+                alertObservers(ModelEvent.Kind.MOVED, "Captured from %s to %s",
+                        currSelection, endCell);
+            } else {
+                alertObservers(ModelEvent.Kind.INVALID_MOVE, "Can't capture from %s to %s",
+                        currSelection, endCell);
+            }
+            isSelection = false;
         }
     }
 
     /**
-     * Reset the puzzle
+     * Reset the puzzle by taking back every capture, without reading
+     * the file again. The captures can still be redone.
      */
     public void reset() {
-        try {
-            currentConfig = new ChessConfig(filename);
-            alertObservers("Puzzle reset!");
-        } catch(IOException ex) {
-            alertObservers("Reset error with " + filename);
+        while (history.canUndo()) {
+            revertCapture(history.undo());
         }
+        isSelection = false;
+        alertObservers(ModelEvent.Kind.RESET, "Puzzle reset!");
     }
 
     /**
@@ -230,13 +369,44 @@ public class ChessModel {
     }
 
     /**
-     * The model's state has changed (the counter), so inform the view via
-     * the update method
+     * The model's state has changed, so inform the views with an event
+     * holding a copy of the board. If a view wants labels, they are worked
+     * out on a copy of the board in the background and published after.
+     *
+     * @param kind what happened
+     * @param format the message, formatted with the args only if a view reads it
+     * @param args the values put into the message
      */
-    private void alertObservers(String data) {
-        for (var observer : observers) {
-            observer.update(this, data);
+    private void alertObservers(ModelEvent.Kind kind, String format, Object... args) {
+        char[][] board = new char[getRows()][getCols()];
+        for (int r = 0; r < board.length; r++) {
+            for (int c = 0; c < board[r].length; c++) {
+                board[r][c] = currentConfig.getCellPiece(r, c);
+            }
+        }
+        ModelEvent event = new ModelEvent(kind, board, format, args);
+        synchronized (events) {
+            lastEvent = event;
+            events.publish(event);
+        }
+        if (!labelling) {
+            return;
         }
+        ChessConfig copy = currentConfig.unpack(currentConfig.pack());
+        // only a selection has winning targets to show
+        boolean selected = kind == ModelEvent.Kind.SELECTED && isSelection;
+        int row = selected ? currSelection.getRow() : -1;
+        int col = selected ? currSelection.getCol() : -1;
+        WinTable boardWins = wins;
+        prefetcher.prefetch(() -> {
+            ModelEvent labelled = event.withLabels(boardWins.isWinning(copy),
+                    selected ? winningTargets(copy, row, col, boardWins) : List.of());
+            synchronized (events) {
+                if (lastEvent == event) {
+                    events.publish(labelled);
+                }
+            }
+        });
     }
 
 
@@ -249,5 +419,6 @@ public class ChessModel {
     public ChessModel(String filename) throws IOException {
         this.filename = filename;
         this.currentConfig = new ChessConfig(filename);
+        this.wins = new WinTable(currentConfig);
     }
 }
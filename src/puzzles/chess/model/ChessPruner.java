@@ -0,0 +1,146 @@
+package puzzles.chess.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Pruner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a list of dead position rules on chess configs so the solver does not
+ * expand configs that can never be solved. The capture graph is built once
+ * per config and shared by the rules, and each rule counts the configs it
+ * pruned.
+ */
+public class ChessPruner implements Pruner {
+    /** A piece that can never capture or be captured can never go away */
+    public final static ChessPruningRule ISOLATED_PIECE = new ChessPruningRule() {
+        @Override
+        public String getName() {
+            return "isolated piece";
+        }
+
+        @Override
+        public boolean isDead(ChessConfig config, CaptureGraph graph) {
+            for (int node = 0; node < graph.size(); node++) {
+                if (graph.isIsolated(node)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    /** Groups of pieces that can never meet each leave a piece behind */
+    public final static ChessPruningRule SPLIT_GROUPS = new ChessPruningRule() {
+        @Override
+        public String getName() {
+            return "split groups";
+        }
+
+        @Override
+        public boolean isDead(ChessConfig config, CaptureGraph graph) {
+            return graph.countGroups() > 1;
+        }
+    };
+
+    /** Pieces can't leave a sink group, so each sink group leaves a piece behind */
+    public final static ChessPruningRule SINK_GROUPS = new ChessPruningRule() {
+        @Override
+        public String getName() {
+            return "sink groups";
+        }
+
+        @Override
+        public boolean isDead(ChessConfig config, CaptureGraph graph) {
+            return graph.countSinkGroups() > 1;
+        }
+    };
+
+    private final List<ChessPruningRule> rules = new ArrayList<>();
+    private final List<Long> pruned = new ArrayList<>();
+    private long checked;
+
+    /**
+     * Create a pruner with the built in rules, cheapest first
+     */
+    public ChessPruner() {
+        addRule(ISOLATED_PIECE);
+        addRule(SPLIT_GROUPS);
+        addRule(SINK_GROUPS);
+    }
+
+    /**
+     * Create a pruner with only the given rules
+     *
+     * @param rules the rules to run, in order
+     */
+    public ChessPruner(List<ChessPruningRule> rules) {
+        for (ChessPruningRule rule : rules) {
+            addRule(rule);
+        }
+    }
+
+    /**
+     * Add a rule to run after the current ones
+     *
+     * @param rule the rule to add
+     */
+    public void addRule(ChessPruningRule rule) {
+        rules.add(rule);
+        pruned.add(0L);
+    }
+
+    /**
+     * Run the rules on a config until one of them proves it dead
+     *
+     * @param config the config to check
+     * @return true if a rule proved the config can never be solved
+     */
+    @Override
+    public boolean isDead(Configuration config) {
+        ChessConfig chess = (ChessConfig) config;
+        checked++;
+        if (chess.getPieces().size() <= 1) {
+            return false;
+        }
+        CaptureGraph graph = new CaptureGraph(chess);
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).isDead(chess, graph)) {
+                pruned.set(i, pruned.get(i) + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get how many configs a rule pruned
+     *
+     * @param rule the rule
+     * @return the number of configs the rule proved dead, 0 if it is not used
+     */
+    public long getPruned(ChessPruningRule rule) {
+        int i = rules.indexOf(rule);
+        return i < 0 ? 0 : pruned.get(i);
+    }
+
+    /**
+     * Getter for the number of configs checked
+     *
+     * @return the number of configs given to {@link #isDead(Configuration)}
+     */
+    public long getChecked() {
+        return checked;
+    }
+
+    /**
+     * Print how many configs were checked and how many each rule pruned
+     */
+    public void printCounts() {
+        System.out.println("Checked configs: " + checked);
+        for (int i = 0; i < rules.size(); i++) {
+            System.out.println("Pruned (" + rules.get(i).getName() + "): " + pruned.get(i));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package puzzles.chess.model;
+
+/**
+ * A cheap test that proves a chess config can never be reduced to one piece.
+ * Rules are plugged into a {@link ChessPruner}.
+ */
+public interface ChessPruningRule {
+    /**
+     * Get the name of the rule for the pruning statistics
+     *
+     * @return the name of the rule
+     */
+    String getName();
+
+    /**
+     * Is the config provably unsolvable? Only called on configs with more
+     * than one piece.
+     *
+     * @param config the config to check
+     * @param graph the capture graph of the config
+     * @return true if the config can never be solved
+     */
+    boolean isDead(ChessConfig config, CaptureGraph graph);
+}
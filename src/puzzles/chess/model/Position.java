@@ -49,6 +49,11 @@ public class Position implements Comparable<Position> {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return (31 * row + col) * 31 + piece;
+    }
+
     @Override
     public String toString() {
         return "(" + row + ", " + col + ")";
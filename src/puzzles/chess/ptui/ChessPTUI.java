@@ -6,11 +6,29 @@ import puzzles.chess.model.ChessModel;
 import puzzles.chess.model.Position;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 public class ChessPTUI implements Observer<ChessModel, String> {
     private ChessModel model;
     private String filename;
+    /** where everything is printed */
+    private final PrintStream out;
+
+    /**
+     * Create a PTUI that prints to standard output
+     */
+    public ChessPTUI() {
+        this(System.out);
+    }
+
+    /**
+     * Create a PTUI that prints somewhere else, to run it without a console
+     * @param out where to print
+     */
+    public ChessPTUI(PrintStream out) {
+        this.out = out;
+    }
 
     public void init(String filename) throws IOException {
         this.filename = filename;
@@ -23,41 +41,57 @@ public class ChessPTUI implements Observer<ChessModel, String> {
     @Override
     public void update(ChessModel model, String data) {
         // for demonstration purposes
-        System.out.println(data);
-        System.out.println(model);
+        out.println(data);
+        out.println(model);
     }
 
     private void displayHelp() {
-        System.out.println( "h(int)              -- hint next move" );
-        System.out.println( "l(oad) filename     -- load new puzzle file" );
-        System.out.println( "s(elect) r c        -- select cell at r, c" );
-        System.out.println( "q(uit)              -- quit the game" );
-        System.out.println( "r(eset)             -- reset the current game" );
+        out.println( "h(int)              -- hint next move" );
+        out.println( "l(oad) filename     -- load new puzzle file" );
+        out.println( "s(elect) r c        -- select cell at r, c" );
+        out.println( "q(uit)              -- quit the game" );
+        out.println( "r(eset)             -- reset the current game" );
+        out.println( "u(ndo)              -- take back the last move" );
+        out.println( "redo                -- make the last move taken back again" );
     }
 
     public void run() {
         Scanner in = new Scanner( System.in );
-        for (; ;) {
-            System.out.print( "> " );
-            String line = in.nextLine();
-            String[] words = line.split( "\\s+" );
-            if (words.length > 0) {
-                if (words[0].startsWith( "q" )) {
-                    break;
-                } else if (words[0].startsWith("h")) {
-                    model.hint();
-                } else if (words[0].startsWith("l")) {
-                    model.load(words[1]);
-                } else if (words[0].startsWith("s")) {
-                    model.select(Integer.parseInt(words[1]),
-                            Integer.parseInt(words[2]));
-                } else if (words[0].startsWith("r")) {
-                    model.reset();
-                } else {
-                    displayHelp();
-                }
+        boolean running = true;
+        while (running) {
+            out.print( "> " );
+            running = execute(in.nextLine());
+        }
+    }
+
+    /**
+     * Run one command
+     * @param line the command as typed
+     * @return false if the command was quit
+     */
+    public boolean execute(String line) {
+        String[] words = line.split( "\\s+" );
+        if (words.length > 0) {
+            if (words[0].startsWith( "q" )) {
+                return false;
+            } else if (words[0].startsWith("h")) {
+                model.hint();
+            } else if (words[0].startsWith("l")) {
+                model.load(words[1]);
+            } else if (words[0].startsWith("s")) {
+                model.select(Integer.parseInt(words[1]),
+                        Integer.parseInt(words[2]));
+            } else if (words[0].startsWith("u")) {
+                model.undo();
+            } else if (words[0].equals("redo")) {
+                model.redo();
+            } else if (words[0].startsWith("r")) {
+                model.reset();
+            } else {
+                displayHelp();
             }
         }
+        return true;
     }
 
     public static void main(String[] args) {
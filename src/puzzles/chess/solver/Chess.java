@@ -3,22 +3,225 @@ package puzzles.chess.solver;
 import puzzles.chess.model.ChessConfig;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import puzzles.chess.model.ChessPruner;
+import puzzles.common.solver.CostEstimator;
+import puzzles.common.solver.DepthFirstSearch;
+import puzzles.common.solver.HeuristicSearch;
+import puzzles.common.solver.MoveList;
+import puzzles.common.solver.SearchTrace;
+import puzzles.common.solver.SolutionCounter;
+import puzzles.common.solver.SolutionWriter;
 import puzzles.common.solver.Solver;
 
 public class Chess {
+    /** configs expanded between checkpoints */
+    private final static long CHECKPOINT_INTERVAL = 100_000;
+    /** the searches a --format can be given before */
+    private final static String SEARCHES = "--(dfs|greedy|beam)";
+
     public static void main(String[] args) {
-        if (args.length != 1) {
+        SolutionWriter.Format format = SolutionWriter.Format.BOARDS;
+        if (args.length >= 4 && args[0].equals("--format") && args[2].matches(SEARCHES)) {
+            // write what the search after it finds as moves or a line of JSON, e.g. --format json --dfs filename
+            try {
+                format = SolutionWriter.formatOf(args[1]);
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Unknown format: " + args[1]);
+                return;
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        SolutionWriter writer = new SolutionWriter(System.out, format);
+        if (args.length >= 2 && args[0].equals("--count")) {
+            // count the solutions of every file given, without solving
+            for (int i = 1; i < args.length; i++) {
+                try {
+                    System.out.println("File: " + args[i]);
+                    new SolutionCounter(new ChessConfig(args[i])).countAndPrint();
+                } catch (IOException ex) {
+                    System.err.println("IOException");
+                }
+            }
+        } else if (args.length == 2 && args[0].equals("--prune")) {
+            // solve without expanding configs the pruning rules prove dead
+            try {
+                ChessConfig start = new ChessConfig(args[1]);
+                System.out.println(start.toString());
+                ChessPruner pruner = new ChessPruner();
+                Solver solver = new Solver(start, pruner);
+                solver.solveAndPrint();
+                pruner.printCounts();
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length == 3 && (args[0].equals("--checkpoint")
+                || args[0].equals("--resume"))) {
+            // save the search as it goes, and with --resume carry on from the last save
+            try {
+                ChessConfig start = new ChessConfig(args[2]);
+                System.out.println(start.toString());
+                Solver solver = new Solver(start);
+                solver.setCheckpoint(Path.of(args[1]), CHECKPOINT_INTERVAL,
+                        args[0].equals("--resume"));
+                solver.solveAndPrint();
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            } catch (UncheckedIOException ex) {
+                // a checkpoint of another puzzle, a corrupt one, or one that can't be written
+                System.err.println(ex.getCause().getMessage());
+            }
+        } else if ((args.length == 3 && args[0].equals("--beam") && args[1].matches("[1-9]\\d{0,8}"))
+                || (args.length == 2 && args[0].equals("--greedy"))) {
+            // find any solution fast, expanding the boards with the most captures left first
+            try {
+                String filename = args[args.length - 1];
+                ChessConfig start = new ChessConfig(filename);
+                printStart(start, format);
+                HeuristicSearch search = new HeuristicSearch(start, HeuristicSearch.MOBILITY);
+                // a beam that finds nothing falls back to the greedy search, which is complete
+                search.write(filename, args[0].equals("--beam")
+                        ? search.solve(Integer.parseInt(args[1])) : search.greedy(), writer);
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length == 2 && args[0].equals("--dfs")) {
+            // depth first, making and taking back captures on one board
+            try {
+                ChessConfig start = new ChessConfig(args[1]);
+                printStart(start, format);
+                new DepthFirstSearch(start).solveAndWrite(args[1], writer);
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length >= 3 && args[0].equals("--format")) {
+            // solve every file given, writing each solution as moves or a line of JSON
+            try {
+                writer = new SolutionWriter(System.out, SolutionWriter.formatOf(args[1]));
+                for (int i = 2; i < args.length; i++) {
+                    ChessConfig start = new ChessConfig(args[i]);
+                    ChessPruner pruner = new ChessPruner();
+                    Solver solver = pruner.isDead(start) ? new Solver(start, pruner) : new Solver(start);
+                    solver.solveAndWrite(args[i], writer);
+                }
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Unknown format: " + args[1]);
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length == 3 && args[0].equals("--replay")) {
+            // rebuild the boards of a solution written as moves
+            try {
+                ChessConfig start = new ChessConfig(args[1]);
+                List<Long> moves = MoveList.parse(Files.readString(Path.of(args[2])));
+                writer.writeSteps(MoveList.replay(start, moves));
+                writer.flush();
+            } catch (IllegalArgumentException ex) {
+                System.out.println(ex.getMessage());
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length == 3 && args[0].equals("--trace")) {
+            // record every expansion for TraceSummary to sum up
+            try (SearchTrace trace = new SearchTrace(Path.of(args[1]))) {
+                ChessConfig start = new ChessConfig(args[2]);
+                System.out.println(start.toString());
+                Solver solver = new Solver(start);
+                solver.setTrace(trace);
+                solver.solveAndPrint();
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length >= 2 && args[0].equals("--estimate")) {
+            // guess the cost of each search, then run it to check the guess
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    ChessConfig start = new ChessConfig(args[i]);
+                    CostEstimator.Estimate estimate = new CostEstimator(start).estimate();
+                    Solver solver = new Solver(start);
+                    long begin = System.nanoTime();
+                    solver.solve();
+                    double millis = (System.nanoTime() - begin) / 1e6;
+                    System.out.println("File: " + args[i]);
+                    System.out.println(estimate.compare(solver.getTotalConfig(), millis));
+                }
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length == 4 && args[0].equals("--admit")
+                && isAdmitLimits(args[1], args[2])) {
+            // search in full only if the guess is cheap enough, greedily if it is not too dear
+            try {
+                ChessConfig start = new ChessConfig(args[3]);
+                System.out.println(start.toString());
+                CostEstimator.Estimate estimate = new CostEstimator(start).estimate();
+                System.out.println(estimate);
+                switch (estimate.decide(Double.parseDouble(args[1]), Double.parseDouble(args[2]))) {
+                    case SOLVE -> new Solver(start).solveAndPrint();
+                    case APPROXIMATE -> {
+                        HeuristicSearch search = new HeuristicSearch(start, HeuristicSearch.MOBILITY);
+                        search.print(search.greedy());
+                    }
+                    case REJECT -> System.out.println("Rejected: too dear to search");
+                }
+            } catch (IOException ex) {
+                System.err.println("IOException");
+            }
+        } else if (args.length != 1) {
             System.out.println("Usage: java Chess filename");
+            System.out.println("       java Chess --prune filename");
+            System.out.println("       java Chess --count filename...");
+            System.out.println("       java Chess --checkpoint|--resume checkpointfile filename");
+            System.out.println("       java Chess --beam width filename");
+            System.out.println("       java Chess --greedy filename");
+            System.out.println("       java Chess --dfs filename");
+            System.out.println("       java Chess --format moves|json|boards filename...");
+            System.out.println("       java Chess --format moves|json|boards --dfs|--greedy|--beam args...");
+            System.out.println("       java Chess --replay filename solutionfile");
+            System.out.println("       java Chess --trace tracefile filename");
+            System.out.println("       java Chess --estimate filename...");
+            System.out.println("       java Chess --admit solvemillis approximatemillis filename");
         } else {
             try {
                 String filename = args[0];
                 ChessConfig start = new ChessConfig(filename);
                 System.out.println(start.toString());
-                Solver solver = new Solver(start);
+                // a start the capture graph rules out is answered without searching
+                ChessPruner pruner = new ChessPruner();
+                Solver solver = pruner.isDead(start) ? new Solver(start, pruner) : new Solver(start);
                 solver.solveAndPrint();
             } catch (IOException ex) {
                 System.err.println("IOException");
             }
         }
     }
+
+    /**
+     * Print the start of a search whose solution is written as boards,
+     * leaving the moves and JSON to the writer alone
+     * @param start the start
+     * @param format how the solution is written
+     */
+    private static void printStart(ChessConfig start, SolutionWriter.Format format) {
+        if (format == SolutionWriter.Format.BOARDS) {
+            System.out.println(start.toString());
+        }
+    }
+
+    /**
+     * Check the limits given to --admit, before any puzzle is loaded or estimated
+     * @param solve the most milliseconds a full search may take
+     * @param approximate the most milliseconds before a search is turned down
+     * @return true if both are numbers of milliseconds and the first is no more than the second
+     */
+    private static boolean isAdmitLimits(String solve, String approximate) {
+        String millis = "\\d{1,9}(\\.\\d+)?";
+        return solve.matches(millis) && approximate.matches(millis)
+                && Double.parseDouble(solve) <= Double.parseDouble(approximate);
+    }
 }
@@ -1,7 +1,11 @@
 package puzzles.clock;
 
+import puzzles.common.solver.DistanceOracle;
 import puzzles.common.solver.Solver;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Clock {
     private int hours;
     private int start;
@@ -21,11 +25,16 @@ public class Clock {
 
     /**
      * Create a Clock puzzle and call the solve function
-     * @param args the args used to create the Clock puzzle (hours start stop)
+     * @param args the args used to create the Clock puzzle (hours start stop [--bfs]),
+     *             --bfs searches the hours instead of walking straight to the goal,
+     *             or (--oracle tablefile hours stop start...) to answer every start from one table
      */
     public static void main(String[] args) {
-        if (args.length < 2) {
-            System.out.println(("Usage: java Clock start stop"));
+        if (args.length > 0 && args[0].equals("--oracle")) {
+            oracle(args);
+        } else if (args.length < 3) {
+            System.out.println(("Usage: java Clock hours start stop [--bfs]"));
+            System.out.println(("       java Clock --oracle tablefile hours stop start..."));
         } else {
             int hours = Integer.parseInt(args[0]);
             int start = Integer.parseInt(args[1]);
@@ -35,7 +44,32 @@ public class Clock {
             ClockConfig goalConfig = new ClockConfig(hours, end, end);
             System.out.println("Hours: " + hours + ", Start: " + start + ", End: " + end);
             Solver solve = new Solver(startConfig);
+            solve.setDecompose(!(args.length > 3 && args[3].equals("--bfs")));
             solve.solveAndPrint();
         }
     }
+
+    /**
+     * Answer many starts of one clock and goal from a table of the distance
+     * of every hour to the goal, built and saved the first time
+     * @param args --oracle tablefile hours stop start...
+     */
+    private static void oracle(String[] args) {
+        if (args.length < 5) {
+            System.out.println(("Usage: java Clock --oracle tablefile hours stop start..."));
+            return;
+        }
+        int hours = Integer.parseInt(args[2]);
+        int end = Integer.parseInt(args[3]);
+        try {
+            DistanceOracle oracle = DistanceOracle.loadOrBuild(Path.of(args[1]), new ClockConfig(hours, end, end));
+            for (int i = 4; i < args.length; i++) {
+                int start = Integer.parseInt(args[i]);
+                System.out.println("Hours: " + hours + ", Start: " + start + ", End: " + end);
+                oracle.printPath(new ClockConfig(hours, start, end));
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
 }
@@ -1,11 +1,13 @@
 package puzzles.clock;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.CyclicProduct;
+import puzzles.common.solver.IndexedConfiguration;
 
 import java.util.ArrayList;
 import java.util.Collection;
 
-public class ClockConfig implements Configuration {
+public class ClockConfig implements CyclicProduct, IndexedConfiguration {
     /** The current node for the config */
     private int hours;
     private int current;
@@ -59,6 +61,82 @@ public class ClockConfig implements Configuration {
         return neighbors;
     }
 
+    /**
+     * A clock is a single cycle of its hours
+     * @return 1
+     */
+    @Override
+    public int getDimensions() {
+        return 1;
+    }
+
+    @Override
+    public int getCycleLength(int dimension) {
+        return hours;
+    }
+
+    /**
+     * Positions count from 0, so hour 1 is position 0
+     * @param dimension the dimension, always 0
+     * @return the current hour - 1
+     */
+    @Override
+    public int getPosition(int dimension) {
+        return current - 1;
+    }
+
+    @Override
+    public int getGoal(int dimension) {
+        return end >= 1 && end <= hours ? end - 1 : -1;
+    }
+
+    @Override
+    public CyclicProduct withPosition(int dimension, int position) {
+        return new ClockConfig(hours, position + 1, end);
+    }
+
+    /**
+     * Every hour of the clock is a state
+     * @return the number of hours
+     */
+    @Override
+    public long getStateCount() {
+        return hours;
+    }
+
+    @Override
+    public int getIndex() {
+        return current - 1;
+    }
+
+    @Override
+    public IndexedConfiguration fromIndex(int index) {
+        return new ClockConfig(hours, index + 1, end);
+    }
+
+    @Override
+    public int getMaxNeighbors() {
+        return 2;
+    }
+
+    /**
+     * The hour back and the hour forward, wrapping around
+     * @param index the index of the hour
+     * @param neighbors filled with the index back then the index forward
+     * @return 2
+     */
+    @Override
+    public int getNeighborIndices(int index, int[] neighbors) {
+        neighbors[0] = index == 0 ? hours - 1 : index - 1;
+        neighbors[1] = index == hours - 1 ? 0 : index + 1;
+        return 2;
+    }
+
+    @Override
+    public boolean isSolutionIndex(int index) {
+        return index == end - 1;
+    }
+
     @Override
     public boolean equals(Object other) {
         boolean result = false;
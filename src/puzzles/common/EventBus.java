@@ -0,0 +1,116 @@
+package puzzles.common;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tells the observers of a model about its events. An observer either hears
+ * of every event at once on the thread that made it, as the text UIs need
+ * to print every message in order, or is told later through an executor,
+ * such as the JavaFX thread's.
+ *
+ * An observer told through an executor only ever has one delivery waiting.
+ * Events that arrive before it runs replace the one waiting, so a burst of
+ * moves is drawn once, with the board after the last of them, and the model
+ * never waits for an observer to draw.
+ *
+ * @param <Subject> the type of the model
+ */
+public class EventBus<Subject> {
+    private final Subject subject;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * An observer and how it is told
+     */
+    private class Subscription {
+        private final Observer<Subject, ModelEvent> observer;
+        /** the executor the observer is told through, or null to tell it at once */
+        private final Executor executor;
+        /** the latest event the observer hasn't been told of yet */
+        private final AtomicReference<ModelEvent> pending = new AtomicReference<>();
+        /** whether a delivery has been handed to the executor and not finished */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * @param observer the observer
+         * @param executor how it is told, or null for at once
+         */
+        private Subscription(Observer<Subject, ModelEvent> observer, Executor executor) {
+            this.observer = observer;
+            this.executor = executor;
+        }
+
+        /**
+         * Tell the observer of an event, at once or by replacing the one waiting
+         * @param event the event
+         */
+        private void offer(ModelEvent event) {
+            if (executor == null) {
+                observer.update(subject, event);
+                return;
+            }
+            pending.set(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        /**
+         * Tell the observer of the event waiting, on the executor's thread,
+         * and hand over another delivery if an event came in meanwhile
+         */
+        private void deliver() {
+            try {
+                ModelEvent event = pending.getAndSet(null);
+                if (event != null) {
+                    observer.update(subject, event);
+                }
+            } finally {
+                scheduled.set(false);
+                if (pending.get() != null && scheduled.compareAndSet(false, true)) {
+                    executor.execute(this::deliver);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a bus with no observers
+     * @param subject the model the events are of
+     */
+    public EventBus(Subject subject) {
+        this.subject = subject;
+    }
+
+    /**
+     * Tell an observer of every event at once, on the thread that made it
+     * @param observer the observer
+     */
+    public void subscribe(Observer<Subject, ModelEvent> observer) {
+        subscriptions.add(new Subscription(observer, null));
+    }
+
+    /**
+     * Tell an observer of events through an executor, skipping any that are
+     * replaced by a later one before the observer gets to run
+     * @param observer the observer
+     * @param executor runs the observer, like Platform::runLater for a JavaFX view
+     */
+    public void subscribe(Observer<Subject, ModelEvent> observer, Executor executor) {
+        subscriptions.add(new Subscription(observer, executor));
+    }
+
+    /**
+     * Tell every observer of an event
+     * @param event the event
+     */
+    public void publish(ModelEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+}
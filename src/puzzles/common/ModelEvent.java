@@ -0,0 +1,169 @@
+package puzzles.common;
+
+import java.util.List;
+
+/**
+ * Something that happened to a puzzle model, with a copy of the board as it
+ * was right after. The board is a copy so an observer told later, on
+ * another thread, still draws the board the event was about.
+ *
+ * The message is only formatted the first time it is asked for, so events
+ * no observer reads the message of cost no formatting.
+ *
+ * Whether the board can still be solved, and which moves of the selected
+ * piece keep it solvable, can take a while to work out, so they are not
+ * known when an event is first published. The model works them out in the
+ * background and publishes a labelled copy of the event once they are.
+ */
+public class ModelEvent {
+    /**
+     * What kind of thing happened
+     */
+    public enum Kind {
+        /** a file was loaded */
+        LOADED,
+        /** a file could not be loaded */
+        LOAD_FAILED,
+        /** a piece was selected, or the selection was refused */
+        SELECTED,
+        /** the player made a move */
+        MOVED,
+        /** the player tried a move that isn't allowed */
+        INVALID_MOVE,
+        /** a hint made the next move of a solution */
+        HINT,
+        /** a hint found nothing to do */
+        NO_HINT,
+        /** a move was taken back */
+        UNDONE,
+        /** a move was made again */
+        REDONE,
+        /** there was nothing to undo or redo */
+        NOTHING_TO_DO,
+        /** every move was taken back */
+        RESET
+    }
+
+    private final Kind kind;
+    private final char[][] board;
+    private final String format;
+    private final Object[] args;
+    private String message;
+    /** true once the labels below are known */
+    private final boolean labelled;
+    private final boolean solvable;
+    private final List<Coordinates> winningTargets;
+
+    /**
+     * Create an event
+     * @param kind what happened
+     * @param board a copy of the board right after, which nobody changes later
+     * @param format the message, as a {@link String#format} format if there are args
+     * @param args the values put into the format
+     */
+    public ModelEvent(Kind kind, char[][] board, String format, Object... args) {
+        this(kind, board, false, true, List.of(), format, args);
+    }
+
+    /**
+     * Create an event with or without its labels
+     * @param kind what happened
+     * @param board a copy of the board right after
+     * @param labelled true if the labels are known
+     * @param solvable true if the board can still be solved
+     * @param winningTargets the cells the selected piece can move to and keep the board solvable
+     * @param format the message
+     * @param args the values put into the format
+     */
+    private ModelEvent(Kind kind, char[][] board, boolean labelled, boolean solvable,
+                       List<Coordinates> winningTargets, String format, Object... args) {
+        this.kind = kind;
+        this.board = board;
+        this.labelled = labelled;
+        this.solvable = solvable;
+        this.winningTargets = winningTargets;
+        this.format = format;
+        this.args = args;
+    }
+
+    /**
+     * Make a copy of this event with its labels, for publishing once they are worked out
+     * @param solvable true if the board can still be solved
+     * @param winningTargets the cells the selected piece can move to and keep the board solvable,
+     *                       empty if nothing is selected
+     * @return the labelled event, with the same kind, board and message
+     */
+    public ModelEvent withLabels(boolean solvable, List<Coordinates> winningTargets) {
+        return new ModelEvent(kind, board, true, solvable, List.copyOf(winningTargets), format, args);
+    }
+
+    /**
+     * Check whether the labels of this event are known
+     * @return true if this is the labelled copy of an event
+     */
+    public boolean isLabelled() {
+        return labelled;
+    }
+
+    /**
+     * Getter for whether the board can still be solved
+     * @return false only if the event is labelled and the board can't be solved
+     */
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Getter for the winning moves of the selected piece
+     * @return the cells the selected piece can move to and keep the board solvable,
+     *         empty if nothing is selected or the event is not labelled
+     */
+    public List<Coordinates> getWinningTargets() {
+        return winningTargets;
+    }
+
+    /**
+     * Getter for the kind
+     * @return what happened
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Getter for the board
+     * @return the cells of the board right after the event, which must not be changed
+     */
+    public char[][] getBoard() {
+        return board;
+    }
+
+    /**
+     * Get the message shown to the player, formatting it the first time
+     * @return the message
+     */
+    public synchronized String getMessage() {
+        if (message == null) {
+            message = args.length == 0 ? format : String.format(format, args);
+        }
+        return message;
+    }
+
+    /**
+     * Copy a board so the copy can go in an event
+     * @param grid the cells of the board
+     * @return a copy of the cells
+     */
+    public static char[][] copy(char[][] grid) {
+        char[][] copy = new char[grid.length][];
+        for (int r = 0; r < grid.length; r++) {
+            copy[r] = grid[r].clone();
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ": " + getMessage();
+    }
+}
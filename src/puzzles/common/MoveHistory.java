@@ -0,0 +1,147 @@
+package puzzles.common;
+
+import java.util.Arrays;
+
+/**
+ * An undo and redo history of moves, each packed into one long: the row
+ * and column moved from, the row and column moved to, and 16 bits the
+ * puzzle can use for anything else it needs to revert the move, such as
+ * the piece captured. Memory grows with the number of moves, not the
+ * size of the board.
+ *
+ * Moves before the position have been made and can be undone, moves from
+ * the position on were undone and can be redone. Recording a new move
+ * drops the moves that could be redone.
+ */
+public class MoveHistory {
+    /** bits for each row or column */
+    private final static int COORD_BITS = 12;
+    private final static int COORD_MASK = (1 << COORD_BITS) - 1;
+    private final static int EXTRA_MASK = 0xFFFF;
+
+    private long[] moves = new long[16];
+    /** the number of moves recorded */
+    private int size;
+    /** the number of moves made, the rest were undone */
+    private int position;
+
+    /**
+     * Create an empty history
+     */
+    public MoveHistory() {
+    }
+
+    /**
+     * Pack a move into one long
+     * @param fromRow the row moved from
+     * @param fromCol the column moved from
+     * @param toRow the row moved to
+     * @param toCol the column moved to
+     * @param extra anything else needed to revert the move, 16 bits
+     * @return the packed move
+     */
+    public static long encode(int fromRow, int fromCol, int toRow, int toCol, int extra) {
+        return ((long) fromRow << (3 * COORD_BITS + 16))
+                | ((long) fromCol << (2 * COORD_BITS + 16))
+                | ((long) toRow << (COORD_BITS + 16))
+                | ((long) toCol << 16)
+                | (extra & EXTRA_MASK);
+    }
+
+    /**
+     * @param move a packed move
+     * @return the row moved from
+     */
+    public static int fromRow(long move) {
+        return (int) (move >>> (3 * COORD_BITS + 16)) & COORD_MASK;
+    }
+
+    /**
+     * @param move a packed move
+     * @return the column moved from
+     */
+    public static int fromCol(long move) {
+        return (int) (move >>> (2 * COORD_BITS + 16)) & COORD_MASK;
+    }
+
+    /**
+     * @param move a packed move
+     * @return the row moved to
+     */
+    public static int toRow(long move) {
+        return (int) (move >>> (COORD_BITS + 16)) & COORD_MASK;
+    }
+
+    /**
+     * @param move a packed move
+     * @return the column moved to
+     */
+    public static int toCol(long move) {
+        return (int) (move >>> 16) & COORD_MASK;
+    }
+
+    /**
+     * @param move a packed move
+     * @return the extra 16 bits of the move
+     */
+    public static int extra(long move) {
+        return (int) move & EXTRA_MASK;
+    }
+
+    /**
+     * Record a move that was just made, dropping any moves that could be redone
+     * @param move the packed move
+     */
+    public void record(long move) {
+        if (position == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        }
+        moves[position++] = move;
+        size = position;
+    }
+
+    /**
+     * @return true if there is a move to undo
+     */
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    /**
+     * @return true if there is a move to redo
+     */
+    public boolean canRedo() {
+        return position < size;
+    }
+
+    /**
+     * Step back over the last move made. The caller reverts it.
+     * @return the move to revert
+     */
+    public long undo() {
+        return moves[--position];
+    }
+
+    /**
+     * Step forward over the next move undone. The caller makes it again.
+     * @return the move to make
+     */
+    public long redo() {
+        return moves[position++];
+    }
+
+    /**
+     * Forget every move
+     */
+    public void clear() {
+        size = 0;
+        position = 0;
+    }
+
+    /**
+     * @return the number of moves made and not undone
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,251 @@
+package puzzles.common.gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import puzzles.common.Coordinates;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A puzzle board drawn on a canvas. The canvas remembers the cells it is
+ * showing, so drawing a new grid only repaints the cells that changed.
+ * Images are loaded once and shared by every board that uses them.
+ */
+public class BoardCanvas extends Canvas {
+    /** the outline drawn around highlighted cells */
+    private final static Color HIGHLIGHT = Color.LIMEGREEN;
+    private final static double HIGHLIGHT_WIDTH = 4;
+    /** every image loaded so far, by resource name */
+    private final static Map<String, Image> IMAGES = new HashMap<>();
+
+    /**
+     * Gives the background color of a cell, drawn under its image
+     */
+    public interface CellColor {
+        /**
+         * @param row the row of the cell
+         * @param col the column of the cell
+         * @return the color to fill the cell with, or null for none
+         */
+        Color colorOf(int row, int col);
+    }
+
+    private final int cellSize;
+    /** the image drawn for each cell character, none if missing */
+    private final Map<Character, Image> images = new HashMap<>();
+    private final CellColor colors;
+    /** the cells on the canvas right now, null before the first draw */
+    private char[][] shown;
+    /** the cells outlined, null when none are */
+    private boolean[][] highlighted;
+    private AnimationTimer player;
+
+    /**
+     * Create an empty board
+     * @param cellSize the width and height of each cell
+     * @param colors the background color of each cell
+     */
+    public BoardCanvas(int cellSize, CellColor colors) {
+        this.cellSize = cellSize;
+        this.colors = colors;
+    }
+
+    /**
+     * Load an image from the resources of a class, or reuse it if it was
+     * loaded before
+     * @param owner the class whose resources hold the image
+     * @param name the resource name, relative to the class
+     * @return the image
+     */
+    public static Image loadImage(Class<?> owner, String name) {
+        String key = owner.getPackageName() + "/" + name;
+        synchronized (IMAGES) {
+            Image image = IMAGES.get(key);
+            if (image == null) {
+                image = new Image(Objects.requireNonNull(owner.getResourceAsStream(name)));
+                IMAGES.put(key, image);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Choose the image drawn for a cell character
+     * @param cell the cell character
+     * @param image the image to draw on those cells
+     */
+    public void setImage(char cell, Image image) {
+        images.put(cell, image);
+        shown = null;
+    }
+
+    /**
+     * Call an action with the row and column of each cell clicked
+     * @param action the action to call
+     */
+    public void setOnCellClicked(BiConsumer<Integer, Integer> action) {
+        setOnMouseClicked(e -> {
+            int row = (int) (e.getY() / cellSize);
+            int col = (int) (e.getX() / cellSize);
+            if (player == null && shown != null && row < shown.length && col < shown[0].length) {
+                action.accept(row, col);
+            }
+        });
+    }
+
+    /**
+     * Show a grid. The whole board is painted if its size changed,
+     * otherwise only the cells that differ from the ones shown.
+     * @param grid the grid to show, which is copied
+     * @return the number of cells painted
+     */
+    public int draw(char[][] grid) {
+        int rows = grid.length;
+        int cols = rows == 0 ? 0 : grid[0].length;
+        if (shown == null || shown.length != rows || (rows > 0 && shown[0].length != cols)) {
+            setWidth(cols * cellSize);
+            setHeight(rows * cellSize);
+            shown = new char[rows][cols];
+            highlighted = null;
+            for (int r = 0; r < rows; r++) {
+                shown[r] = grid[r].clone();
+                for (int c = 0; c < cols; c++) {
+                    paintCell(r, c);
+                }
+            }
+            return rows * cols;
+        }
+        int painted = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (shown[r][c] != grid[r][c]) {
+                    shown[r][c] = grid[r][c];
+                    paintCell(r, c);
+                    painted++;
+                }
+            }
+        }
+        return painted;
+    }
+
+    /**
+     * Paint one cell as it is shown
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    private void paintCell(int row, int col) {
+        GraphicsContext g = getGraphicsContext2D();
+        double x = col * cellSize;
+        double y = row * cellSize;
+        g.clearRect(x, y, cellSize, cellSize);
+        Color color = colors == null ? null : colors.colorOf(row, col);
+        if (color != null) {
+            g.setFill(color);
+            g.fillRect(x, y, cellSize, cellSize);
+        }
+        Image image = images.get(shown[row][col]);
+        if (image != null) {
+            g.drawImage(image, x, y, cellSize, cellSize);
+        }
+        if (highlighted != null && highlighted[row][col]) {
+            g.setStroke(HIGHLIGHT);
+            g.setLineWidth(HIGHLIGHT_WIDTH);
+            g.strokeRect(x + HIGHLIGHT_WIDTH / 2, y + HIGHLIGHT_WIDTH / 2,
+                    cellSize - HIGHLIGHT_WIDTH, cellSize - HIGHLIGHT_WIDTH);
+        }
+    }
+
+    /**
+     * Outline some cells, and no others, repainting only the cells whose
+     * outline changed. Cells off the board are ignored.
+     * @param cells the cells to outline, empty to clear every outline
+     */
+    public void highlight(Collection<Coordinates> cells) {
+        if (shown == null) {
+            return;
+        }
+        boolean[][] old = highlighted;
+        highlighted = new boolean[shown.length][shown.length == 0 ? 0 : shown[0].length];
+        for (Coordinates cell : cells) {
+            if (cell.row() >= 0 && cell.row() < shown.length && cell.col() >= 0 && cell.col() < shown[0].length) {
+                highlighted[cell.row()][cell.col()] = true;
+            }
+        }
+        for (int r = 0; r < shown.length; r++) {
+            for (int c = 0; c < shown[r].length; c++) {
+                if (highlighted[r][c] != (old != null && old[r][c])) {
+                    paintCell(r, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Play a sequence of grids at a steady rate. Frames are picked by the
+     * time since playback started, so a slow frame never slows the ones
+     * after it. Clicks are ignored while playing.
+     * @param frames the grids to show in order
+     * @param framesPerSecond how many grids to show each second
+     * @param done called once the last grid is shown, may be null
+     */
+    public void play(List<char[][]> frames, double framesPerSecond, Runnable done) {
+        stop();
+        if (frames.isEmpty()) {
+            if (done != null) {
+                done.run();
+            }
+            return;
+        }
+        long period = (long) (1_000_000_000L / framesPerSecond);
+        player = new AnimationTimer() {
+            private long start = -1;
+            private int frame = -1;
+
+            @Override
+            public void handle(long now) {
+                if (start < 0) {
+                    start = now;
+                }
+                int due = (int) Math.min(frames.size() - 1, (now - start) / period);
+                if (due != frame) {
+                    frame = due;
+                    draw(frames.get(frame));
+                }
+                if (frame == frames.size() - 1) {
+                    stop();
+                    player = null;
+                    if (done != null) {
+                        done.run();
+                    }
+                }
+            }
+        };
+        player.start();
+    }
+
+    /**
+     * Stop playback, leaving the current frame on the board
+     */
+    public void stop() {
+        if (player != null) {
+            player.stop();
+            player = null;
+        }
+    }
+
+    /**
+     * Is a sequence of grids being played?
+     * @return true while playing
+     */
+    public boolean isPlaying() {
+        return player != null;
+    }
+}
@@ -0,0 +1,176 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Depth first search that remembers visited configs in a fixed size bit
+ * table, a Bloom filter, instead of storing them. Each config sets the
+ * bits picked by a few hash functions of its fingerprint, and a config
+ * whose bits are all set already is taken as visited. Memory stays at the
+ * size of the table however many configs are seen.
+ *
+ * The price is that an unvisited config whose bits happen to be set is
+ * skipped along with everything only reachable through it. Each time a
+ * config is stored the search adds the chance that a new config would have
+ * been skipped at that point, and the sum estimates how many configs it
+ * wrongly skipped.
+ *
+ * Parents are only kept along the current path, which is the stack, so
+ * the path found is a solution but not always the shortest one, and
+ * "no solution" only means none was found.
+ */
+public class BitstateSearch {
+    private final Configuration start;
+    private final long[] table;
+    /** one less than the number of bits in the table, to pick a bit */
+    private final long mask;
+    private final int hashes;
+    private final Fingerprint fingerprint;
+    private long totalConfig;
+    private long storedConfig;
+    private long bitsSet;
+    private double expectedOmitted;
+
+    /**
+     * Create a search
+     * @param start the starting config
+     * @param logBits the table holds 2^logBits bits, from 6 to 36
+     * @param hashes the number of hash functions, at least 1
+     * @param fingerprint makes the fingerprint each hash function starts from
+     */
+    public BitstateSearch(Configuration start, int logBits, int hashes, Fingerprint fingerprint) {
+        if (logBits < 6 || logBits > 36 || hashes < 1) {
+            throw new IllegalArgumentException("Need 6 to 36 bits and at least one hash function");
+        }
+        this.start = start;
+        this.table = new long[1 << (logBits - 6)];
+        this.mask = (1L << logBits) - 1;
+        this.hashes = hashes;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Set the bits of a config, unless they are all set already
+     * @param config the config
+     * @return true if the config was new, false if it counts as visited
+     */
+    private boolean store(Configuration config) {
+        long print = fingerprint.of(config);
+        // double hashing, each hash function steps a different amount from the first
+        long h1 = print;
+        long h2 = Fingerprint.mix(print) | 1;
+
+        // the chance this config is skipped though new, with the table as full as it is
+        double fill = (double) bitsSet / (mask + 1);
+        double omission = 1;
+        for (int i = 0; i < hashes; i++) {
+            omission *= fill;
+        }
+
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int word = (int) (bit >>> 6);
+            long flag = 1L << bit;
+            if ((table[word] & flag) == 0) {
+                table[word] |= flag;
+                bitsSet++;
+                added = true;
+            }
+        }
+        if (added) {
+            storedConfig++;
+            expectedOmitted += omission;
+        }
+        return added;
+    }
+
+    /**
+     * Search for a solution
+     * @return the path from the start to a solution, or an empty list if none was found
+     */
+    public List<Configuration> solve() {
+        totalConfig = 1;
+        store(start);
+        Deque<Configuration> path = new ArrayDeque<>();
+        Deque<Iterator<Configuration>> children = new ArrayDeque<>();
+        path.addLast(start);
+        if (start.isSolution()) {
+            return new LinkedList<>(path);
+        }
+        children.addLast(start.getNeighbors().iterator());
+        while (!children.isEmpty()) {
+            Iterator<Configuration> next = children.peekLast();
+            if (!next.hasNext()) {
+                children.removeLast();
+                path.removeLast();
+                continue;
+            }
+            Configuration child = next.next();
+            totalConfig++;
+            if (store(child)) {
+                path.addLast(child);
+                if (child.isSolution()) {
+                    return new LinkedList<>(path);
+                }
+                children.addLast(child.getNeighbors().iterator());
+            }
+        }
+        return new LinkedList<>();
+    }
+
+    /**
+     * The chance that a new config checked now would be skipped
+     * @return the fraction of set bits to the power of the hash count
+     */
+    public double getOmissionProbability() {
+        return Math.pow((double) bitsSet / (mask + 1), hashes);
+    }
+
+    /**
+     * The expected number of configs skipped though never visited, summed
+     * over every config stored
+     * @return the expected number of omitted configs
+     */
+    public double getExpectedOmitted() {
+        return expectedOmitted;
+    }
+
+    /**
+     * Search and print the counts and every board of the path, through one buffer
+     */
+    public void solveAndPrint() {
+        try {
+            solveAndWrite(null, new SolutionWriter(System.out, SolutionWriter.Format.BOARDS));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Search and write the counts and the path in the writer's format
+     * @param name the name of the puzzle, or null to leave it out
+     * @param writer where to write, which is flushed after
+     * @throws IOException if the writer can't write
+     */
+    public void solveAndWrite(String name, SolutionWriter writer) throws IOException {
+        List<Configuration> path = solve();
+        writer.begin(name);
+        writer.writeCount("Table bits", mask + 1);
+        writer.writeCount("Hash functions", hashes);
+        writer.writeCount("Total configs", totalConfig);
+        writer.writeCount("Stored configs", storedConfig);
+        writer.writeCount("Bits set", bitsSet);
+        writer.writeCount("Omission probability", String.format("%.3g", getOmissionProbability()));
+        writer.writeCount("Expected omitted configs", String.format("%.3g", expectedOmitted));
+        // no solution only means none was found, as some configs may have been skipped
+        writer.writePath(path, "No solution found.");
+        writer.flush();
+    }
+}
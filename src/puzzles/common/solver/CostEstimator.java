@@ -0,0 +1,242 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Guesses what a breadth first search from a config will cost before it is
+ * run, so a caller can turn it down, settle for an approximate search, or
+ * put it off. The top of the search is run for real until it has made a few
+ * thousand configs, so small searches are answered exactly. Below that comes
+ * Knuth's estimator: a probe walks down from a random config of the frontier
+ * taking a random neighbor at each step, and the product of the branching
+ * factors it saw is a fair guess at the configs generated at each depth.
+ *
+ * That guess is of the search tree, which on these puzzles is far bigger
+ * than the search, since many move orders reach the same config. So each
+ * depth only keeps the share of its configs that is new, and that share
+ * shrinks depth by depth as it did over the last depths searched for real.
+ * The search stops at the first solution, so depths below the shallowest
+ * solution a probe found are not counted.
+ *
+ * The time is the guess times what each config cost the real part of the
+ * search, which is run once to warm up and then again to be timed, so the
+ * cost is near what a solver run after the estimate pays per config. It is
+ * still a measurement: the configs are the same each time for the same
+ * start and seed, but the time changes from run to run and machine to
+ * machine, and so can a decision made on it near its limits.
+ */
+public class CostEstimator {
+    /** the probes made when not told otherwise */
+    public final static int DEFAULT_PROBES = 1000;
+    /** configs the exact search at the top of the tree may generate */
+    private final static long PREFIX_CONFIGS = 10_000;
+
+    /**
+     * What to do with a search given its estimate
+     */
+    public enum Decision {
+        /** cheap enough to search in full */
+        SOLVE,
+        /** too dear to search in full, but worth a greedy or beam search */
+        APPROXIMATE,
+        /** too dear to do anything with */
+        REJECT
+    }
+
+    /**
+     * A guess at the cost of a search
+     * @param configs the configs the search should generate, as Solver's total configs
+     * @param millis the milliseconds the search should take
+     * @param probes the probes the guess is made of, 0 if the search was run in full and the guess is exact
+     * @param solutionDepth the depth of the shallowest solution found, -1 if none was
+     */
+    public record Estimate(double configs, double millis, int probes, int solutionDepth) {
+        /**
+         * Decide what to do with the search
+         * @param solveMillis the most milliseconds a full search may take
+         * @param approximateMillis the most milliseconds before the search is turned down,
+         *                          each config of which would cost an approximate search little
+         * @return solve it if it takes at most solveMillis, approximate it if at most
+         *         approximateMillis, and reject it otherwise
+         */
+        public Decision decide(double solveMillis, double approximateMillis) {
+            if (millis <= solveMillis) {
+                return Decision.SOLVE;
+            }
+            return millis <= approximateMillis ? Decision.APPROXIMATE : Decision.REJECT;
+        }
+
+        /**
+         * Describe the guess next to what the search really cost, to check it
+         * @param actualConfigs the configs the search generated
+         * @param actualMillis the milliseconds it took
+         * @return both, and the guess over the real count
+         */
+        public String compare(long actualConfigs, double actualMillis) {
+            return String.format("Estimated configs: %.0f (%.0f ms), actual: %d (%.0f ms), ratio %.2f",
+                    configs, millis, actualConfigs, actualMillis, configs / Math.max(1, actualConfigs));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Estimated configs: %.0f (%.0f ms)", configs, millis);
+        }
+    }
+
+    private final Configuration start;
+    private final SplittableRandom random;
+
+    /**
+     * Create an estimator with a fixed seed, so the same start gets the same guess of configs
+     * @param start the config the search starts from
+     */
+    public CostEstimator(Configuration start) {
+        this(start, 0);
+    }
+
+    /**
+     * Create an estimator
+     * @param start the config the search starts from
+     * @param seed the seed of the random probes
+     */
+    public CostEstimator(Configuration start, long seed) {
+        this.start = start;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Guess the cost of a breadth first search from the start with the default number of probes
+     * @return the guess
+     */
+    public Estimate estimate() {
+        return estimate(DEFAULT_PROBES);
+    }
+
+    /**
+     * Guess the cost of a breadth first search from the start, ignoring any pruner
+     * @param probes the random walks to average below the part searched for real
+     * @return the guess
+     */
+    public Estimate estimate(int probes) {
+        probes = Math.max(1, probes);
+        // the first depths are searched for real, the same way the solver would, so they are exact;
+        // the first pass only warms up the code, so the timed pass costs what a warm solver would
+        prefix();
+        long begin = System.nanoTime();
+        Prefix prefix = prefix();
+        double nanosPerConfig = (System.nanoTime() - begin) / (double) Math.max(1, prefix.made);
+        double configs = prefix.configs;
+        if (prefix.solutionDepth >= 0) {
+            return new Estimate(configs, configs * nanosPerConfig / 1e6, 0, prefix.solutionDepth);
+        }
+        if (prefix.level.isEmpty()) {
+            return new Estimate(configs, configs * nanosPerConfig / 1e6, 0, -1);
+        }
+        List<Configuration> level = prefix.level;
+        int depth = prefix.depth;
+        double newFraction = prefix.newFraction;
+        double lastFraction = prefix.lastFraction;
+
+        // tree[k] sums each probe's guess at the configs generated k + 1 depths below a frontier config
+        double[] tree = new double[16];
+        int deepest = 0;
+        int solutionDepth = -1;
+        for (int p = 0; p < probes; p++) {
+            Configuration config = level.get(random.nextInt(level.size()));
+            double weight = 1;
+            for (int k = 0; ; k++) {
+                if (config.isSolution()) {
+                    if (solutionDepth < 0 || k < solutionDepth) {
+                        solutionDepth = k;
+                    }
+                    break;
+                }
+                List<Configuration> children = new ArrayList<>(config.getNeighbors());
+                if (children.isEmpty()) {
+                    break;
+                }
+                weight *= children.size();
+                if (k == tree.length) {
+                    tree = Arrays.copyOf(tree, 2 * tree.length);
+                }
+                tree[k] += weight;
+                deepest = Math.max(deepest, k + 1);
+                config = children.get(random.nextInt(children.size()));
+            }
+        }
+
+        // walk the tree's branching factors down from the frontier, keeping only the share
+        // of each depth that is new, which shrinks as it did over the last searched depths
+        int last = solutionDepth < 0 ? deepest : Math.min(deepest, solutionDepth);
+        double shrink = lastFraction == 0 ? 1 : Math.min(1, newFraction / lastFraction);
+        double unique = level.size();
+        double previous = probes;
+        for (int k = 0; k < last; k++) {
+            double generated = unique * tree[k] / previous;
+            configs += generated;
+            newFraction *= shrink;
+            unique = generated * newFraction;
+            previous = tree[k];
+        }
+        return new Estimate(configs, configs * nanosPerConfig / 1e6, probes,
+                solutionDepth < 0 ? -1 : depth + solutionDepth);
+    }
+
+    /**
+     * The part of the search run for real
+     * @param level the configs of the deepest depth reached, not yet expanded
+     * @param made the configs generated
+     * @param configs the configs counted as Solver counts them
+     * @param depth the depth of the level
+     * @param newFraction the share of the configs generated at the last depth that were new
+     * @param lastFraction that share at the depth before
+     * @param solutionDepth the depth of the solution found, -1 if none was
+     */
+    private record Prefix(List<Configuration> level, long made, double configs, int depth,
+                          double newFraction, double lastFraction, int solutionDepth) {
+    }
+
+    /**
+     * Search the top of the tree breadth first until it has made a few thousand configs
+     * @return where the search got to
+     */
+    private Prefix prefix() {
+        Set<Configuration> seen = new HashSet<>();
+        List<Configuration> level = new ArrayList<>();
+        level.add(start);
+        seen.add(start);
+        long made = 0;
+        double configs = 1;
+        int depth = 0;
+        double newFraction = 1;
+        double lastFraction = 1;
+        while (!level.isEmpty() && made < PREFIX_CONFIGS) {
+            List<Configuration> next = new ArrayList<>();
+            long generated = 0;
+            for (Configuration config : level) {
+                if (config.isSolution()) {
+                    return new Prefix(level, made + generated, configs + generated, depth,
+                            newFraction, lastFraction, depth);
+                }
+                for (Configuration child : config.getNeighbors()) {
+                    generated++;
+                    if (seen.add(child)) {
+                        next.add(child);
+                    }
+                }
+            }
+            made += generated;
+            configs += generated;
+            lastFraction = newFraction;
+            newFraction = generated == 0 ? 1 : (double) next.size() / generated;
+            level = next;
+            depth++;
+        }
+        return new Prefix(level, made, configs, depth, newFraction, lastFraction, -1);
+    }
+}
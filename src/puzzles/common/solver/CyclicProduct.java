@@ -0,0 +1,49 @@
+package puzzles.common.solver;
+
+/**
+ * A configuration that is a product of independent cycles. Each dimension
+ * has a position on a cycle of its own length, every move steps one
+ * dimension forwards or backwards by one, and the goal is a position in
+ * each dimension. Each dimension can then be solved on its own.
+ */
+public interface CyclicProduct extends Configuration {
+    /**
+     * Get the number of independent dimensions
+     *
+     * @return the number of dimensions
+     */
+    int getDimensions();
+
+    /**
+     * Get the number of positions on the cycle of a dimension
+     *
+     * @param dimension the dimension
+     * @return the length of its cycle
+     */
+    int getCycleLength(int dimension);
+
+    /**
+     * Get the current position in a dimension
+     *
+     * @param dimension the dimension
+     * @return the position, from 0 to the cycle length - 1
+     */
+    int getPosition(int dimension);
+
+    /**
+     * Get the goal position in a dimension
+     *
+     * @param dimension the dimension
+     * @return the goal position, or -1 if the goal is not on the cycle
+     */
+    int getGoal(int dimension);
+
+    /**
+     * Make the config with one dimension moved to a new position
+     *
+     * @param dimension the dimension to move
+     * @param position the new position in that dimension
+     * @return the new config
+     */
+    CyclicProduct withPosition(int dimension, int position);
+}
@@ -0,0 +1,309 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The distance to the goal of every state of an indexed puzzle, for
+ * answering many starts with the same goal. One breadth first search out
+ * from the goals labels each state with its distance and the move that
+ * takes it one step closer. Any start then gets a shortest path by
+ * following those moves, in time the length of the path, with no search.
+ *
+ * The search runs backwards from the goals over the neighbors, so it is
+ * only right for puzzles where every move can be undone by a move, like
+ * the clock and strings puzzles.
+ *
+ * The tables can be saved and are read back by memory mapping the file,
+ * so a saved oracle answers straight away without loading the tables.
+ *
+ * File layout, little endian: a 32 byte header of int magic, short version,
+ * short 0, long state count, int most neighbors, int first goal, long
+ * reachable states; then an int distance per state, -1 if it can't reach a
+ * goal; then a byte per state, the neighbor to move to.
+ */
+public class DistanceOracle {
+    private final static int MAGIC = 0x4C43524F;
+    private final static short VERSION = 1;
+    private final static int HEADER_BYTES = 32;
+
+    private final IndexedConfiguration space;
+    private final int states;
+    private final int goal;
+    private final long reachable;
+    /** the distance to the closest goal of each state, -1 if there is none */
+    private final IntBuffer distances;
+    /** the position in the neighbor list of the neighbor one step closer */
+    private final ByteBuffer moves;
+
+    /**
+     * Create an oracle from its tables
+     * @param space any config of the puzzle
+     * @param goal the index of the first goal, or -1 if there is none
+     * @param reachable the number of states that can reach a goal
+     * @param distances the distance of each state
+     * @param moves the move of each state
+     */
+    private DistanceOracle(IndexedConfiguration space, int goal, long reachable,
+                           IntBuffer distances, ByteBuffer moves) {
+        this.space = space;
+        this.states = (int) space.getStateCount();
+        this.goal = goal;
+        this.reachable = reachable;
+        this.distances = distances;
+        this.moves = moves;
+    }
+
+    /**
+     * Search out from every goal of a puzzle and build the tables
+     * @param space any config of the puzzle
+     * @return the oracle
+     */
+    public static DistanceOracle build(IndexedConfiguration space) {
+        int states = checkSize(space);
+        int[] distance = new int[states];
+        byte[] move = new byte[states];
+        int[] queue = new int[states];
+        int[] neighbors = new int[space.getMaxNeighbors()];
+        int[] back = new int[space.getMaxNeighbors()];
+        int head = 0;
+        int tail = 0;
+        int goal = -1;
+        for (int i = 0; i < states; i++) {
+            distance[i] = -1;
+            if (space.isSolutionIndex(i)) {
+                if (goal == -1) {
+                    goal = i;
+                }
+                distance[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int current = queue[head++];
+            int count = space.getNeighborIndices(current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+                if (distance[neighbor] == -1) {
+                    distance[neighbor] = distance[current] + 1;
+                    move[neighbor] = (byte) slotOf(space, neighbor, current, back);
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return new DistanceOracle(space, goal, tail, IntBuffer.wrap(distance), ByteBuffer.wrap(move));
+    }
+
+    /**
+     * Find which neighbor of a state another state is
+     * @param space any config of the puzzle
+     * @param from the state
+     * @param to its neighbor
+     * @param neighbors an array to hold the neighbors of the state
+     * @return the position of the neighbor in the neighbor list
+     */
+    private static int slotOf(IndexedConfiguration space, int from, int to, int[] neighbors) {
+        int count = space.getNeighborIndices(from, neighbors);
+        for (int i = 0; i < count; i++) {
+            if (neighbors[i] == to) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Move from " + to + " to " + from + " can't be undone");
+    }
+
+    /**
+     * Check a puzzle is small enough for the tables to be kept and mapped
+     * @param space any config of the puzzle
+     * @return the number of states
+     */
+    private static int checkSize(IndexedConfiguration space) {
+        long states = space.getStateCount();
+        if (states <= 0 || states > (Integer.MAX_VALUE - HEADER_BYTES) / 4) {
+            throw new IllegalArgumentException("Can't build an oracle for " + states + " states");
+        }
+        if (space.getMaxNeighbors() > 256) {
+            throw new IllegalArgumentException("Can't store a move out of " + space.getMaxNeighbors());
+        }
+        return (int) states;
+    }
+
+    /**
+     * Get the number of moves from a state to the closest goal
+     * @param config the state
+     * @return the number of moves, or -1 if no goal can be reached
+     * @throws IllegalArgumentException if the state is not of this puzzle
+     */
+    public int distance(IndexedConfiguration config) {
+        return distances.get(indexOf(config));
+    }
+
+    /**
+     * Get the index of a state, checking it is of a puzzle this size
+     * @param config the state
+     * @return its index
+     * @throws IllegalArgumentException if the puzzle is another size or the state is not one of its states
+     */
+    private int indexOf(IndexedConfiguration config) {
+        if (config.getStateCount() != states) {
+            throw new IllegalArgumentException(config + " is not in a puzzle of " + states + " states");
+        }
+        int index = config.getIndex();
+        if (index < 0 || index >= states) {
+            throw new IllegalArgumentException(config + " is not one of the " + states + " states");
+        }
+        return index;
+    }
+
+    /**
+     * Get a shortest path from a state to a goal by following the moves
+     * @param config the starting state, of the same puzzle and goal
+     * @return the path from the start to a goal, or an empty list if there is none
+     * @throws IllegalArgumentException if the state is not of this puzzle
+     */
+    public List<Configuration> path(IndexedConfiguration config) {
+        List<Configuration> path = new LinkedList<>();
+        int index = indexOf(config);
+        if (distances.get(index) == -1) {
+            return path;
+        }
+        int[] neighbors = new int[space.getMaxNeighbors()];
+        path.add(config);
+        while (distances.get(index) > 0) {
+            space.getNeighborIndices(index, neighbors);
+            index = neighbors[moves.get(index) & 0xFF];
+            path.add(config.fromIndex(index));
+        }
+        return path;
+    }
+
+    /**
+     * @return the number of states that can reach a goal
+     */
+    public long getReachable() {
+        return reachable;
+    }
+
+    /**
+     * Save the tables, replacing any file already there. The file is
+     * written through a temporary file so a run killed while writing
+     * leaves no half written oracle behind.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + 5L * states);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            map.putInt(MAGIC);
+            map.putShort(VERSION);
+            map.putShort((short) 0);
+            map.putLong(states);
+            map.putInt(space.getMaxNeighbors());
+            map.putInt(goal);
+            map.putLong(reachable);
+            for (int i = 0; i < states; i++) {
+                map.putInt(distances.get(i));
+            }
+            for (int i = 0; i < states; i++) {
+                map.put(moves.get(i));
+            }
+            map.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map saved tables, checking they are for the puzzle and goal given
+     * @param file the file to read
+     * @param space any config of the puzzle the tables were built for
+     * @return the oracle
+     * @throws IOException if the file can't be read or is for another puzzle or goal
+     */
+    public static DistanceOracle load(Path file, IndexedConfiguration space) throws IOException {
+        int states = checkSize(space);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + 5L * states) {
+                throw new IOException(file + " is not an oracle of " + states + " states");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt() != MAGIC || map.getShort() != VERSION) {
+                throw new IOException(file + " is not an oracle");
+            }
+            map.getShort();
+            long count = map.getLong();
+            int maxNeighbors = map.getInt();
+            int goal = map.getInt();
+            long reachable = map.getLong();
+            if (count != states || maxNeighbors != space.getMaxNeighbors()
+                    || (goal != -1 && !space.isSolutionIndex(goal))) {
+                throw new IOException(file + " is an oracle of another puzzle or goal");
+            }
+            IntBuffer distances = map.slice(HEADER_BYTES, 4 * states)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ByteBuffer moves = map.slice(HEADER_BYTES + 4 * states, states);
+            // the mapping stays valid after the channel is closed
+            return new DistanceOracle(space, goal, reachable, distances, moves);
+        }
+    }
+
+    /**
+     * Load the oracle saved in a file, or build and save it if there is no file
+     * @param file the file of the tables
+     * @param space any config of the puzzle
+     * @return the oracle
+     * @throws IOException if the file can't be read or written
+     */
+    public static DistanceOracle loadOrBuild(Path file, IndexedConfiguration space) throws IOException {
+        if (Files.exists(file)) {
+            return load(file, space);
+        }
+        DistanceOracle oracle = build(space);
+        oracle.save(file);
+        return oracle;
+    }
+
+    /**
+     * Print every board of the path from a start like the solver does, through one buffer
+     * @param start the starting state
+     * @throws IllegalArgumentException if the state is not of this puzzle
+     */
+    public void printPath(IndexedConfiguration start) {
+        try {
+            writePath(null, start, new SolutionWriter(System.out, SolutionWriter.Format.BOARDS));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Write the path from a start in the writer's format, with no counts as
+     * nothing is searched
+     * @param name the name of the puzzle, or null to leave it out
+     * @param start the starting state
+     * @param writer where to write, which is flushed after
+     * @throws IOException if the writer can't write
+     * @throws IllegalArgumentException if the state is not of this puzzle
+     */
+    public void writePath(String name, IndexedConfiguration start, SolutionWriter writer) throws IOException {
+        List<Configuration> path = path(start);
+        writer.begin(name);
+        writer.writePath(path);
+        writer.flush();
+    }
+}
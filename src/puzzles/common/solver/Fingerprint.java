@@ -0,0 +1,48 @@
+package puzzles.common.solver;
+
+/**
+ * Turns a config into a 64 bit fingerprint for hashing it into a bit table.
+ * Two equal configs must have the same fingerprint; different configs
+ * should rarely share one.
+ */
+public interface Fingerprint {
+    /**
+     * Fingerprint of the config's hashCode, spread over 64 bits. Configs
+     * whose hash codes collide always share a fingerprint.
+     */
+    Fingerprint HASH_CODE = config -> mix(config.hashCode());
+
+    /**
+     * Fingerprint of every packed word of a {@link PackedConfiguration},
+     * which tells apart far more configs than a 32 bit hash code.
+     */
+    Fingerprint PACKED = config -> {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (long word : ((PackedConfiguration) config).pack()) {
+            hash = mix(hash ^ word);
+        }
+        return hash;
+    };
+
+    /**
+     * Make the fingerprint of a config
+     * @param config the config
+     * @return its fingerprint
+     */
+    long of(Configuration config);
+
+    /**
+     * Scramble the bits of a long so nearby values end up far apart,
+     * the finalizer of MurmurHash3
+     * @param value the value to scramble
+     * @return the scrambled value
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
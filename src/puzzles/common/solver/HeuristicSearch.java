@@ -0,0 +1,253 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Searches that find some solution fast instead of the closest one, by
+ * expanding the configs a score says look best first. In chess and hoppers
+ * every solution takes the same number of moves, so any solution gives a
+ * good hint.
+ *
+ * Beam search keeps only the best few configs of each layer, so it is fast
+ * but can miss every solution. Greedy best-first search always expands the
+ * deepest config seen so far, the best scored one among equally deep
+ * configs, and finds a solution if there is one.
+ */
+public class HeuristicSearch {
+    /**
+     * Scores how promising a config looks, higher is better
+     */
+    public interface Scorer {
+        /**
+         * @param config the config to score
+         * @return the score, higher for configs more likely to lead to a solution
+         */
+        double score(Configuration config);
+    }
+
+    /**
+     * Scores a config by its number of moves. A config with more moves
+     * left is less likely to be stuck, and one with none is stuck for sure.
+     */
+    public final static Scorer MOBILITY = config -> config.getNeighbors().size();
+
+    private final Configuration start;
+    private final Scorer scorer;
+    private long totalConfig;
+    private long uniqueConfig;
+
+    /**
+     * Create a search
+     * @param start the starting config
+     * @param scorer the score that picks which configs to expand
+     */
+    public HeuristicSearch(Configuration start, Scorer scorer) {
+        this.start = start;
+        this.scorer = scorer;
+    }
+
+    /**
+     * Search layer by layer, keeping only the best scored configs of each
+     * layer
+     * @param width the most configs kept in a layer
+     * @return the path to a solution, or an empty list if the beam found none
+     * @throws IllegalArgumentException if the width is less than 1
+     */
+    public List<Configuration> beam(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Beam width must be at least 1");
+        }
+        Map<Configuration, Configuration> parents = new HashMap<>();
+        parents.put(start, null);
+        totalConfig = 1;
+        uniqueConfig = 1;
+        if (start.isSolution()) {
+            return path(parents, start);
+        }
+        List<Configuration> layer = new ArrayList<>();
+        layer.add(start);
+        while (!layer.isEmpty()) {
+            List<Configuration> candidates = new ArrayList<>();
+            for (Configuration current : layer) {
+                for (Configuration neighbor : current.getNeighbors()) {
+                    totalConfig++;
+                    if (!parents.containsKey(neighbor)) {
+                        parents.put(neighbor, current);
+                        uniqueConfig++;
+                        if (neighbor.isSolution()) {
+                            return path(parents, neighbor);
+                        }
+                        candidates.add(neighbor);
+                    }
+                }
+            }
+            layer = best(candidates, width, parents);
+        }
+        return new LinkedList<>();
+    }
+
+    /**
+     * Keep the best scored configs of a layer, dropping the rest from the
+     * parents so they take no memory. Equal scores keep the order they
+     * were found in.
+     * @param candidates the new configs of the layer
+     * @param width the most configs to keep
+     * @param parents the parents, from which dropped configs are removed
+     * @return the configs kept
+     */
+    private List<Configuration> best(List<Configuration> candidates, int width,
+                                     Map<Configuration, Configuration> parents) {
+        if (candidates.size() <= width) {
+            return candidates;
+        }
+        double[] scores = new double[candidates.size()];
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            scores[i] = scorer.score(candidates.get(i));
+            order.add(i);
+        }
+        order.sort((a, b) -> Double.compare(scores[b], scores[a]));
+        List<Configuration> kept = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            Configuration config = candidates.get(order.get(i));
+            if (i < width) {
+                kept.add(config);
+            } else {
+                parents.remove(config);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Always expand the deepest config seen so far, the best scored one
+     * among equally deep configs. Scores usually fall as pieces leave the
+     * board, so going by score alone would keep going back to shallow
+     * configs. Every config is expanded in the end, so this finds a
+     * solution if there is one.
+     * @return the path to a solution, or an empty list if there is none
+     */
+    public List<Configuration> greedy() {
+        Map<Configuration, Configuration> parents = new HashMap<>();
+        parents.put(start, null);
+        totalConfig = 1;
+        uniqueConfig = 1;
+        if (start.isSolution()) {
+            return path(parents, start);
+        }
+        // ties go to the config found first
+        PriorityQueue<Scored> open = new PriorityQueue<>();
+        long found = 0;
+        open.add(new Scored(start, 0, scorer.score(start), found++));
+        while (!open.isEmpty()) {
+            Scored best = open.poll();
+            Configuration current = best.config;
+            for (Configuration neighbor : current.getNeighbors()) {
+                totalConfig++;
+                if (!parents.containsKey(neighbor)) {
+                    parents.put(neighbor, current);
+                    uniqueConfig++;
+                    if (neighbor.isSolution()) {
+                        return path(parents, neighbor);
+                    }
+                    open.add(new Scored(neighbor, best.depth + 1, scorer.score(neighbor), found++));
+                }
+            }
+        }
+        return new LinkedList<>();
+    }
+
+    /**
+     * Try a beam search, and if it finds nothing fall back to the greedy
+     * search, which is complete
+     * @param width the most configs kept in a layer of the beam
+     * @return the path to a solution, or an empty list if there is none
+     * @throws IllegalArgumentException if the width is less than 1
+     */
+    public List<Configuration> solve(int width) {
+        List<Configuration> path = beam(width);
+        if (path.isEmpty()) {
+            path = greedy();
+        }
+        return path;
+    }
+
+    /**
+     * Follow the parents back from a config to the start
+     * @param parents the parent of every config kept
+     * @param end the last config of the path
+     * @return the path from the start to the config
+     */
+    private static List<Configuration> path(Map<Configuration, Configuration> parents, Configuration end) {
+        List<Configuration> path = new LinkedList<>();
+        for (Configuration config = end; config != null; config = parents.get(config)) {
+            path.add(0, config);
+        }
+        return path;
+    }
+
+    /**
+     * Getter for the configs generated by the last beam or greedy search
+     * @return the number of configs generated
+     */
+    public long getTotalConfig() {
+        return totalConfig;
+    }
+
+    /**
+     * Getter for the distinct configs kept by the last beam or greedy search
+     * @return the number of distinct configs
+     */
+    public long getUniqueConfig() {
+        return uniqueConfig;
+    }
+
+    /**
+     * Print the counts and every board of a path like the solver does, through one buffer
+     * @param path the path found
+     */
+    public void print(List<Configuration> path) {
+        try {
+            write(null, path, new SolutionWriter(System.out, SolutionWriter.Format.BOARDS));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Write the counts and a path in the writer's format
+     * @param name the name of the puzzle, or null to leave it out
+     * @param path the path found
+     * @param writer where to write, which is flushed after
+     * @throws IOException if the writer can't write
+     */
+    public void write(String name, List<Configuration> path, SolutionWriter writer) throws IOException {
+        writer.write(name, totalConfig, uniqueConfig, path);
+        writer.flush();
+    }
+
+    /**
+     * A config with its depth and score, ordered deepest and then best first
+     * @param config the config
+     * @param depth the moves from the start to it
+     * @param score its score
+     * @param found the order it was found in, to break ties
+     */
+    private record Scored(Configuration config, int depth, double score, long found) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored other) {
+            int result = Integer.compare(other.depth, depth);
+            if (result == 0) {
+                result = Double.compare(other.score, score);
+            }
+            return result != 0 ? result : Long.compare(found, other.found);
+        }
+    }
+}
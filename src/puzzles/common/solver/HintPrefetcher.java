@@ -0,0 +1,48 @@
+package puzzles.common.solver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Works out what a view will want to know about the config a player just
+ * reached, such as whether it can still be solved, on a low priority
+ * background thread, so the thread the player clicks on never waits for it.
+ * Prefetching for another config cancels the work on the old one, since
+ * only the latest config is shown.
+ */
+public class HintPrefetcher {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hint-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    /** the work in progress, null if there is none */
+    private Future<?> task;
+
+    /**
+     * Create a prefetcher with its own background thread, started on its first work
+     */
+    public HintPrefetcher() {
+    }
+
+    /**
+     * Start some work in the background, dropping any earlier work
+     * @param work the work, which must only read copies of the model's state
+     */
+    public synchronized void prefetch(Runnable work) {
+        cancel();
+        task = executor.submit(work);
+    }
+
+    /**
+     * Drop the work in progress, if any
+     */
+    public synchronized void cancel() {
+        if (task != null) {
+            task.cancel(true);
+        }
+        task = null;
+    }
+}
@@ -0,0 +1,56 @@
+package puzzles.common.solver;
+
+/**
+ * A configuration whose whole state space can be numbered densely from 0.
+ * The solver can then search over the numbers alone, marking visited states
+ * in a bit set and keeping parents in an int array, without making a config
+ * object for every state.
+ */
+public interface IndexedConfiguration extends Configuration {
+    /**
+     * Get the number of states in the space
+     *
+     * @return the number of states, or -1 if this config can't be numbered
+     */
+    long getStateCount();
+
+    /**
+     * Get the number of this config
+     *
+     * @return the index, from 0 to the state count - 1
+     */
+    int getIndex();
+
+    /**
+     * Make the config with a number, in the same space as this one
+     *
+     * @param index the number of the config
+     * @return the config
+     */
+    IndexedConfiguration fromIndex(int index);
+
+    /**
+     * Get the most neighbors any state has
+     *
+     * @return the size of the array to give {@link #getNeighborIndices(int, int[])}
+     */
+    int getMaxNeighbors();
+
+    /**
+     * Get the numbers of the neighbors of a state, in the same order as
+     * {@link #getNeighbors()}
+     *
+     * @param index the number of the state
+     * @param neighbors the array to fill with the numbers of its neighbors
+     * @return the number of neighbors written
+     */
+    int getNeighborIndices(int index, int[] neighbors);
+
+    /**
+     * Is a state a solution?
+     *
+     * @param index the number of the state
+     * @return true if the state is a goal
+     */
+    boolean isSolutionIndex(int index);
+}
@@ -0,0 +1,27 @@
+package puzzles.common.solver;
+
+import puzzles.common.MoveHistory;
+
+/**
+ * A configuration on a grid whose moves take a piece from one cell to
+ * another, so a solution can be written as a list of moves and the boards
+ * rebuilt from the list later. Moves are packed with
+ * {@link MoveHistory#encode(int, int, int, int, int)}.
+ */
+public interface MoveConfiguration extends Configuration {
+    /**
+     * Find the move that turns this config into one of its neighbors
+     *
+     * @param next a neighbor of this config
+     * @return the packed move
+     */
+    long findMove(Configuration next);
+
+    /**
+     * Make a move on a copy of this config, checking it is legal first
+     *
+     * @param move the packed move, whose extra bits are ignored
+     * @return the config after the move, or null if the move is not legal here
+     */
+    Configuration afterMove(long move);
+}
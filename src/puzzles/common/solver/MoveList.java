@@ -0,0 +1,95 @@
+package puzzles.common.solver;
+
+import puzzles.common.MoveHistory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A solution written as the moves between its configs, (r,c)->(r,c) for
+ * each step, instead of every board along the way. The boards can be
+ * rebuilt from the start config and the moves whenever they are wanted.
+ */
+public class MoveList {
+    /** a move as written, with any spaces allowed between the numbers */
+    private final static Pattern MOVE =
+            Pattern.compile("\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*\\)\\s*->\\s*\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*\\)");
+
+    /**
+     * Only static methods, so no MoveLists are made
+     */
+    private MoveList() {
+    }
+
+    /**
+     * Write a packed move as text
+     * @param move the packed move
+     * @return the move as (r,c)->(r,c)
+     */
+    public static String format(long move) {
+        return "(" + MoveHistory.fromRow(move) + "," + MoveHistory.fromCol(move) + ")->("
+                + MoveHistory.toRow(move) + "," + MoveHistory.toCol(move) + ")";
+    }
+
+    /**
+     * Find the moves between each config of a path and the next
+     * @param path the configs from the start to a solution
+     * @return the packed moves, one fewer than the configs
+     */
+    public static List<Long> of(List<Configuration> path) {
+        List<Long> moves = new ArrayList<>();
+        Iterator<Configuration> configs = path.iterator();
+        if (!configs.hasNext()) {
+            return moves;
+        }
+        Configuration previous = configs.next();
+        while (configs.hasNext()) {
+            Configuration next = configs.next();
+            moves.add(((MoveConfiguration) previous).findMove(next));
+            previous = next;
+        }
+        return moves;
+    }
+
+    /**
+     * Read every move written in some text, ignoring everything else, so the
+     * move list and JSON outputs can both be read back
+     * @param text the text
+     * @return the packed moves in the order written
+     */
+    public static List<Long> parse(String text) {
+        List<Long> moves = new ArrayList<>();
+        Matcher matcher = MOVE.matcher(text);
+        while (matcher.find()) {
+            moves.add(MoveHistory.encode(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)), 0));
+        }
+        return moves;
+    }
+
+    /**
+     * Rebuild the configs of a solution by making its moves from the start
+     * @param start the starting config
+     * @param moves the packed moves
+     * @return the configs from the start on, one more than the moves
+     * @throws IllegalArgumentException if a move is not legal where it is made
+     */
+    public static List<Configuration> replay(MoveConfiguration start, List<Long> moves) {
+        List<Configuration> path = new ArrayList<>();
+        path.add(start);
+        Configuration current = start;
+        for (int step = 0; step < moves.size(); step++) {
+            Configuration next = ((MoveConfiguration) current).afterMove(moves.get(step));
+            if (next == null) {
+                throw new IllegalArgumentException("Move " + (step + 1) + " " + format(moves.get(step))
+                        + " is not legal");
+            }
+            path.add(next);
+            current = next;
+        }
+        return path;
+    }
+}
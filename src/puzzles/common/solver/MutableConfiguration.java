@@ -0,0 +1,41 @@
+package puzzles.common.solver;
+
+/**
+ * A configuration that can make and take back moves on itself instead of
+ * making a new config for every neighbor. Moves are plain ints that only
+ * the config that generated them knows how to read. A depth first search
+ * can then walk the whole tree on one board, allocating nothing per config.
+ */
+public interface MutableConfiguration extends PackedConfiguration {
+    /**
+     * Get the most moves any config of this board can have
+     *
+     * @return the room {@link #generateMoves(int[], int)} may need
+     */
+    int getMaxMoves();
+
+    /**
+     * Write the moves of this config into an array, in the same order as
+     * {@link #getNeighbors()} makes the neighbors
+     *
+     * @param moves the array to write into
+     * @param offset where in the array to start writing
+     * @return the number of moves written
+     */
+    int generateMoves(int[] moves, int offset);
+
+    /**
+     * Make a move generated from this config, changing this config
+     *
+     * @param move the move
+     */
+    void applyMove(int move);
+
+    /**
+     * Take back the last move made, leaving this config exactly as it was
+     * before it
+     *
+     * @param move the move, as given to {@link #applyMove(int)}
+     */
+    void undoMove(int move);
+}
@@ -0,0 +1,34 @@
+package puzzles.common.solver;
+
+/**
+ * A configuration whose whole state can be written into a fixed number of
+ * longs and rebuilt from them again. The packed words are what the memo
+ * tables, corpora and checkpoints key on instead of the config objects.
+ */
+public interface PackedConfiguration extends Configuration {
+    /**
+     * Pack the state of this config into a fixed-width array of longs.
+     * Two configs with the same geometry are equal exactly when their
+     * packed words are equal.
+     *
+     * @return the packed state
+     */
+    long[] pack();
+
+    /**
+     * Pack the state of this config into an array that is already there
+     *
+     * @param words where the packed state goes, as long as {@link #pack()} makes
+     */
+    default void pack(long[] words) {
+        System.arraycopy(pack(), 0, words, 0, words.length);
+    }
+
+    /**
+     * Rebuild a config with the same geometry as this one from packed words.
+     *
+     * @param words the words made by {@link #pack()}
+     * @return the config the words describe
+     */
+    PackedConfiguration unpack(long[] words);
+}
@@ -0,0 +1,144 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+
+/**
+ * A hash key made from the packed words of a configuration.
+ * It also holds the helpers that pack a grid of cells into words using a
+ * fixed number of bits per cell.
+ */
+public final class PackedKey {
+    private final long[] words;
+    private final int hash;
+
+    /**
+     * Create a key around packed words. The array is not copied.
+     *
+     * @param words the packed words
+     */
+    public PackedKey(long[] words) {
+        this.words = words;
+        this.hash = Arrays.hashCode(words);
+    }
+
+    /**
+     * Create the key of a config
+     *
+     * @param config the config to key
+     * @return the key of its packed state
+     */
+    public static PackedKey of(PackedConfiguration config) {
+        return new PackedKey(config.pack());
+    }
+
+    /**
+     * Getter for the packed words
+     *
+     * @return the packed words of this key
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * Number of longs needed for a grid
+     *
+     * @param cells the number of cells in the grid
+     * @param bits bits used per cell
+     * @return the number of longs that hold all the cells
+     */
+    public static int wordCount(int cells, int bits) {
+        int perWord = 64 / bits;
+        return (cells + perWord - 1) / perWord;
+    }
+
+    /**
+     * Pack a grid into longs, each cell written as the index of its
+     * character in the alphabet.
+     *
+     * @param grid the grid to pack
+     * @param alphabet the characters a cell can hold, in code order
+     * @param bits bits used per cell
+     * @return the packed words
+     * @throws IllegalArgumentException if a cell holds a character not in the alphabet
+     */
+    public static long[] pack(char[][] grid, String alphabet, int bits) {
+        int rows = grid.length;
+        int cols = rows == 0 ? 0 : grid[0].length;
+        long[] words = new long[wordCount(rows * cols, bits)];
+        pack(grid, alphabet, bits, words);
+        return words;
+    }
+
+    /**
+     * Pack a grid into longs that are already there, so a search that packs
+     * every config it reaches need not allocate for each one
+     *
+     * @param grid the grid to pack
+     * @param alphabet the characters a cell can hold, in code order
+     * @param bits bits used per cell
+     * @param words where the packed words go, as long as {@link #pack(char[][], String, int)} makes
+     * @throws IllegalArgumentException if a cell holds a character not in the alphabet
+     */
+    public static void pack(char[][] grid, String alphabet, int bits, long[] words) {
+        int rows = grid.length;
+        int perWord = 64 / bits;
+        Arrays.fill(words, 0);
+        int cell = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                long code = alphabet.indexOf(grid[r][c]);
+                if (code < 0) {
+                    // -1 would set every bit of the word above this cell
+                    throw new IllegalArgumentException("Cell (" + r + "," + c + ") holds '" + grid[r][c]
+                            + "', which is not one of \"" + alphabet + "\"");
+                }
+                words[cell / perWord] |= code << ((cell % perWord) * bits);
+                cell++;
+            }
+        }
+    }
+
+    /**
+     * Unpack longs made by {@link #pack(char[][], String, int)} into a grid
+     *
+     * @param words the packed words
+     * @param rows rows of the grid
+     * @param cols columns of the grid
+     * @param alphabet the characters a cell can hold, in code order
+     * @param bits bits used per cell
+     * @return the unpacked grid
+     */
+    public static char[][] unpack(long[] words, int rows, int cols, String alphabet, int bits) {
+        int perWord = 64 / bits;
+        long mask = (1L << bits) - 1;
+        char[][] grid = new char[rows][cols];
+        int cell = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int code = (int) ((words[cell / perWord] >>> ((cell % perWord) * bits)) & mask);
+                grid[r][c] = alphabet.charAt(code);
+                cell++;
+            }
+        }
+        return grid;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof PackedKey o) {
+            return hash == o.hash && Arrays.equals(words, o.words);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(words);
+    }
+}
@@ -0,0 +1,16 @@
+package puzzles.common.solver;
+
+/**
+ * Decides that a configuration can never lead to a solution, so a search
+ * does not need to expand it. A pruner must never reject a config that has
+ * a solution below it.
+ */
+public interface Pruner {
+    /**
+     * Is the config provably unsolvable?
+     *
+     * @param config the config to check
+     * @return true if no solution can be reached from the config
+     */
+    boolean isDead(Configuration config);
+}
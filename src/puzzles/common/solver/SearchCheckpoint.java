@@ -0,0 +1,235 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of a breadth first search saved to disk, so a search that is
+ * stopped can carry on where it left off.
+ *
+ * The file is a header, then every visited config with its parent, then the
+ * queue in order. Configs are stored as their packed words, little endian.
+ * The start config is stored as its own parent. A checkpoint is written to
+ * a temporary file and moved over the old one, so a run killed while
+ * writing still leaves the last whole checkpoint behind.
+ *
+ * Header layout, 40 bytes: int magic, short version, short 0, int words per
+ * config, int 0, long total configs, long visited configs, long queued configs.
+ * The packed start config follows the header, so a checkpoint is only ever
+ * resumed by a search from the same start.
+ */
+public class SearchCheckpoint {
+    private final static int MAGIC = 0x4B504353;
+    private final static short VERSION = 2;
+    private final static int HEADER_BYTES = 40;
+    private final static int BUFFER_BYTES = 1 << 20;
+
+    private final Configuration start;
+    private final int totalConfig;
+    private final Map<Configuration, Configuration> predecessors;
+    private final List<Configuration> queue;
+
+    /**
+     * Create a checkpoint from the state of a search
+     * @param start the config the search started from
+     * @param totalConfig the configs generated so far
+     * @param predecessors the parent of every visited config, null for the start
+     * @param queue the configs still to expand, in order
+     */
+    public SearchCheckpoint(Configuration start, int totalConfig, Map<Configuration, Configuration> predecessors,
+                            List<Configuration> queue) {
+        this.start = start;
+        this.totalConfig = totalConfig;
+        this.predecessors = predecessors;
+        this.queue = queue;
+    }
+
+    /**
+     * @return the configs generated so far
+     */
+    public int getTotalConfig() {
+        return totalConfig;
+    }
+
+    /**
+     * @return the parent of every visited config, null for the start
+     */
+    public Map<Configuration, Configuration> getPredecessors() {
+        return predecessors;
+    }
+
+    /**
+     * @return the configs still to expand, in order
+     */
+    public List<Configuration> getQueue() {
+        return queue;
+    }
+
+    /**
+     * Write the checkpoint, replacing any file already there. Every config
+     * must be a {@link PackedConfiguration} of the same size.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] startWords = ((PackedConfiguration) start).pack();
+        int words = startWords.length;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putShort((short) 0);
+            buffer.putInt(words);
+            buffer.putInt(0);
+            buffer.putLong(totalConfig);
+            buffer.putLong(predecessors.size());
+            buffer.putLong(queue.size());
+            put(channel, buffer, startWords);
+            for (Map.Entry<Configuration, Configuration> entry : predecessors.entrySet()) {
+                Configuration parent = entry.getValue() == null ? entry.getKey() : entry.getValue();
+                put(channel, buffer, ((PackedConfiguration) entry.getKey()).pack());
+                put(channel, buffer, ((PackedConfiguration) parent).pack());
+            }
+            for (Configuration config : queue) {
+                put(channel, buffer, ((PackedConfiguration) config).pack());
+            }
+            flush(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a checkpoint back
+     * @param file the file to read
+     * @param start the config the search starts from, used to unpack the others
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read or is not a checkpoint of a search from this start
+     */
+    public static SearchCheckpoint read(Path file, PackedConfiguration start) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);
+            fill(channel, buffer, HEADER_BYTES);
+            int words = start.pack().length;
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException(file + " is not a search checkpoint");
+            }
+            buffer.getShort();
+            if (buffer.getInt() != words) {
+                throw new IOException("Checkpoint " + file + " is for another puzzle, of a different board size");
+            }
+            buffer.getInt();
+            int total = (int) buffer.getLong();
+            long visited = buffer.getLong();
+            long queued = buffer.getLong();
+            if (buffer.remaining() < words * Long.BYTES) {
+                fill(channel, buffer, words * Long.BYTES);
+            }
+            long[] saved = new long[words];
+            for (int i = 0; i < words; i++) {
+                saved[i] = buffer.getLong();
+            }
+            if (!Arrays.equals(saved, start.pack())) {
+                throw new IOException("Checkpoint " + file + " is for another puzzle, saved from a different start");
+            }
+
+            // one object per config, shared by the map keys, parents and queue
+            Map<PackedKey, Configuration> configs = new HashMap<>();
+            Map<Configuration, Configuration> predecessors = new HashMap<>();
+            for (long i = 0; i < visited; i++) {
+                Configuration config = get(channel, buffer, words, start, configs);
+                Configuration parent = get(channel, buffer, words, start, configs);
+                predecessors.put(config, parent == config ? null : parent);
+            }
+            List<Configuration> queue = new LinkedList<>();
+            for (long i = 0; i < queued; i++) {
+                queue.add(get(channel, buffer, words, start, configs));
+            }
+            return new SearchCheckpoint(start, total, predecessors, queue);
+        }
+    }
+
+    /**
+     * Add packed words to the buffer, writing it out first if it is full
+     * @param channel the file
+     * @param buffer the buffer
+     * @param packed the words to add
+     * @throws IOException if the buffer cannot be written
+     */
+    private static void put(FileChannel channel, ByteBuffer buffer, long[] packed) throws IOException {
+        if (buffer.remaining() < packed.length * Long.BYTES) {
+            flush(channel, buffer);
+        }
+        for (long word : packed) {
+            buffer.putLong(word);
+        }
+    }
+
+    /**
+     * Write out the buffer
+     * @param channel the file
+     * @param buffer the buffer
+     * @throws IOException if the buffer cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Read one config, reusing the object already made for an equal one
+     * @param channel the file
+     * @param buffer the buffer
+     * @param words words per config
+     * @param start any config of the search, used to unpack
+     * @param configs the configs read so far
+     * @return the config
+     * @throws IOException if the file ends early
+     */
+    private static Configuration get(FileChannel channel, ByteBuffer buffer, int words,
+                                     PackedConfiguration start, Map<PackedKey, Configuration> configs)
+            throws IOException {
+        if (buffer.remaining() < words * Long.BYTES) {
+            fill(channel, buffer, words * Long.BYTES);
+        }
+        long[] packed = new long[words];
+        for (int i = 0; i < words; i++) {
+            packed[i] = buffer.getLong();
+        }
+        return configs.computeIfAbsent(new PackedKey(packed), key -> start.unpack(key.getWords()));
+    }
+
+    /**
+     * Read more of the file into the buffer, keeping what was not used yet
+     * @param channel the file
+     * @param buffer the buffer, ready to be read from
+     * @param needed the bytes that must be available afterwards
+     * @throws IOException if the file ends first
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Checkpoint ends early");
+            }
+        }
+        buffer.flip();
+    }
+}
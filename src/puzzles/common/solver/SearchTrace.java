@@ -0,0 +1,192 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every expansion of a breadth first search to a binary file, for
+ * reading back later with {@link TraceSummary}. Configs are not stored,
+ * only numbers: the start is config 0, and every config seen for the first
+ * time gets the next number, so a config's number is the order in which it
+ * was found. Records go into one large buffer that is written out when it
+ * fills, so tracing costs a few stores per config generated.
+ *
+ * The file is little endian: a header of int magic, short version, short 0.
+ * Then for each config expanded: int its number, short its depth, short the
+ * number of configs it generated, followed by one record per config
+ * generated of byte flags and the move as 6 bytes, the row and column
+ * moved from and to at 12 bits each. Repeats are recorded without their
+ * move, since finding it costs about as much as recording everything else
+ * and only new configs are numbered. Last comes int -1 and the number of
+ * the solution found, or -1 if there was none. A trace cut short ends
+ * without that record.
+ */
+public class SearchTrace implements AutoCloseable {
+    final static int MAGIC = 0x54534642;
+    final static short VERSION = 1;
+    /** the config was already seen */
+    final static int DUPLICATE = 1;
+    /** the config is new but the pruner proved it dead, so it is never expanded */
+    final static int DEAD = 2;
+    /** the move could not be found */
+    final static int NO_MOVE = 4;
+    /** the bytes of the largest record, one config generated */
+    private final static int RECORD_BYTES = 8;
+    private final static int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    /** the number and depth of each config waiting to be expanded, packed in a ring in search order */
+    private long[] queue = new long[1 << 10];
+    private int head;
+    private int size;
+    /** the next number to give out */
+    private int nextId;
+    /** the config being expanded */
+    private int currentId;
+    private int currentDepth;
+
+    /**
+     * Create a trace file, replacing any file already there
+     * @param file the file to write
+     * @throws IOException if the file cannot be made
+     */
+    public SearchTrace(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+    }
+
+    /**
+     * Start a search, making the start config number 0 at depth 0
+     */
+    void begin() {
+        head = 0;
+        size = 0;
+        nextId = 1;
+        offer(0, 0);
+    }
+
+    /**
+     * Move on to the next config of the search, in the order configs were queued
+     */
+    void take() {
+        long next = queue[head];
+        head = (head + 1) & (queue.length - 1);
+        size--;
+        currentId = (int) (next >>> 32);
+        currentDepth = (int) next;
+    }
+
+    /**
+     * Record that the current config is being expanded
+     * @param children the number of configs it generated, each to be recorded with {@link #child}
+     */
+    void expand(int children) {
+        room();
+        buffer.putInt(currentId);
+        buffer.putShort((short) currentDepth);
+        buffer.putShort((short) children);
+    }
+
+    /**
+     * Record one config generated by the current config
+     * @param move the move made, as packed by MoveHistory, or -1 if it is not known
+     * @param duplicate true if the config was already seen
+     * @param queued true if the config will be expanded later
+     */
+    void child(long move, boolean duplicate, boolean queued) {
+        int flags = duplicate ? DUPLICATE : queued ? 0 : DEAD;
+        if (move == -1) {
+            flags |= NO_MOVE;
+        }
+        room();
+        buffer.put((byte) flags);
+        long coordinates = move == -1 ? 0 : move >>> 16;
+        buffer.putShort((short) (coordinates >>> 32));
+        buffer.putInt((int) coordinates);
+        if (!duplicate) {
+            int id = nextId++;
+            if (queued) {
+                offer(id, currentDepth + 1);
+            }
+        }
+    }
+
+    /**
+     * Record the end of the search and write out everything buffered
+     * @param solved true if the current config is a solution, false if there was none
+     */
+    void finish(boolean solved) {
+        room();
+        buffer.putInt(-1);
+        buffer.putInt(solved ? currentId : -1);
+        flush();
+    }
+
+    /**
+     * Add a config to the end of the ring, growing it if it is full
+     * @param id the number of the config
+     * @param depth its depth
+     */
+    private void offer(int id, int depth) {
+        if (size == queue.length) {
+            // unroll the ring into one twice the size, so the head is at 0
+            long[] bigger = new long[2 * queue.length];
+            for (int i = 0; i < size; i++) {
+                bigger[i] = queue[(head + i) & (queue.length - 1)];
+            }
+            queue = bigger;
+            head = 0;
+        }
+        queue[(head + size) & (queue.length - 1)] = ((long) id << 32) | depth;
+        size++;
+    }
+
+    /**
+     * Write out the buffer if another record might not fit
+     */
+    private void room() {
+        if (buffer.remaining() < RECORD_BYTES) {
+            flush();
+        }
+    }
+
+    /**
+     * Write out the buffer
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write out anything still buffered and close the file
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,138 @@
+package puzzles.common.solver;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the solutions of a puzzle whose moves always remove a piece, so the
+ * reachable configs form a DAG. The number of solutions from a config is the
+ * sum over its children, which are memoised by packed key, so no path is
+ * ever enumerated.
+ */
+public class SolutionCounter {
+    private final PackedConfiguration start;
+    private final Map<PackedKey, Long> memo = new HashMap<>();
+    private long solutions;
+    private long winning;
+    private long losing;
+
+    /**
+     * Create a counter for a starting config
+     *
+     * @param start the config to count the solutions of
+     */
+    public SolutionCounter(PackedConfiguration start) {
+        this.start = start;
+    }
+
+    /**
+     * Count every solution reachable from the start. Each distinct child
+     * config is one move, so the count is the number of distinct move
+     * sequences that end in a solution.
+     *
+     * @return the number of solutions from the start
+     * @throws ArithmeticException if the count does not fit in a long
+     */
+    public long count() {
+        memo.clear();
+        winning = 0;
+        losing = 0;
+        solutions = count(start, PackedKey.of(start));
+        return solutions;
+    }
+
+    /**
+     * Count the solutions from one config, using the memo table
+     *
+     * @param config the config to count from
+     * @param key the packed key of the config
+     * @return the number of solutions from the config
+     */
+    private long count(PackedConfiguration config, PackedKey key) {
+        Long known = memo.get(key);
+        if (known != null) {
+            return known;
+        }
+        long total = 0;
+        if (config.isSolution()) {
+            total = 1;
+        } else {
+            Set<PackedKey> children = new HashSet<>();
+            for (Configuration neighbor : config.getNeighbors()) {
+                PackedConfiguration child = (PackedConfiguration) neighbor;
+                PackedKey childKey = PackedKey.of(child);
+                if (children.add(childKey)) {
+                    total = Math.addExact(total, count(child, childKey));
+                }
+            }
+        }
+        memo.put(key, total);
+        if (total > 0) {
+            winning++;
+        } else {
+            losing++;
+        }
+        return total;
+    }
+
+    /**
+     * Was the config seen while counting, and can it still reach a solution?
+     *
+     * @param config the config to look up
+     * @return the number of solutions from the config, or -1 if it was not
+     * reached from the start
+     */
+    public long getSolutionsFrom(PackedConfiguration config) {
+        Long known = memo.get(PackedKey.of(config));
+        return known == null ? -1 : known;
+    }
+
+    /**
+     * Getter for the solution count of the last {@link #count()}
+     *
+     * @return the number of solutions from the start
+     */
+    public long getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Getter for the number of reachable configs that lead to a solution
+     *
+     * @return the number of winning configs
+     */
+    public long getWinning() {
+        return winning;
+    }
+
+    /**
+     * Getter for the number of reachable configs that cannot be solved
+     *
+     * @return the number of losing configs
+     */
+    public long getLosing() {
+        return losing;
+    }
+
+    /**
+     * Getter for the number of distinct configs reachable from the start
+     *
+     * @return the number of reachable configs
+     */
+    public long getReachable() {
+        return memo.size();
+    }
+
+    /**
+     * Count the solutions and print the statistics
+     */
+    public void countAndPrint() {
+        count();
+        System.out.println("Solutions: " + solutions);
+        System.out.println("Reachable configs: " + getReachable());
+        System.out.println("Winning configs: " + winning);
+        System.out.println("Losing configs: " + losing);
+    }
+}
@@ -0,0 +1,225 @@
+package puzzles.common.solver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the results of searches through one large buffer, flushed when
+ * asked, instead of a println for every line. A result can be written as
+ * every board of the path, as the list of moves, or as one line of JSON
+ * per puzzle for tools to read. Every search writes through one of these,
+ * so each can be asked for any of the formats.
+ */
+public class SolutionWriter {
+    /** the size of the buffer in chars */
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * How a result is written
+     */
+    public enum Format {
+        /** the counts, then "Step i: " and every board of the path */
+        BOARDS,
+        /** the counts, then one (r,c)->(r,c) line per move */
+        MOVES,
+        /** one JSON object per line holding the counts and the moves */
+        JSON
+    }
+
+    /** a count that can be written into JSON as it is */
+    private final static String JSON_NUMBER = "-?(0|[1-9]\\d*)(\\.\\d+)?([eE][-+]?\\d+)?";
+
+    private final Writer out;
+    private final Format format;
+    /** the JSON line of the result being written, until its path ends it */
+    private StringBuilder json;
+
+    /**
+     * Create a writer. Nothing reaches the stream until the buffer fills or
+     * {@link #flush()} is called.
+     * @param stream where to write
+     * @param format how to write each result
+     */
+    public SolutionWriter(OutputStream stream, Format format) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+    }
+
+    /**
+     * Find the format given on the command line
+     * @param name boards, moves or json
+     * @return the format
+     * @throws IllegalArgumentException if there is no format of that name
+     */
+    public static Format formatOf(String name) {
+        return Format.valueOf(name.toUpperCase());
+    }
+
+    /**
+     * Write the result of one search
+     * @param name the name of the puzzle, such as its file, or null to leave it out
+     * @param totalConfig the configs the search reached
+     * @param uniqueConfig the distinct configs the search reached, or -1 to leave it out
+     * @param path the configs from the start to a solution, empty if there is none
+     * @throws IOException if the stream can't be written
+     */
+    public void write(String name, long totalConfig, long uniqueConfig, List<Configuration> path)
+            throws IOException {
+        begin(name);
+        writeCount("Total configs", totalConfig);
+        if (uniqueConfig >= 0) {
+            writeCount("Unique configs", uniqueConfig);
+        }
+        writePath(path);
+    }
+
+    /**
+     * Start the result of a search whose counts are written one at a time,
+     * ended by {@link #writePath}
+     * @param name the name of the puzzle, such as its file, or null to leave it out
+     * @throws IOException if the stream can't be written
+     */
+    public void begin(String name) throws IOException {
+        if (format == Format.JSON) {
+            json = new StringBuilder("{");
+            if (name != null) {
+                json.append("\"file\":").append(quote(name));
+            }
+        } else if (name != null && format == Format.MOVES) {
+            out.write("File: " + name + "\n");
+        }
+    }
+
+    /**
+     * Write one count of the search, as a line of its own or, in JSON, as a
+     * field named after the label, so "Total configs" becomes totalConfigs
+     * @param label what was counted
+     * @param count the count, a number or the number already formatted
+     * @throws IOException if the stream can't be written
+     */
+    public void writeCount(String label, Object count) throws IOException {
+        if (format != Format.JSON) {
+            out.write(label + ": " + count + "\n");
+            return;
+        }
+        String[] words = label.split(" ");
+        StringBuilder key = new StringBuilder(words[0].toLowerCase());
+        for (int i = 1; i < words.length; i++) {
+            key.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+        }
+        String value = count.toString();
+        startField();
+        json.append(quote(key.toString())).append(':')
+                .append(value.matches(JSON_NUMBER) ? value : quote(value));
+    }
+
+    /**
+     * End the result of a search with its path
+     * @param path the configs from the start to a solution, empty if there is none
+     * @throws IOException if the stream can't be written
+     */
+    public void writePath(List<Configuration> path) throws IOException {
+        writePath(path, "No solution.");
+    }
+
+    /**
+     * End the result of a search with its path
+     * @param path the configs from the start to a solution, empty if there is none
+     * @param none the line written when there is no path
+     * @throws IOException if the stream can't be written
+     */
+    public void writePath(List<Configuration> path, String none) throws IOException {
+        if (format == Format.JSON) {
+            writeJson(path);
+        } else if (path.isEmpty()) {
+            out.write(none + "\n");
+        } else if (format == Format.MOVES) {
+            List<Long> moves = MoveList.of(path);
+            out.write("Moves: " + moves.size() + "\n");
+            for (long move : moves) {
+                out.write(MoveList.format(move));
+                out.write('\n');
+            }
+        } else {
+            writeSteps(path);
+        }
+    }
+
+    /**
+     * Write every board of a path, numbered from step 0
+     * @param path the configs
+     * @throws IOException if the stream can't be written
+     */
+    public void writeSteps(List<Configuration> path) throws IOException {
+        int step = 0;
+        for (Configuration config : path) {
+            out.write("Step " + step + ": " + config + "\n");
+            step++;
+        }
+    }
+
+    /**
+     * Start another field of the JSON line, after a comma if it isn't the first
+     */
+    private void startField() {
+        if (json == null) {
+            json = new StringBuilder("{");
+        }
+        if (json.length() > 1) {
+            json.append(',');
+        }
+    }
+
+    /**
+     * End the JSON line of a result with the moves of its path, and write it
+     * @param path the configs from the start to a solution, empty if there is none
+     * @throws IOException if the stream can't be written
+     */
+    private void writeJson(List<Configuration> path) throws IOException {
+        startField();
+        json.append("\"solved\":").append(!path.isEmpty());
+        json.append(",\"moves\":[");
+        List<Long> moves = path.isEmpty() ? List.of() : MoveList.of(path);
+        for (int i = 0; i < moves.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(MoveList.format(moves.get(i))).append('"');
+        }
+        json.append("]}\n");
+        out.write(json.toString());
+        json = null;
+    }
+
+    /**
+     * Write a string as a JSON string, escaping quotes, backslashes and control characters
+     * @param text the string
+     * @return the quoted string
+     */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Send everything buffered to the stream
+     * @throws IOException if the stream can't be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
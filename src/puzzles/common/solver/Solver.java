@@ -3,14 +3,29 @@ package puzzles.common.solver;
 import puzzles.chess.model.ChessConfig;
 import puzzles.chess.solver.Chess;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.LinkedList;
+import java.util.concurrent.CancellationException;
 
 public class Solver {
     private Configuration start;
     private Configuration end;
     private int totalConfig;
     private int uniqueConfig;
+    private Pruner pruner;
+    private boolean decompose = true;
+    /** where checkpoints are saved, null for none */
+    private Path checkpointFile;
+    /** configs expanded between checkpoints */
+    private long checkpointInterval;
+    /** carry on from the checkpoint file if there is one */
+    private boolean resume;
+    /** where every expansion is recorded, null for none */
+    private SearchTrace trace;
 
     /**
      * Create solver for the clock and strings puzzle
@@ -22,48 +37,326 @@ public class Solver {
         this.uniqueConfig = 0;
     }
 
+    /**
+     * Create a solver that skips the configs a pruner proves dead. A start
+     * the pruner proves dead has no solution without any search.
+     * @param start the starting node
+     * @param pruner decides which configs are not worth expanding
+     */
+    public Solver(Configuration start, Pruner pruner) {
+        this(start);
+        this.pruner = pruner;
+    }
+
+    /**
+     * Choose whether products of cycles are solved one dimension at a time.
+     * Turning it off makes them searched like any other config.
+     * @param decompose true to solve each dimension on its own
+     */
+    public void setDecompose(boolean decompose) {
+        this.decompose = decompose;
+    }
+
+    /**
+     * Save the search to a file every so often, so a stopped search can be
+     * resumed. Only configs that can be packed can be saved.
+     * @param file the checkpoint file, replaced by each checkpoint
+     * @param interval the configs expanded between checkpoints
+     * @param resume true to carry on from the file if it exists
+     */
+    public void setCheckpoint(Path file, long interval, boolean resume) {
+        if (!(start instanceof PackedConfiguration)) {
+            throw new IllegalArgumentException("Only packed configs can be checkpointed");
+        }
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        this.resume = resume;
+    }
+
+    /**
+     * Record every expansion of the search to a trace. A traced search always
+     * runs as a plain breadth first search over configs, and can't be resumed
+     * from a checkpoint.
+     * @param trace the trace, or null for none
+     */
+    public void setTrace(SearchTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Find the shortest path from the start to a solution. A search run on
+     * another thread stops when that thread is interrupted.
+     * @return the path to the closest solution, or an empty list if there is none
+     * @throws CancellationException if the thread is interrupted while searching
+     */
     public List<Configuration> solve() {
+        if (trace == null && decompose && start instanceof CyclicProduct product) {
+            List<Configuration> path = solveProduct(product);
+            if (path != null) {
+                return path;
+            }
+        }
+        if (trace == null && pruner == null && start instanceof IndexedConfiguration indexed
+                && indexed.getStateCount() > 0 && indexed.getStateCount() < Integer.MAX_VALUE) {
+            List<Configuration> path = solveIndexed(indexed);
+            if (path != null) {
+                return path;
+            }
+        }
         List<Configuration> queue = new LinkedList<>();
         Map<Configuration, Configuration> predecessors = new HashMap<>();
-        queue.add(start);
-        predecessors.put(start, null);
+        boolean resuming = resume && Files.exists(checkpointFile);
+        if (resuming && trace != null) {
+            throw new IllegalStateException("A resumed search can't be traced");
+        }
+        if (!resuming && pruner != null && pruner.isDead(start)) {
+            totalConfig = 1;
+            uniqueConfig = 1;
+            if (trace != null) {
+                trace.begin();
+                trace.finish(false);
+            }
+            return new LinkedList<>();
+        }
+        if (resuming) {
+            SearchCheckpoint checkpoint = readCheckpoint();
+            queue = checkpoint.getQueue();
+            predecessors = checkpoint.getPredecessors();
+            totalConfig = checkpoint.getTotalConfig();
+        } else {
+            queue.add(start);
+            predecessors.put(start, null);
+            totalConfig++;
+            if (trace != null) {
+                trace.begin();
+            }
+        }
 
-        totalConfig++;
+        long expanded = 0;
         while (!queue.isEmpty()) {
+            checkInterrupted();
+            if (checkpointFile != null && expanded > 0 && expanded % checkpointInterval == 0) {
+                writeCheckpoint(new SearchCheckpoint(start, totalConfig, predecessors, queue));
+            }
+            expanded++;
             Configuration current = queue.remove(0);
+            if (trace != null) {
+                trace.take();
+            }
 
             if (current.isSolution()) {
                 end = current;
                 break;
             }
 
-            for (Configuration neighbors : current.getNeighbors()) {
+            Collection<Configuration> children = current.getNeighbors();
+            if (trace != null) {
+                trace.expand(children.size());
+            }
+            for (Configuration neighbors : children) {
                 totalConfig++;
-                if (!predecessors.containsKey(neighbors)) {
+                boolean duplicate = predecessors.containsKey(neighbors);
+                boolean queued = false;
+                if (!duplicate) {
                     predecessors.put(neighbors, current);
-                    queue.add(neighbors);
+                    // dead configs stay visited but are never expanded
+                    if (pruner == null || !pruner.isDead(neighbors)) {
+                        queue.add(neighbors);
+                        queued = true;
+                    }
+                }
+                if (trace != null) {
+                    // only new configs are numbered, so only their moves are worth finding
+                    trace.child(!duplicate && current instanceof MoveConfiguration moves
+                            ? moves.findMove(neighbors) : -1, duplicate, queued);
                 }
             }
         }
+        if (trace != null) {
+            trace.finish(end != null);
+        }
 
         uniqueConfig = predecessors.size();
         return constructPath(predecessors, start, end);
     }
 
-    public void solveAndPrint() {
-        List<Configuration> path = solve();
-        System.out.println("Total configs: " + totalConfig);
-        System.out.println("Unique configs: " + uniqueConfig);
+    /**
+     * Breadth first search over the numbers of a densely numbered state space.
+     * Visited states are a bit set, parents are an int array and the queue is
+     * a ring of ints, so no config objects are made until the path is built.
+     * @param indexed the starting config
+     * @return the path to the closest solution, an empty list if there is none, or null if
+     *         the start is outside the numbered states and has to be searched as configs
+     */
+    private List<Configuration> solveIndexed(IndexedConfiguration indexed) {
+        int count = (int) indexed.getStateCount();
+        int first = indexed.getIndex();
+        if (first < 0 || first >= count) {
+            return null;
+        }
+        BitSet visited = new BitSet(count);
+        int[] parents = new int[count];
+        int[] neighbors = new int[indexed.getMaxNeighbors()];
+        int[] queue = new int[Math.min(count, 1 << 16)];
+        int head = 0;
+        int size = 0;
+        visited.set(first);
+        parents[first] = first;
+        queue[0] = first;
+        size++;
+        totalConfig++;
+        int goal = -1;
 
-        int step = 0;
-        if (path.isEmpty()) {
-            System.out.println("No solution.");
-        } else {
-            for (Configuration s : path) {
-                System.out.println("Step " + step + ": " + s.toString());
-                step++;
+        while (size > 0) {
+            checkInterrupted();
+            int current = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            if (indexed.isSolutionIndex(current)) {
+                goal = current;
+                break;
+            }
+            int found = indexed.getNeighborIndices(current, neighbors);
+            totalConfig += found;
+            for (int n = 0; n < found; n++) {
+                int neighbor = neighbors[n];
+                if (!visited.get(neighbor)) {
+                    visited.set(neighbor);
+                    parents[neighbor] = current;
+                    if (size == queue.length) {
+                        // grow the ring, unrolling it so the head is at 0
+                        int[] bigger = new int[(int) Math.min(count, 2L * queue.length)];
+                        for (int i = 0; i < size; i++) {
+                            bigger[i] = queue[(head + i) % queue.length];
+                        }
+                        queue = bigger;
+                        head = 0;
+                    }
+                    queue[(head + size) % queue.length] = neighbor;
+                    size++;
+                }
             }
         }
+
+        uniqueConfig = visited.cardinality();
+        List<Configuration> path = new LinkedList<>();
+        if (goal >= 0) {
+            for (int i = goal; i != first; i = parents[i]) {
+                path.add(0, indexed.fromIndex(i));
+            }
+            path.add(0, indexed.fromIndex(first));
+            end = path.get(path.size() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * Solve a product of cycles one dimension at a time. Each dimension takes
+     * the shorter way around its cycle, and the dimensions are walked one
+     * after the other, so the path is optimal and costs no search.
+     * Every config made is on the path, so both counts are the path length.
+     * A start or goal off its cycle is left to the search, which reports
+     * what it explored before finding no solution.
+     * @param product the starting config
+     * @return the path to the goal, or null if some start or goal is not on its cycle
+     */
+    private List<Configuration> solveProduct(CyclicProduct product) {
+        for (int d = 0; d < product.getDimensions(); d++) {
+            int position = product.getPosition(d);
+            if (product.getGoal(d) < 0 || position < 0 || position >= product.getCycleLength(d)) {
+                return null;
+            }
+        }
+        List<Configuration> path = new LinkedList<>();
+        CyclicProduct current = product;
+        path.add(current);
+        for (int d = 0; d < product.getDimensions(); d++) {
+            int length = product.getCycleLength(d);
+            int forward = Math.floorMod(product.getGoal(d) - product.getPosition(d), length);
+            int backward = Math.floorMod(product.getPosition(d) - product.getGoal(d), length);
+            int step = forward < backward ? 1 : -1;
+            for (int i = Math.min(forward, backward); i > 0; i--) {
+                current = current.withPosition(d, Math.floorMod(current.getPosition(d) + step, length));
+                path.add(current);
+            }
+        }
+        end = current;
+        totalConfig = path.size();
+        uniqueConfig = path.size();
+        return path;
+    }
+
+    /**
+     * Read the checkpoint file
+     * @return the saved search
+     */
+    private SearchCheckpoint readCheckpoint() {
+        try {
+            return SearchCheckpoint.read(checkpointFile, (PackedConfiguration) start);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Write the checkpoint file
+     * @param checkpoint the search to save
+     */
+    private void writeCheckpoint(SearchCheckpoint checkpoint) {
+        try {
+            checkpoint.write(checkpointFile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Stop the search if its thread was interrupted
+     * @throws CancellationException if the thread was interrupted
+     */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search interrupted");
+        }
+    }
+
+    /**
+     * Solve and print the counts and every board of the path, through one buffer
+     */
+    public void solveAndPrint() {
+        try {
+            solveAndWrite(null, new SolutionWriter(System.out, SolutionWriter.Format.BOARDS));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Solve and write the counts and the path in the writer's format
+     * @param name the name of the puzzle, or null to leave it out
+     * @param writer where to write, which is flushed after
+     * @throws IOException if the writer can't write
+     */
+    public void solveAndWrite(String name, SolutionWriter writer) throws IOException {
+        List<Configuration> path = solve();
+        writer.write(name, totalConfig, uniqueConfig, path);
+        writer.flush();
+    }
+
+    /**
+     * Getter for the configs reached by the last search
+     * @return the number of configs reached, counting repeats
+     */
+    public int getTotalConfig() {
+        return totalConfig;
+    }
+
+    /**
+     * Getter for the distinct configs reached by the last search
+     * @return the number of distinct configs reached
+     */
+    public int getUniqueConfig() {
+        return uniqueConfig;
     }
 
     /**
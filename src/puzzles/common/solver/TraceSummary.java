@@ -0,0 +1,314 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Reads a trace written by {@link SearchTrace} and sums it up: the configs
+ * expanded, generated and repeated at each depth, the branching factor, and
+ * the subtrees at some depth that cost the search the most configs. The
+ * cost of a subtree is every config generated by it and its descendants,
+ * repeats included, since each one was made and hashed.
+ *
+ * The file is mapped into memory a window at a time rather than read.
+ */
+public class TraceSummary {
+    /** the bytes mapped at once */
+    private final static long WINDOW_BYTES = 1 << 30;
+    private final static int HEADER_BYTES = 8;
+
+    private final FileChannel channel;
+    private final long length;
+    private MappedByteBuffer window;
+    /** where the window starts in the file */
+    private long windowStart;
+
+    /** the parent, depth and move of each config, by number */
+    private int[] parent = new int[1 << 10];
+    private int[] depth = new int[1 << 10];
+    private long[] move = new long[1 << 10];
+    /** the configs each config generated, then the configs its subtree generated */
+    private long[] cost = new long[1 << 10];
+    private int configs = 1;
+
+    /** the expansions, configs generated, repeats and dead configs at each depth */
+    private long[] expanded = new long[16];
+    private long[] generated = new long[16];
+    private long[] duplicates = new long[16];
+    private long[] dead = new long[16];
+    private int maxDepth;
+    /** the number of the solution, -1 if there is none, -2 if the trace was cut short */
+    private int solution = -2;
+
+    /**
+     * Read a trace
+     * @param file the trace file
+     * @throws IOException if the file cannot be read or is not a trace
+     */
+    public TraceSummary(Path file) throws IOException {
+        try (FileChannel opened = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.channel = opened;
+            this.length = opened.size();
+            if (length < HEADER_BYTES || !map(0) || window.getInt() != SearchTrace.MAGIC
+                    || window.getShort() != SearchTrace.VERSION) {
+                throw new IOException(file + " is not a search trace");
+            }
+            window.getShort();
+            read();
+        }
+        // each config's cost goes to its parent, and parents are numbered before their children
+        for (int id = configs - 1; id > 0; id--) {
+            cost[parent[id]] += cost[id];
+        }
+    }
+
+    /**
+     * Map the window of the file starting at a position
+     * @param position where the window starts
+     * @return false if the file ends there
+     * @throws IOException if the file cannot be mapped
+     */
+    private boolean map(long position) throws IOException {
+        if (position >= length) {
+            return false;
+        }
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, length - position));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        return true;
+    }
+
+    /**
+     * Make sure the window holds the next bytes of the file, moving it on if not
+     * @param bytes the bytes needed
+     * @return false if the file ends before them
+     * @throws IOException if the file cannot be mapped
+     */
+    private boolean need(int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return true;
+        }
+        long position = windowStart + window.position();
+        return length - position >= bytes && map(position);
+    }
+
+    /**
+     * Read every record of the trace, stopping quietly where a cut short trace ends
+     * @throws IOException if the file cannot be mapped
+     */
+    private void read() throws IOException {
+        while (need(Integer.BYTES)) {
+            int id = window.getInt();
+            if (id == -1) {
+                if (need(Integer.BYTES)) {
+                    solution = window.getInt();
+                }
+                return;
+            }
+            if (!need(2 * Short.BYTES)) {
+                return;
+            }
+            int level = window.getShort();
+            int children = window.getShort() & 0xFFFF;
+            grow(level + 1);
+            expanded[level]++;
+            for (int i = 0; i < children; i++) {
+                if (!need(7)) {
+                    return;
+                }
+                int flags = window.get();
+                long coordinates = ((long) (window.getShort() & 0xFFFF) << 32) | (window.getInt() & 0xFFFFFFFFL);
+                generated[level]++;
+                cost[id]++;
+                if ((flags & SearchTrace.DUPLICATE) != 0) {
+                    duplicates[level]++;
+                    continue;
+                }
+                if ((flags & SearchTrace.DEAD) != 0) {
+                    dead[level]++;
+                }
+                add(id, level + 1, (flags & SearchTrace.NO_MOVE) != 0 ? -1 : coordinates << 16);
+            }
+        }
+    }
+
+    /**
+     * Give the next number to a config seen for the first time
+     * @param from the number of its parent
+     * @param level its depth
+     * @param moved the move that made it, or -1
+     */
+    private void add(int from, int level, long moved) {
+        if (configs == parent.length) {
+            int room = 2 * configs;
+            parent = Arrays.copyOf(parent, room);
+            depth = Arrays.copyOf(depth, room);
+            move = Arrays.copyOf(move, room);
+            cost = Arrays.copyOf(cost, room);
+        }
+        parent[configs] = from;
+        depth[configs] = level;
+        move[configs] = moved;
+        configs++;
+        maxDepth = Math.max(maxDepth, level);
+    }
+
+    /**
+     * Make room for the counts of more depths
+     * @param depths the depths needed
+     */
+    private void grow(int depths) {
+        if (depths > expanded.length) {
+            int room = Math.max(depths, 2 * expanded.length);
+            expanded = Arrays.copyOf(expanded, room);
+            generated = Arrays.copyOf(generated, room);
+            duplicates = Arrays.copyOf(duplicates, room);
+            dead = Arrays.copyOf(dead, room);
+        }
+    }
+
+    /**
+     * Getter for the configs seen for the first time, the start included
+     * @return the distinct configs of the trace
+     */
+    public int getConfigs() {
+        return configs;
+    }
+
+    /**
+     * Getter for the cost of a config's subtree
+     * @param id the number of the config
+     * @return the configs generated by it and its descendants, repeats included
+     */
+    public long getCost(int id) {
+        return cost[id];
+    }
+
+    /**
+     * Find the moves from the start to a config
+     * @param id the number of the config
+     * @return its moves, each as (r,c)->(r,c), or ? where the move is not known
+     */
+    public String getMoves(int id) {
+        List<String> moves = new LinkedList<>();
+        for (int i = id; i != 0; i = parent[i]) {
+            moves.add(0, move[i] == -1 ? "?" : MoveList.format(move[i]));
+        }
+        return moves.isEmpty() ? "(start)" : String.join(" ", moves);
+    }
+
+    /**
+     * Find the most expensive subtrees rooted at one depth
+     * @param level the depth of their roots
+     * @param count the most subtrees to find
+     * @return the numbers of their roots, most expensive first
+     */
+    public List<Integer> getMostExpensive(int level, int count) {
+        List<Integer> roots = new ArrayList<>();
+        for (int id = 0; id < configs; id++) {
+            if (depth[id] == level) {
+                roots.add(id);
+            }
+        }
+        roots.sort((a, b) -> Long.compare(cost[b], cost[a]));
+        return roots.subList(0, Math.min(count, roots.size()));
+    }
+
+    /**
+     * Print the totals, the counts at each depth and the most expensive subtrees
+     * @param level the depth of the subtrees' roots
+     * @param count the most subtrees to print
+     */
+    public void print(int level, int count) {
+        long totalExpanded = 0;
+        long totalGenerated = 0;
+        long totalDuplicates = 0;
+        for (int d = 0; d <= maxDepth && d < expanded.length; d++) {
+            totalExpanded += expanded[d];
+            totalGenerated += generated[d];
+            totalDuplicates += duplicates[d];
+        }
+        System.out.println("Expanded: " + totalExpanded);
+        System.out.println("Generated: " + totalGenerated);
+        System.out.println("Unique configs: " + configs);
+        System.out.printf("Duplicates: %d (%.1f%%)%n", totalDuplicates, percent(totalDuplicates, totalGenerated));
+        System.out.printf("Branching factor: %.2f generated, %.2f new per expansion%n",
+                ratio(totalGenerated, totalExpanded), ratio(totalGenerated - totalDuplicates, totalExpanded));
+        if (solution >= 0) {
+            System.out.println("Solution: depth " + depth[solution] + ", " + getMoves(solution));
+        } else {
+            System.out.println(solution == -1 ? "No solution." : "Trace cut short.");
+        }
+
+        System.out.printf("%5s %10s %11s %9s %11s %8s %9s%n",
+                "depth", "expanded", "generated", "branching", "duplicates", "dup %", "dead");
+        for (int d = 0; d <= maxDepth && d < expanded.length; d++) {
+            if (expanded[d] == 0) {
+                continue;
+            }
+            System.out.printf("%5d %10d %11d %9.2f %11d %8.1f %9d%n", d, expanded[d], generated[d],
+                    ratio(generated[d], expanded[d]), duplicates[d], percent(duplicates[d], generated[d]), dead[d]);
+        }
+
+        System.out.println("Most expensive subtrees at depth " + level + ":");
+        System.out.printf("%11s %7s  %s%n", "generated", "share %", "moves");
+        for (int id : getMostExpensive(level, count)) {
+            System.out.printf("%11d %7.1f  %s%n", cost[id], percent(cost[id], totalGenerated), getMoves(id));
+        }
+    }
+
+    /**
+     * @param part a count
+     * @param whole the count it is part of
+     * @return the part as a percent of the whole, 0 if the whole is 0
+     */
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    /**
+     * @param numerator a count
+     * @param denominator another count
+     * @return their ratio, 0 if the denominator is 0
+     */
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    /**
+     * Sum up a trace file
+     * @param args java TraceSummary [--depth d] [--top n] tracefile
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int level = 1;
+        int count = 10;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--depth") && i + 1 < args.length) {
+                level = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--top") && i + 1 < args.length) {
+                count = Integer.parseInt(args[++i]);
+            } else if (file == null && !args[i].startsWith("--")) {
+                file = args[i];
+            } else {
+                file = null;
+                break;
+            }
+        }
+        if (file == null) {
+            System.out.println("Usage: java TraceSummary [--depth d] [--top n] tracefile");
+            return;
+        }
+        System.out.println("Trace: " + file);
+        new TraceSummary(Path.of(file)).print(level, count);
+    }
+}
@@ -0,0 +1,189 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+
+/**
+ * Labels every config of a puzzle whose moves can never come back to a
+ * config as winning, if some line of moves from it reaches a solution, or
+ * losing. A config is winning when it is a solution or any of its moves
+ * leads to a winning config, so the labels are worked out from the bottom of
+ * the DAG up, making and taking back moves on one board.
+ *
+ * The labels live in one open addressing table of packed words, a byte of
+ * label per slot and no object per config. A config is labelled the first
+ * time it is asked about, along with everything under it that had to be
+ * searched; after that asking again is a single lookup. A winning config
+ * stops at its first winning move, so only losing configs have all of their
+ * moves labelled.
+ */
+public class WinTable {
+    private final static byte UNKNOWN = 0;
+    private final static byte WINNING = 1;
+    private final static byte LOSING = 2;
+    /** the table grows once it is this full */
+    private final static double LOAD_FACTOR = 0.5;
+
+    /** the number of longs in the packed words of a config */
+    private final int width;
+    /** the packed words of the config in each slot, width longs a slot */
+    private long[] keys;
+    /** the label in each slot, UNKNOWN for an empty slot */
+    private byte[] labels;
+    private int size;
+    private long winning;
+    private long losing;
+    /** the moves of the configs being labelled, one block per depth */
+    private int[] moves = new int[64];
+
+    /**
+     * Create an empty table for the configs of one board
+     * @param config any config of the board, to find how wide its packed words are
+     */
+    public WinTable(PackedConfiguration config) {
+        this.width = config.pack().length;
+        this.keys = new long[1024 * width];
+        this.labels = new byte[1024];
+    }
+
+    /**
+     * Check whether a solution can still be reached from a config, labelling
+     * it and the configs under it first if it hasn't been asked about yet
+     * @param config the config, which is not changed
+     * @return true if some line of moves from the config reaches a solution
+     */
+    public synchronized boolean isWinning(MutableConfiguration config) {
+        byte label = labels[find(config.pack())];
+        if (label != UNKNOWN) {
+            return label == WINNING;
+        }
+        return label((MutableConfiguration) config.unpack(config.pack()), 0);
+    }
+
+    /**
+     * Label a config and whatever under it needs labelling
+     * @param board the config, changed while its moves are tried and put back after
+     * @param offset where in the moves array its moves go
+     * @return true if the config is winning
+     */
+    private boolean label(MutableConfiguration board, int offset) {
+        long[] key = board.pack();
+        byte known = labels[find(key)];
+        if (known != UNKNOWN) {
+            return known == WINNING;
+        }
+        boolean win = board.isSolution();
+        if (!win) {
+            int needed = offset + board.getMaxMoves();
+            if (needed > moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(needed, 2 * moves.length));
+            }
+            int count = board.generateMoves(moves, offset);
+            for (int i = 0; i < count && !win; i++) {
+                // the array may have grown under the call, so read the move from it each time
+                int move = moves[offset + i];
+                board.applyMove(move);
+                win = label(board, offset + count);
+                board.undoMove(move);
+            }
+        }
+        put(key, win ? WINNING : LOSING);
+        return win;
+    }
+
+    /**
+     * Find the slot of some packed words, or the empty slot they would go in
+     * @param key the packed words
+     * @return the index of the slot
+     */
+    private int find(long[] key) {
+        int mask = labels.length - 1;
+        long hash = 0x9E3779B97F4A7C15L;
+        for (long word : key) {
+            hash = Fingerprint.mix(hash ^ word);
+        }
+        int slot = (int) hash & mask;
+        while (labels[slot] != UNKNOWN && !matches(slot, key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @param slot a full slot
+     * @param key the packed words
+     * @return true if the slot holds those words
+     */
+    private boolean matches(int slot, long[] key) {
+        int start = slot * width;
+        for (int w = 0; w < width; w++) {
+            if (keys[start + w] != key[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store the label of a config not in the table yet, growing it if it is too full
+     * @param key the packed words of the config
+     * @param label its label
+     */
+    private void put(long[] key, byte label) {
+        if (size + 1 > labels.length * LOAD_FACTOR) {
+            long[] oldKeys = keys;
+            byte[] oldLabels = labels;
+            keys = new long[2 * oldKeys.length];
+            labels = new byte[2 * oldLabels.length];
+            long[] words = new long[width];
+            for (int slot = 0; slot < oldLabels.length; slot++) {
+                if (oldLabels[slot] != UNKNOWN) {
+                    System.arraycopy(oldKeys, slot * width, words, 0, width);
+                    int to = find(words);
+                    System.arraycopy(words, 0, keys, to * width, width);
+                    labels[to] = oldLabels[slot];
+                }
+            }
+        }
+        int slot = find(key);
+        System.arraycopy(key, 0, keys, slot * width, width);
+        labels[slot] = label;
+        size++;
+        if (label == WINNING) {
+            winning++;
+        } else {
+            losing++;
+        }
+    }
+
+    /**
+     * Getter for the number of configs labelled
+     * @return the configs in the table
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter for the number of winning configs labelled
+     * @return the winning configs in the table
+     */
+    public synchronized long getWinning() {
+        return winning;
+    }
+
+    /**
+     * Getter for the number of losing configs labelled
+     * @return the losing configs in the table
+     */
+    public synchronized long getLosing() {
+        return losing;
+    }
+
+    /**
+     * Getter for the memory the table takes
+     * @return the bytes of the key and label arrays
+     */
+    public synchronized long getBytes() {
+        return 8L * keys.length + labels.length;
+    }
+}
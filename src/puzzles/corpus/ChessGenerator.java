@@ -0,0 +1,112 @@
+package puzzles.corpus;
+
+import puzzles.chess.model.CaptureGraph;
+import puzzles.chess.model.ChessConfig;
+import puzzles.common.solver.PackedConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates solvable chess puzzles by undoing captures. An uncapture takes a
+ * piece, moves it back to a cell it could have captured from, and puts a new
+ * piece where it stood. Every board made this way can be solved by doing the
+ * captures again in reverse order.
+ */
+public class ChessGenerator extends PuzzleGenerator {
+    /** the piece letters new pieces are picked from, repeat a letter to pick it more */
+    private final String mix;
+
+    /**
+     * Create a chess generator
+     *
+     * @param rows rows of every board
+     * @param cols columns of every board
+     * @param pieces the number of pieces on every board
+     * @param mix the piece letters to pick from, e.g. BKNPQR
+     */
+    public ChessGenerator(int rows, int cols, int pieces, String mix) {
+        super(PuzzleKind.CHESS, rows, cols, pieces);
+        for (char piece : mix.toCharArray()) {
+            if ("BKNPQR".indexOf(piece) < 0) {
+                throw new IllegalArgumentException("Unknown piece " + piece);
+            }
+        }
+        this.mix = mix;
+    }
+
+    @Override
+    protected PackedConfiguration attempt(SplittableRandom random) {
+        char[][] board = new char[rows][cols];
+        for (char[] row : board) {
+            Arrays.fill(row, ChessConfig.EMPTY);
+        }
+        board[random.nextInt(rows)][random.nextInt(cols)] = randomPiece(random);
+        for (int placed = 1; placed < pieces; placed++) {
+            // every (piece cell, cell it could have captured from) pair
+            List<int[]> uncaptures = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (board[r][c] != ChessConfig.EMPTY) {
+                        addOrigins(board, r, c, uncaptures);
+                    }
+                }
+            }
+            if (uncaptures.isEmpty()) {
+                return null;
+            }
+            int[] move = uncaptures.get(random.nextInt(uncaptures.size()));
+            board[move[2]][move[3]] = board[move[0]][move[1]];
+            board[move[0]][move[1]] = randomPiece(random);
+        }
+        return new ChessConfig(board);
+    }
+
+    /**
+     * Add every empty cell the piece on a cell could have captured it from.
+     * The cells between must be empty, since the capture passed over them.
+     *
+     * @param board the board
+     * @param row the row of the piece
+     * @param col the column of the piece
+     * @param uncaptures the list to add {row, col, fromRow, fromCol} to
+     */
+    private void addOrigins(char[][] board, int row, int col, List<int[]> uncaptures) {
+        char piece = board[row][col];
+        for (int dr = -2; dr <= 2; dr++) {
+            for (int dc = -2; dc <= 2; dc++) {
+                // step back along each direction until a piece or the edge
+                boolean slider = piece == ChessConfig.ROOK || piece == ChessConfig.BISHOP
+                        || piece == ChessConfig.QUEEN;
+                if (slider && (Math.abs(dr) == 2 || Math.abs(dc) == 2)) {
+                    continue;
+                }
+                for (int step = 1; ; step++) {
+                    int fromRow = row - dr * step;
+                    int fromCol = col - dc * step;
+                    if (fromRow < 0 || fromRow >= rows || fromCol < 0 || fromCol >= cols
+                            || board[fromRow][fromCol] != ChessConfig.EMPTY
+                            || !CaptureGraph.attacks(piece, row - fromRow, col - fromCol)) {
+                        break;
+                    }
+                    uncaptures.add(new int[]{row, col, fromRow, fromCol});
+                    if (!slider) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick a piece from the mix
+     *
+     * @param random the random generator
+     * @return the piece letter
+     */
+    private char randomPiece(SplittableRandom random) {
+        return mix.charAt(random.nextInt(mix.length()));
+    }
+}
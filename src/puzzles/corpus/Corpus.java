@@ -0,0 +1,150 @@
+package puzzles.corpus;
+
+import puzzles.common.solver.PackedConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The binary corpus format and a command line tool to convert text puzzle
+ * files into a corpus and to inspect one.
+ *
+ * A corpus holds many boards of one kind and size. The 32 byte little endian
+ * header is
+ * <ul>
+ *     <li>int magic, {@link #MAGIC}</li>
+ *     <li>short version, {@link #VERSION}</li>
+ *     <li>byte puzzle kind ({@link PuzzleKind} ordinal), byte unused</li>
+ *     <li>short rows, short columns</li>
+ *     <li>int words per board, int unused</li>
+ *     <li>long number of boards</li>
+ *     <li>8 unused bytes</li>
+ * </ul>
+ * and is followed by the packed words of each board, see
+ * {@link PackedConfiguration#pack()}.
+ */
+public class Corpus {
+    /** "PUZC" read as a little endian int */
+    public final static int MAGIC = 0x435A5550;
+    public final static short VERSION = 1;
+    public final static int HEADER_BYTES = 32;
+    /** size of the write buffer */
+    final static int BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Convert text files to a corpus, or print what a corpus holds. Exits 2
+     * if the kind is unknown, or a file can't be read or doesn't fit the
+     * corpus, so a script can tell a bad corpus from a good one.
+     *
+     * @param args convert kind corpus filename..., or info corpus
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length >= 4 && args[0].equals("convert")) {
+                PuzzleKind kind;
+                try {
+                    kind = PuzzleKind.fromName(args[1]);
+                } catch (IllegalArgumentException ex) {
+                    System.err.println(ex.getMessage());
+                    usage();
+                    System.exit(2);
+                    return;
+                }
+                convert(kind, Path.of(args[2]), args, 3);
+            } else if (args.length == 2 && args[0].equals("info")) {
+                info(Path.of(args[1]));
+            } else {
+                usage();
+            }
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Print how to run the tool
+     */
+    private static void usage() {
+        System.out.println("Usage: java Corpus convert chess|hoppers corpus filename...");
+        System.out.println("       java Corpus info corpus");
+    }
+
+    /**
+     * Convert text files of one size into a corpus
+     *
+     * @param kind the kind of puzzle in the files
+     * @param out the corpus to write
+     * @param files the arguments holding the file names
+     * @param first the index of the first file name in files
+     * @throws IOException if a file cannot be read, is not the size of the first, or the corpus can't be written
+     */
+    private static void convert(PuzzleKind kind, Path out, String[] files, int first) throws IOException {
+        PackedConfiguration config = kind.read(files[first]);
+        int rows = kind.getRows(config);
+        int cols = kind.getCols(config);
+        String mismatch = null;
+        try (CorpusWriter writer = new CorpusWriter(out, kind, rows, cols)) {
+            writer.write(config);
+            for (int i = first + 1; i < files.length && mismatch == null; i++) {
+                PackedConfiguration next = kind.read(files[i]);
+                if (kind.getRows(next) != rows || kind.getCols(next) != cols) {
+                    mismatch = files[i] + " is " + kind.getRows(next) + "x" + kind.getCols(next)
+                            + ", not " + rows + "x" + cols + " like " + files[first];
+                } else {
+                    writer.write(next);
+                }
+            }
+            if (mismatch == null) {
+                System.out.println("Wrote " + writer.getCount() + " boards to " + out);
+            }
+        }
+        if (mismatch != null) {
+            // a corpus missing some of the files is worse than none
+            Files.delete(out);
+            throw new IOException(mismatch);
+        }
+    }
+
+    /**
+     * Print how fast boards were read
+     *
+     * @param what what was done to the boards
+     * @param boards the number of boards
+     * @param start the time reading started, from {@link System#nanoTime()}
+     */
+    private static void printRate(String what, long boards, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s %d boards in %.3f s (%.0f boards/s)%n",
+                what, boards, seconds, boards / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Print the header of a corpus and time loading every board from it
+     *
+     * @param path the corpus to read
+     * @throws IOException if the corpus cannot be read
+     */
+    private static void info(Path path) throws IOException {
+        try (CorpusReader reader = new CorpusReader(path)) {
+            System.out.println("Kind: " + reader.getKind());
+            System.out.println("Size: " + reader.getRows() + "x" + reader.getCols());
+            System.out.println("Boards: " + reader.size());
+            long[] packed = new long[reader.getWords()];
+            long start = System.nanoTime();
+            for (long i = 0; i < reader.size(); i++) {
+                reader.getPacked(i, packed);
+            }
+            printRate("Read", reader.size(), start);
+            start = System.nanoTime();
+            for (long i = 0; i < reader.size(); i++) {
+                reader.get(i);
+            }
+            printRate("Loaded", reader.size(), start);
+            if (reader.size() > 0) {
+                System.out.println("First board:" + reader.get(0));
+            }
+        }
+    }
+}
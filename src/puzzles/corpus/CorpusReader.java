@@ -0,0 +1,158 @@
+package puzzles.corpus;
+
+import puzzles.common.solver.PackedConfiguration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a binary corpus by mapping the file into memory. Boards are read
+ * straight out of the mapped pages, so nothing is parsed and only the boards
+ * asked for are touched.
+ */
+public class CorpusReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final PuzzleKind kind;
+    private final int rows;
+    private final int cols;
+    private final int words;
+    private final long count;
+    /** the config used to unpack boards of this size */
+    private final PackedConfiguration template;
+    /** the mapped boards, split so no segment is over 2GB */
+    private final LongBuffer[] segments;
+    private final int boardsPerSegment;
+
+    /**
+     * Open and map a corpus file
+     *
+     * @param path the corpus file
+     * @throws IOException if the file cannot be read or is not a corpus
+     */
+    public CorpusReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(Corpus.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // keep reading until the header is full
+        }
+        header.flip();
+        if (header.remaining() < Corpus.HEADER_BYTES || header.getInt() != Corpus.MAGIC) {
+            channel.close();
+            throw new IOException("Not a corpus file: " + path);
+        }
+        short version = header.getShort();
+        if (version != Corpus.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported corpus version " + version + ": " + path);
+        }
+        int ordinal = Byte.toUnsignedInt(header.get());
+        if (ordinal >= PuzzleKind.values().length) {
+            channel.close();
+            throw new IOException("Not a corpus file: " + path);
+        }
+        this.kind = PuzzleKind.values()[ordinal];
+        header.get();
+        this.rows = header.getShort();
+        this.cols = header.getShort();
+        this.words = header.getInt();
+        header.getInt();
+        this.count = header.getLong();
+        this.template = kind.blank(rows, cols);
+
+        long boardBytes = (long) words * Long.BYTES;
+        this.boardsPerSegment = (int) (Integer.MAX_VALUE / boardBytes);
+        int segmentCount = (int) ((count + boardsPerSegment - 1) / boardsPerSegment);
+        this.segments = new LongBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i * boardsPerSegment;
+            long boards = Math.min(boardsPerSegment, count - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    Corpus.HEADER_BYTES + first * boardBytes, boards * boardBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+    }
+
+    /**
+     * Copy the packed words of a board into an array, without making a config
+     *
+     * @param index the index of the board
+     * @param into the array to fill, at least {@link #getWords()} long
+     */
+    public void getPacked(long index, long[] into) {
+        LongBuffer segment = segments[(int) (index / boardsPerSegment)];
+        int offset = (int) (index % boardsPerSegment) * words;
+        segment.get(offset, into, 0, words);
+    }
+
+    /**
+     * Build the config of a board
+     *
+     * @param index the index of the board
+     * @return the config of the board
+     */
+    public PackedConfiguration get(long index) {
+        long[] packed = new long[words];
+        getPacked(index, packed);
+        return template.unpack(packed);
+    }
+
+    /**
+     * Getter for the kind of puzzle stored
+     *
+     * @return the puzzle kind
+     */
+    public PuzzleKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Getter for the rows of every board
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for the columns of every board
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Getter for the number of longs in a packed board
+     *
+     * @return the words per board
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Getter for the number of boards
+     *
+     * @return the number of boards in the corpus
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Close the file. Mapped pages are released once the reader is unused.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,138 @@
+package puzzles.corpus;
+
+import puzzles.common.solver.PackedConfiguration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes boards of one kind and size into a binary corpus file.
+ *
+ * The file starts with a {@link Corpus#HEADER_BYTES} byte header, then holds
+ * the packed words of each board back to back, little endian. See
+ * {@link Corpus} for the header layout.
+ */
+public class CorpusWriter implements AutoCloseable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final PuzzleKind kind;
+    private final int rows;
+    private final int cols;
+    private final int words;
+    private long count;
+
+    /**
+     * Create a corpus file, replacing any file already there
+     *
+     * @param path the file to write
+     * @param kind the kind of puzzle stored
+     * @param rows rows of every board
+     * @param cols columns of every board
+     * @throws IOException if the file cannot be created
+     */
+    public CorpusWriter(Path path, PuzzleKind kind, int rows, int cols) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(Corpus.BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        this.kind = kind;
+        this.rows = rows;
+        this.cols = cols;
+        this.words = kind.blank(rows, cols).pack().length;
+        writeHeader();
+    }
+
+    /**
+     * Add a board to the corpus
+     *
+     * @param config the board, which must have the size of the corpus
+     * @throws IOException if the board cannot be written
+     * @throws IllegalArgumentException if the board is not the size of the corpus
+     */
+    public void write(PackedConfiguration config) throws IOException {
+        if (kind.getRows(config) != rows || kind.getCols(config) != cols) {
+            throw new IllegalArgumentException("A " + kind.getRows(config) + "x" + kind.getCols(config)
+                    + " board does not fit a " + rows + "x" + cols + " corpus");
+        }
+        write(config.pack());
+    }
+
+    /**
+     * Add the packed words of a board to the corpus
+     *
+     * @param packed the packed words of the board, which must be a board of the size of the corpus
+     * @throws IOException if the board cannot be written
+     * @throws IllegalArgumentException if the words are not as many as the corpus's boards pack into
+     */
+    public void write(long[] packed) throws IOException {
+        if (packed.length != words) {
+            throw new IllegalArgumentException("Board does not fit a " + rows + "x" + cols + " corpus");
+        }
+        if (buffer.remaining() < words * Long.BYTES) {
+            flush();
+        }
+        for (long word : packed) {
+            buffer.putLong(word);
+        }
+        count++;
+    }
+
+    /**
+     * Getter for the number of boards written so far
+     *
+     * @return the number of boards written
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Write out the buffered boards and the final header, then close the file
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        writeHeader();
+        channel.close();
+    }
+
+    /**
+     * Write the header at the start of the file, with the current count
+     *
+     * @throws IOException if the header cannot be written
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Corpus.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(Corpus.MAGIC);
+        header.putShort(Corpus.VERSION);
+        header.put((byte) kind.ordinal());
+        header.put((byte) 0);
+        header.putShort((short) rows);
+        header.putShort((short) cols);
+        header.putInt(words);
+        header.putInt(0);
+        header.putLong(count);
+        header.clear();
+        long position = channel.position();
+        channel.write(header, 0);
+        channel.position(Math.max(position, Corpus.HEADER_BYTES));
+    }
+
+    /**
+     * Write out the buffered boards
+     *
+     * @throws IOException if the boards cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package puzzles.corpus;
+
+import puzzles.common.solver.PackedConfiguration;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates solvable hoppers puzzles by undoing jumps from a board with only
+ * the red frog. An unjump moves a frog back to where a jump could have started
+ * and puts a green frog on the cell in between. Every board made this way can
+ * be solved by doing the jumps again in reverse order.
+ */
+public class HoppersGenerator extends PuzzleGenerator {
+    /** the jumps of the board, as {from, over, to} cell indices */
+    private final List<int[]> jumps;
+    private final char[][] water;
+
+    /**
+     * Create a hoppers generator. Cells whose row and column add up to an
+     * odd number are water, as in the puzzle files.
+     *
+     * @param rows rows of every board
+     * @param cols columns of every board
+     * @param frogs the number of frogs on every board, counting the red one
+     */
+    public HoppersGenerator(int rows, int cols, int frogs) {
+        super(PuzzleKind.HOPPERS, rows, cols, frogs);
+        this.water = new char[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                water[r][c] = (r + c) % 2 == 0 ? HoppersConfig.EMPTY : HoppersConfig.INVALID;
+            }
+        }
+        this.jumps = new HoppersConfig(copy(water)).getJumps();
+    }
+
+    @Override
+    protected PackedConfiguration attempt(SplittableRandom random) {
+        char[][] grid = copy(water);
+        List<Integer> pads = new ArrayList<>();
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (grid[cell / cols][cell % cols] == HoppersConfig.EMPTY) {
+                pads.add(cell);
+            }
+        }
+        int red = pads.get(random.nextInt(pads.size()));
+        grid[red / cols][red % cols] = HoppersConfig.RED_FROG;
+
+        for (int frogs = 1; frogs < pieces; frogs++) {
+            // jumps that could have landed on a frog, from an empty cell over an empty cell
+            List<int[]> unjumps = new ArrayList<>();
+            for (int[] jump : jumps) {
+                if (cell(grid, jump[2]) != HoppersConfig.EMPTY
+                        && cell(grid, jump[0]) == HoppersConfig.EMPTY
+                        && cell(grid, jump[1]) == HoppersConfig.EMPTY) {
+                    unjumps.add(jump);
+                }
+            }
+            if (unjumps.isEmpty()) {
+                return null;
+            }
+            int[] jump = unjumps.get(random.nextInt(unjumps.size()));
+            grid[jump[0] / cols][jump[0] % cols] = cell(grid, jump[2]);
+            grid[jump[1] / cols][jump[1] % cols] = HoppersConfig.GREEN_FROG;
+            grid[jump[2] / cols][jump[2] % cols] = HoppersConfig.EMPTY;
+        }
+        return new HoppersConfig(grid);
+    }
+
+    /**
+     * Get a cell of a grid by index
+     *
+     * @param grid the grid
+     * @param cell the index of the cell, row * cols + column
+     * @return the character in the cell
+     */
+    private char cell(char[][] grid, int cell) {
+        return grid[cell / cols][cell % cols];
+    }
+
+    /**
+     * Copy a grid
+     *
+     * @param grid the grid to copy
+     * @return a new grid with the same cells
+     */
+    private static char[][] copy(char[][] grid) {
+        char[][] result = new char[grid.length][];
+        for (int r = 0; r < grid.length; r++) {
+            result[r] = grid[r].clone();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,155 @@
+package puzzles.corpus;
+
+import puzzles.common.solver.PackedConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates puzzles that are sure to be solvable by starting from a solved
+ * board and running moves backwards until the board has enough pieces.
+ *
+ * Each puzzle gets its own random generator made from the seed and its
+ * index, so a run gives the same puzzles for the same seed however many
+ * threads generate them.
+ */
+public abstract class PuzzleGenerator {
+    /** puzzles generated in parallel before they are written out in order */
+    private final static int BATCH = 1 << 14;
+    /** mixes the puzzle index into the seed */
+    private final static long GOLDEN = 0x9E3779B97F4A7C15L;
+    /** attempts at one puzzle before giving up on the settings */
+    private final static int ATTEMPTS = 1000;
+
+    private final PuzzleKind kind;
+    protected final int rows;
+    protected final int cols;
+    protected final int pieces;
+
+    /**
+     * Create a generator
+     *
+     * @param kind the kind of puzzle made
+     * @param rows rows of every board
+     * @param cols columns of every board
+     * @param pieces the number of pieces on every board
+     */
+    protected PuzzleGenerator(PuzzleKind kind, int rows, int cols, int pieces) {
+        this.kind = kind;
+        this.rows = rows;
+        this.cols = cols;
+        this.pieces = pieces;
+    }
+
+    /**
+     * Try to make one puzzle. Backward moves can run out before the board has
+     * enough pieces, in which case the attempt fails.
+     *
+     * @param random the random generator of this puzzle
+     * @return a solvable board with the wanted number of pieces, or null
+     */
+    protected abstract PackedConfiguration attempt(SplittableRandom random);
+
+    /**
+     * Make the puzzle with some index
+     *
+     * @param seed the seed of the run
+     * @param index the index of the puzzle
+     * @return the puzzle
+     */
+    public PackedConfiguration generate(long seed, int index) {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * GOLDEN));
+        for (int i = 0; i < ATTEMPTS; i++) {
+            PackedConfiguration config = attempt(random);
+            if (config != null) {
+                return config;
+            }
+        }
+        throw new IllegalStateException("Cannot fit " + pieces + " pieces on a "
+                + rows + "x" + cols + " board");
+    }
+
+    /**
+     * Generate puzzles in parallel and write them out. An output ending in
+     * .pzc is written as one corpus, any other output is a directory that
+     * gets one text file per puzzle.
+     *
+     * @param count the number of puzzles
+     * @param seed the seed of the run
+     * @param out the corpus file or directory to write
+     * @throws IOException if the output cannot be written
+     */
+    public void generate(int count, long seed, Path out) throws IOException {
+        boolean corpus = out.toString().endsWith(".pzc");
+        CorpusWriter writer = null;
+        if (corpus) {
+            writer = new CorpusWriter(out, kind, rows, cols);
+        } else {
+            Files.createDirectories(out);
+        }
+        try {
+            for (int first = 0; first < count; first += BATCH) {
+                PackedConfiguration[] batch = IntStream.range(first, Math.min(count, first + BATCH))
+                        .parallel()
+                        .mapToObj(i -> generate(seed, i))
+                        .toArray(PackedConfiguration[]::new);
+                for (int i = 0; i < batch.length; i++) {
+                    if (corpus) {
+                        writer.write(batch[i]);
+                    } else {
+                        String name = kind.name().toLowerCase() + "-" + (first + i) + ".txt";
+                        Files.writeString(out.resolve(name), kind.toText(batch[i]));
+                    }
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Generate puzzles from the command line. Exits 2 if the settings are
+     * not numbers or can't make a puzzle, or the puzzles can't be written.
+     *
+     * @param args chess rows cols pieces mix count seed out, or
+     *             hoppers rows cols frogs count seed out
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 8 && args[0].equals("chess")) {
+                new ChessGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        Integer.parseInt(args[3]), args[4])
+                        .generate(Integer.parseInt(args[5]), Long.parseLong(args[6]), Path.of(args[7]));
+            } else if (args.length == 7 && args[0].equals("hoppers")) {
+                new HoppersGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        Integer.parseInt(args[3]))
+                        .generate(Integer.parseInt(args[4]), Long.parseLong(args[5]), Path.of(args[6]));
+            } else {
+                usage();
+            }
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            // a setting that is not a number, an unknown piece, or more pieces than the board holds
+            System.err.println(ex.getMessage());
+            usage();
+            System.exit(2);
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Print how to run the generator
+     */
+    private static void usage() {
+        System.out.println("Usage: java PuzzleGenerator chess rows cols pieces mix count seed out");
+        System.out.println("       java PuzzleGenerator hoppers rows cols frogs count seed out");
+        System.out.println("mix is the piece letters to pick from, e.g. BKNPQR or NNR");
+        System.out.println("out ending in .pzc is a corpus, otherwise a directory of text files");
+    }
+}
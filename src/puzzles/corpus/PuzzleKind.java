@@ -0,0 +1,168 @@
+package puzzles.corpus;
+
+import puzzles.chess.model.ChessConfig;
+import puzzles.common.solver.PackedConfiguration;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The puzzles that can be stored in a corpus, with what the corpus needs to
+ * know about each: how to read its text files and how to make an empty board
+ * of some size to unpack boards with.
+ */
+public enum PuzzleKind {
+    CHESS {
+        @Override
+        public PackedConfiguration read(String filename) throws IOException {
+            return new ChessConfig(filename);
+        }
+
+        @Override
+        public PackedConfiguration blank(int rows, int cols) {
+            return new ChessConfig(emptyGrid(rows, cols, ChessConfig.EMPTY));
+        }
+
+        @Override
+        public int getRows(PackedConfiguration config) {
+            return ((ChessConfig) config).getRows();
+        }
+
+        @Override
+        public int getCols(PackedConfiguration config) {
+            return ((ChessConfig) config).getCols();
+        }
+
+        @Override
+        public char getCell(PackedConfiguration config, int row, int col) {
+            return ((ChessConfig) config).getCellPiece(row, col);
+        }
+    },
+    HOPPERS {
+        @Override
+        public PackedConfiguration read(String filename) throws IOException {
+            return new HoppersConfig(filename);
+        }
+
+        @Override
+        public PackedConfiguration blank(int rows, int cols) {
+            return new HoppersConfig(emptyGrid(rows, cols, HoppersConfig.EMPTY));
+        }
+
+        @Override
+        public int getRows(PackedConfiguration config) {
+            return ((HoppersConfig) config).getRows();
+        }
+
+        @Override
+        public int getCols(PackedConfiguration config) {
+            return ((HoppersConfig) config).getColumns();
+        }
+
+        @Override
+        public char getCell(PackedConfiguration config, int row, int col) {
+            return ((HoppersConfig) config).getGrid()[row][col];
+        }
+    };
+
+    /**
+     * Read a puzzle from its text file
+     *
+     * @param filename the name of the file
+     * @return the config in the file
+     * @throws IOException if the file cannot be read
+     */
+    public abstract PackedConfiguration read(String filename) throws IOException;
+
+    /**
+     * Make a board with nothing on it, used to unpack boards of its size
+     *
+     * @param rows rows of the board
+     * @param cols columns of the board
+     * @return an empty config of that size
+     */
+    public abstract PackedConfiguration blank(int rows, int cols);
+
+    /**
+     * Get the number of rows of a config of this kind
+     *
+     * @param config the config
+     * @return its number of rows
+     */
+    public abstract int getRows(PackedConfiguration config);
+
+    /**
+     * Get the number of columns of a config of this kind
+     *
+     * @param config the config
+     * @return its number of columns
+     */
+    public abstract int getCols(PackedConfiguration config);
+
+    /**
+     * Get what is in a cell of a config of this kind
+     *
+     * @param config the config
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the character of the cell, as in the text files
+     */
+    public abstract char getCell(PackedConfiguration config, int row, int col);
+
+    /**
+     * Write a config in the text file format: the size on the first line,
+     * then one line per row with the cells separated by spaces
+     *
+     * @param config the config to write
+     * @return the text of the file
+     */
+    public String toText(PackedConfiguration config) {
+        int rows = getRows(config);
+        int cols = getCols(config);
+        StringBuilder sb = new StringBuilder();
+        sb.append(rows).append(' ').append(cols).append('\n');
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (c > 0) {
+                    sb.append(' ');
+                }
+                sb.append(getCell(config, r, c));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Find the kind from its name, ignoring case
+     *
+     * @param name "chess" or "hoppers"
+     * @return the kind with that name
+     * @throws IllegalArgumentException if no kind has that name
+     */
+    public static PuzzleKind fromName(String name) {
+        for (PuzzleKind kind : values()) {
+            if (kind.name().equalsIgnoreCase(name)) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Unknown puzzle kind " + name);
+    }
+
+    /**
+     * Make a grid filled with one character
+     *
+     * @param rows rows of the grid
+     * @param cols columns of the grid
+     * @param fill the character in every cell
+     * @return the grid
+     */
+    private static char[][] emptyGrid(int rows, int cols, char fill) {
+        char[][] grid = new char[rows][cols];
+        for (char[] row : grid) {
+            Arrays.fill(row, fill);
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,331 @@
+package puzzles.distributed;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.PackedConfiguration;
+import puzzles.common.solver.PackedKey;
+import puzzles.common.solver.SolutionWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Coordinates a breadth first search split across worker processes.
+ *
+ * Every worker owns the configs whose packed keys hash to it. The search
+ * goes one layer at a time: the coordinator tells every worker to expand,
+ * and the layer is over once every worker has reported back, which a
+ * worker only does after every other worker told it that it has sent all
+ * its batches. The search ends when a layer holds a solution or adds no
+ * configs. The path is then found by asking the owner of each config on it
+ * for its parent.
+ *
+ * Unlike {@link puzzles.common.solver.Solver}, whole layers are expanded,
+ * so the total config count includes the rest of the last layer.
+ */
+public class DistributedSolver {
+    private final String className;
+    private final String filename;
+    private final PackedConfiguration start;
+    private final List<InetSocketAddress> addresses;
+    private final List<DataInputStream> ins = new ArrayList<>();
+    private final List<DataOutputStream> outs = new ArrayList<>();
+    private final List<Socket> sockets = new ArrayList<>();
+    private int words;
+    private long totalConfig;
+    private long uniqueConfig;
+    private int layers;
+
+    /**
+     * Create a coordinator for workers that are already listening
+     *
+     * @param className the name of the config class of the puzzle
+     * @param filename the puzzle file, which every worker loads
+     * @param addresses the address of each worker
+     * @throws IOException if the puzzle cannot be loaded
+     */
+    public DistributedSolver(String className, String filename, List<InetSocketAddress> addresses)
+            throws IOException {
+        this.className = className;
+        this.filename = filename;
+        this.start = Protocol.loadStart(className, filename);
+        this.addresses = addresses;
+    }
+
+    /**
+     * Start worker processes on this machine with the same java and
+     * module or class path as this process. If one fails to start, the
+     * ones already started are destroyed.
+     *
+     * @param count the number of workers
+     * @param processes filled with the processes started, for the caller to destroy when the search ends
+     * @return the address of each worker
+     * @throws IOException if a worker cannot be started
+     */
+    public static List<InetSocketAddress> spawnWorkers(int count, List<Process> processes) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        String modulePath = System.getProperty("jdk.module.path");
+        Module module = SearchWorker.class.getModule();
+        if (modulePath != null && module.isNamed()) {
+            command.add("--module-path");
+            command.add(modulePath);
+            command.add("-m");
+            command.add(module.getName() + "/" + SearchWorker.class.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(SearchWorker.class.getName());
+        }
+        command.add("0");
+
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                Process process = new ProcessBuilder(command)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                String line = reader.readLine();
+                if (line == null || !line.matches("Listening on port \\d+")) {
+                    throw new IOException("Worker " + i + " did not start");
+                }
+                int port = Integer.parseInt(line.substring("Listening on port ".length()));
+                addresses.add(new InetSocketAddress("localhost", port));
+            }
+        } catch (IOException ex) {
+            destroy(processes);
+            throw ex;
+        }
+        return addresses;
+    }
+
+    /**
+     * Kill worker processes that are still running
+     *
+     * @param processes the processes, emptied once they are gone
+     */
+    public static void destroy(List<Process> processes) {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        processes.clear();
+    }
+
+    /**
+     * Run the search
+     *
+     * @return the path to the closest solution, or an empty list if there is none
+     * @throws IOException if a worker fails
+     */
+    public List<Configuration> solve() throws IOException {
+        totalConfig = 1;
+        uniqueConfig = 1;
+        layers = 0;
+        PackedKey startKey = PackedKey.of(start);
+        words = startKey.getWords().length;
+        connect();
+        try {
+            if (start.isSolution()) {
+                List<Configuration> path = new LinkedList<>();
+                path.add(start);
+                return path;
+            }
+            while (true) {
+                for (DataOutputStream out : outs) {
+                    out.writeInt(Protocol.EXPAND);
+                    out.flush();
+                }
+                long added = 0;
+                PackedKey goal = null;
+                for (DataInputStream in : ins) {
+                    expect(in, Protocol.LAYER_DONE);
+                    totalConfig += in.readLong();
+                    added += in.readLong();
+                    if (in.readBoolean()) {
+                        PackedKey found = Protocol.readKey(in, words);
+                        if (goal == null) {
+                            goal = found;
+                        }
+                    }
+                }
+                layers++;
+                uniqueConfig += added;
+                if (goal != null) {
+                    return path(goal);
+                }
+                if (added == 0) {
+                    return new LinkedList<>();
+                }
+            }
+        } finally {
+            disconnect();
+        }
+    }
+
+    /**
+     * Connect to every worker, send the setup and wait until they are all
+     * connected to each other
+     *
+     * @throws IOException if a worker cannot be reached
+     */
+    private void connect() throws IOException {
+        for (InetSocketAddress address : addresses) {
+            Socket socket = new Socket(address.getHostString(), address.getPort());
+            sockets.add(socket);
+            ins.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(Protocol.COORDINATOR);
+            outs.add(out);
+        }
+        for (int i = 0; i < outs.size(); i++) {
+            DataOutputStream out = outs.get(i);
+            out.writeInt(Protocol.SETUP);
+            out.writeUTF(className);
+            out.writeUTF(filename);
+            out.writeInt(i);
+            out.writeInt(addresses.size());
+            for (InetSocketAddress address : addresses) {
+                out.writeUTF(address.getHostString());
+                out.writeInt(address.getPort());
+            }
+            out.flush();
+        }
+        for (DataInputStream in : ins) {
+            expect(in, Protocol.READY);
+        }
+    }
+
+    /**
+     * Tell every worker the search is over and close the connections. A
+     * worker that has already gone is skipped, so a failed search still
+     * stops the others.
+     *
+     * @throws IOException if a connection cannot be closed
+     */
+    private void disconnect() throws IOException {
+        for (DataOutputStream out : outs) {
+            try {
+                out.writeInt(Protocol.STOP);
+                out.flush();
+            } catch (IOException ex) {
+                // the worker is gone, and its failure is already being reported
+            }
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        sockets.clear();
+        ins.clear();
+        outs.clear();
+    }
+
+    /**
+     * Build the path to a goal by asking the owner of each config for its parent
+     *
+     * @param goal the key of the goal
+     * @return the path from the start to the goal
+     * @throws IOException if a worker fails
+     */
+    private List<Configuration> path(PackedKey goal) throws IOException {
+        List<Configuration> path = new LinkedList<>();
+        PackedKey key = goal;
+        while (key != null) {
+            path.add(0, start.unpack(key.getWords()));
+            int owner = Protocol.ownerOf(key, addresses.size());
+            DataOutputStream out = outs.get(owner);
+            out.writeInt(Protocol.PARENT);
+            Protocol.writeKey(out, key);
+            out.flush();
+            DataInputStream in = ins.get(owner);
+            expect(in, Protocol.PARENT_REPLY);
+            key = in.readBoolean() ? Protocol.readKey(in, words) : null;
+        }
+        return path;
+    }
+
+    /**
+     * Read a reply and check its type
+     *
+     * @param in the stream from a worker
+     * @param type the reply expected
+     * @throws IOException if the reply is something else, or the worker is gone
+     */
+    private static void expect(DataInputStream in, int type) throws IOException {
+        int reply;
+        try {
+            reply = in.readInt();
+        } catch (EOFException ex) {
+            throw new IOException("A worker closed its connection, see its error above", ex);
+        }
+        if (reply != type) {
+            throw new IOException("Expected reply " + type + " but got " + reply);
+        }
+    }
+
+    /**
+     * Run the search and print the counts and the path like the solver does
+     *
+     * @throws IOException if a worker fails
+     */
+    public void solveAndPrint() throws IOException {
+        List<Configuration> path = solve();
+        SolutionWriter writer = new SolutionWriter(System.out, SolutionWriter.Format.BOARDS);
+        writer.begin(null);
+        writer.writeCount("Workers", addresses.size());
+        writer.writeCount("Layers", layers);
+        writer.writeCount("Total configs", totalConfig);
+        writer.writeCount("Unique configs", uniqueConfig);
+        writer.writePath(path);
+        writer.flush();
+    }
+
+    /**
+     * Solve a puzzle with worker processes
+     *
+     * @param args java DistributedSolver class filename --spawn n, or
+     *             java DistributedSolver class filename host:port...
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java DistributedSolver class filename --spawn n");
+            System.out.println("       java DistributedSolver class filename host:port...");
+            System.out.println("class is the config class, e.g. puzzles.hoppers.model.HoppersConfig");
+            System.out.println("workers started by hand run java SearchWorker port");
+            return;
+        }
+        List<Process> processes = new ArrayList<>();
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            if (args[2].equals("--spawn") && args.length == 4) {
+                addresses = spawnWorkers(Integer.parseInt(args[3]), processes);
+            } else {
+                for (int i = 2; i < args.length; i++) {
+                    int colon = args[i].lastIndexOf(':');
+                    addresses.add(new InetSocketAddress(args[i].substring(0, colon),
+                            Integer.parseInt(args[i].substring(colon + 1))));
+                }
+            }
+            System.out.println("File: " + args[1]);
+            new DistributedSolver(args[0], args[1], addresses).solveAndPrint();
+        } catch (IOException ex) {
+            // exit skips the finally, so the workers are destroyed first
+            destroy(processes);
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        } finally {
+            destroy(processes);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package puzzles.distributed;
+
+import puzzles.common.solver.PackedConfiguration;
+import puzzles.common.solver.PackedKey;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The messages passed between the coordinator and the workers of a
+ * distributed search, and the helpers they share.
+ *
+ * Every connection starts with a hello int: {@link #COORDINATOR} from the
+ * coordinator, or the index of the worker that opened it. The coordinator
+ * sends commands and waits for one reply from each worker. Workers send
+ * each other batches of new configs and an end marker once they have
+ * expanded their part of a layer.
+ */
+final class Protocol {
+    /** hello sent by the coordinator */
+    final static int COORDINATOR = -1;
+
+    /** coordinator to worker: class name, file name, index, worker count, then each worker's host and port */
+    final static int SETUP = 1;
+    /** coordinator to worker: expand the current layer */
+    final static int EXPAND = 2;
+    /** coordinator to worker: a packed key to find the parent of */
+    final static int PARENT = 3;
+    /** coordinator to worker: the search is over */
+    final static int STOP = 4;
+
+    /** worker to coordinator: connected to every other worker */
+    final static int READY = 10;
+    /** worker to coordinator: configs generated, configs added, whether a goal was found and its key */
+    final static int LAYER_DONE = 11;
+    /** worker to coordinator: whether there is a parent, and its key */
+    final static int PARENT_REPLY = 12;
+
+    /** worker to worker: a count, then pairs of config and parent keys */
+    final static int BATCH = 20;
+    /** worker to worker: all batches of this layer were sent */
+    final static int END = 21;
+
+    private Protocol() {
+    }
+
+    /**
+     * Load the start config of a puzzle from its file, by calling the
+     * constructor of the config class that takes a file name
+     *
+     * @param className the name of a {@link PackedConfiguration} class
+     * @param filename the puzzle file
+     * @return the start config
+     * @throws IOException if the class cannot make a config from the file
+     */
+    static PackedConfiguration loadStart(String className, String filename) throws IOException {
+        try {
+            Object config = Class.forName(className).getConstructor(String.class).newInstance(filename);
+            if (!(config instanceof PackedConfiguration packed)) {
+                throw new IOException(className + " configs cannot be packed");
+            }
+            return packed;
+        } catch (ReflectiveOperationException ex) {
+            throw new IOException("Cannot load " + filename + " as " + className, ex);
+        }
+    }
+
+    /**
+     * Find the worker that owns a config
+     *
+     * @param key the packed key of the config
+     * @param workers the number of workers
+     * @return the index of the owning worker
+     */
+    static int ownerOf(PackedKey key, int workers) {
+        // spread the hash so that similar boards are split across workers
+        int hash = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), workers);
+    }
+
+    /**
+     * Write the words of a packed key
+     *
+     * @param out the stream
+     * @param key the key
+     * @throws IOException if the stream fails
+     */
+    static void writeKey(DataOutputStream out, PackedKey key) throws IOException {
+        for (long word : key.getWords()) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Read the words of a packed key
+     *
+     * @param in the stream
+     * @param words the number of words in a key
+     * @return the key
+     * @throws IOException if the stream fails
+     */
+    static PackedKey readKey(DataInputStream in, int words) throws IOException {
+        long[] packed = new long[words];
+        for (int i = 0; i < words; i++) {
+            packed[i] = in.readLong();
+        }
+        return new PackedKey(packed);
+    }
+}
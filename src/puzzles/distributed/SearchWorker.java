@@ -0,0 +1,368 @@
+package puzzles.distributed;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.PackedConfiguration;
+import puzzles.common.solver.PackedKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One process of a distributed search. A worker owns the configs whose
+ * packed keys hash to its index: it remembers their parents, and expands
+ * the ones in the current layer. New configs are sent in batches to the
+ * worker that owns them, which keeps them if they were not seen before.
+ */
+public class SearchWorker {
+    /** configs sent to another worker in one message */
+    private final static int BATCH_SIZE = 4096;
+    /** size of the buffer of each socket */
+    private final static int STREAM_BYTES = 1 << 16;
+
+    private final ServerSocket server;
+    private PackedConfiguration start;
+    private int index;
+    private int workers;
+    private int words;
+    /** streams to the other workers, null at this worker's index */
+    private DataOutputStream[] peers;
+    /** configs waiting to be sent to each worker, as key and parent pairs */
+    private List<List<PackedKey>> pending;
+
+    /** the parent of every config this worker owns, null for the start; guarded by this */
+    private final Map<PackedKey, PackedKey> parents = new HashMap<>();
+    /** the configs of the layer being expanded */
+    private List<PackedKey> frontier = new ArrayList<>();
+    /** the configs of the next layer found so far; guarded by this */
+    private List<PackedKey> next = new ArrayList<>();
+    /** a solution found in the next layer, or null; guarded by this */
+    private PackedKey goal;
+    /** the end markers received for this layer; guarded by this */
+    private int ends;
+    /** why a connection from another worker failed, or null; guarded by this */
+    private IOException failure;
+    /** set once the coordinator stops the search, after which connections may close; guarded by this */
+    private boolean stopped;
+
+    /**
+     * Create a worker listening on the loopback address
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public SearchWorker(int port) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Getter for the port the worker listens on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Serve one search: wait for the coordinator, connect to the other
+     * workers, then follow the coordinator's commands until it stops the search.
+     * Every connection is closed when it returns, so a failure here shows up
+     * at the coordinator and the other workers as a closed connection.
+     *
+     * @throws IOException if a connection fails
+     */
+    public void run() throws IOException {
+        Socket control = server.accept();
+        try {
+            serve(control);
+        } finally {
+            if (peers != null) {
+                for (DataOutputStream peer : peers) {
+                    if (peer != null) {
+                        peer.close();
+                    }
+                }
+            }
+            control.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Set up the search and follow the coordinator's commands
+     *
+     * @param control the connection from the coordinator
+     * @throws IOException if a connection fails
+     */
+    private void serve(Socket control) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(control.getInputStream(), STREAM_BYTES));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(control.getOutputStream(), STREAM_BYTES));
+        if (in.readInt() != Protocol.COORDINATOR || in.readInt() != Protocol.SETUP) {
+            throw new IOException("Expected the coordinator to set up the search");
+        }
+        setup(in);
+        out.writeInt(Protocol.READY);
+        out.flush();
+
+        while (true) {
+            int command = in.readInt();
+            if (command == Protocol.EXPAND) {
+                expand(out);
+            } else if (command == Protocol.PARENT) {
+                PackedKey parent;
+                synchronized (this) {
+                    parent = parents.get(Protocol.readKey(in, words));
+                }
+                out.writeInt(Protocol.PARENT_REPLY);
+                out.writeBoolean(parent != null);
+                if (parent != null) {
+                    Protocol.writeKey(out, parent);
+                }
+                out.flush();
+            } else if (command == Protocol.STOP) {
+                synchronized (this) {
+                    stopped = true;
+                }
+                return;
+            } else {
+                throw new IOException("Unknown command " + command);
+            }
+        }
+    }
+
+    /**
+     * Read the setup, load the puzzle and connect to the other workers
+     *
+     * @param in the stream from the coordinator
+     * @throws IOException if the puzzle cannot be loaded or a worker cannot be reached
+     */
+    private void setup(DataInputStream in) throws IOException {
+        String className = in.readUTF();
+        String filename = in.readUTF();
+        index = in.readInt();
+        workers = in.readInt();
+        String[] hosts = new String[workers];
+        int[] ports = new int[workers];
+        for (int i = 0; i < workers; i++) {
+            hosts[i] = in.readUTF();
+            ports[i] = in.readInt();
+        }
+        start = Protocol.loadStart(className, filename);
+        PackedKey startKey = PackedKey.of(start);
+        words = startKey.getWords().length;
+        if (Protocol.ownerOf(startKey, workers) == index) {
+            parents.put(startKey, null);
+            frontier.add(startKey);
+        }
+
+        // the other workers connect to us while we connect to them
+        Thread acceptor = new Thread(() -> {
+            try {
+                for (int i = 0; i < workers - 1; i++) {
+                    Socket socket = server.accept();
+                    Thread receiver = new Thread(() -> receive(socket), "receiver");
+                    receiver.setDaemon(true);
+                    receiver.start();
+                }
+            } catch (IOException ex) {
+                System.err.println("Worker " + index + ": " + ex.getMessage());
+            }
+        }, "acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        peers = new DataOutputStream[workers];
+        pending = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            pending.add(new ArrayList<>());
+            if (i != index) {
+                Socket socket = new Socket(hosts[i], ports[i]);
+                peers[i] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), STREAM_BYTES));
+                peers[i].writeInt(index);
+            }
+        }
+    }
+
+    /**
+     * Read batches from another worker until it closes the connection. A
+     * connection that fails or closes before the search is stopped is
+     * recorded, and wakes a layer waiting for its end marker.
+     *
+     * @param socket the connection from the other worker
+     */
+    private void receive(Socket socket) {
+        int peer = -1;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream(), STREAM_BYTES))) {
+            peer = in.readInt();
+            while (true) {
+                int type = in.readInt();
+                if (type == Protocol.BATCH) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        PackedKey key = Protocol.readKey(in, words);
+                        PackedKey parent = Protocol.readKey(in, words);
+                        add(key, parent);
+                    }
+                } else if (type == Protocol.END) {
+                    synchronized (this) {
+                        ends++;
+                        notifyAll();
+                    }
+                } else {
+                    throw new IOException("Unknown message " + type + " from worker " + peer);
+                }
+            }
+        } catch (EOFException ex) {
+            fail(new IOException("Worker " + peer + " closed its connection during the search", ex));
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    /**
+     * Record the first failure of a connection from another worker, unless
+     * the search is already over, and wake the layer waiting on it
+     *
+     * @param ex what went wrong
+     */
+    private synchronized void fail(IOException ex) {
+        if (!stopped && failure == null) {
+            failure = ex;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Keep a config this worker owns, unless it was seen before
+     *
+     * @param key the config
+     * @param parent the config it was reached from
+     */
+    private synchronized void add(PackedKey key, PackedKey parent) {
+        if (!parents.containsKey(key)) {
+            parents.put(key, parent);
+            next.add(key);
+            if (goal == null && start.unpack(key.getWords()).isSolution()) {
+                goal = key;
+            }
+        }
+    }
+
+    /**
+     * Expand every config of the current layer, send the new configs to
+     * their owners, wait for the other workers to finish the layer, and
+     * report to the coordinator
+     *
+     * @param out the stream to the coordinator
+     * @throws IOException if a connection fails, including one from another worker
+     */
+    private void expand(DataOutputStream out) throws IOException {
+        long generated = 0;
+        for (PackedKey key : frontier) {
+            for (Configuration neighbor : start.unpack(key.getWords()).getNeighbors()) {
+                generated++;
+                PackedKey child = PackedKey.of((PackedConfiguration) neighbor);
+                int owner = Protocol.ownerOf(child, workers);
+                if (owner == index) {
+                    add(child, key);
+                } else {
+                    List<PackedKey> batch = pending.get(owner);
+                    batch.add(child);
+                    batch.add(key);
+                    if (batch.size() == 2 * BATCH_SIZE) {
+                        send(owner);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < workers; i++) {
+            if (i != index) {
+                send(i);
+                peers[i].writeInt(Protocol.END);
+                peers[i].flush();
+            }
+        }
+
+        long added;
+        PackedKey found;
+        synchronized (this) {
+            while (ends < workers - 1 && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    throw new IOException("Interrupted while waiting for the layer", ex);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Worker " + index + ": " + failure.getMessage(), failure);
+            }
+            ends = 0;
+            added = next.size();
+            found = goal;
+            frontier = next;
+            next = new ArrayList<>();
+        }
+        out.writeInt(Protocol.LAYER_DONE);
+        out.writeLong(generated);
+        out.writeLong(added);
+        out.writeBoolean(found != null);
+        if (found != null) {
+            Protocol.writeKey(out, found);
+        }
+        out.flush();
+    }
+
+    /**
+     * Send the configs waiting for a worker as one batch
+     *
+     * @param owner the worker to send to
+     * @throws IOException if the connection fails
+     */
+    private void send(int owner) throws IOException {
+        List<PackedKey> batch = pending.get(owner);
+        if (batch.isEmpty()) {
+            return;
+        }
+        DataOutputStream peer = peers[owner];
+        peer.writeInt(Protocol.BATCH);
+        peer.writeInt(batch.size() / 2);
+        for (PackedKey key : batch) {
+            Protocol.writeKey(peer, key);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Start a worker and print the port it listens on, which a coordinator
+     * that started it reads
+     *
+     * @param args java SearchWorker port
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Usage: java SearchWorker port");
+            System.out.println("port 0 picks any free port");
+            return;
+        }
+        try {
+            SearchWorker worker = new SearchWorker(Integer.parseInt(args[0]));
+            System.out.println("Listening on port " + worker.getPort());
+            System.out.flush();
+            worker.run();
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
+}
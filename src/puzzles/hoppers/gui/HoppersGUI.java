@@ -3,50 +3,58 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.FileChooser;
+import puzzles.common.ModelEvent;
 import puzzles.common.Observer;
+import puzzles.common.gui.BoardCanvas;
+import puzzles.common.solver.Configuration;
 import puzzles.hoppers.model.HoppersConfig;
 import puzzles.hoppers.model.HoppersModel;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
  */
-public class HoppersGUI extends Application implements Observer<HoppersModel, String> {
+public class HoppersGUI extends Application implements Observer<HoppersModel, ModelEvent> {
     /** The size of all icons, in square dimension */
     private final static int ICON_SIZE = 75;
     /** the font size for labels and buttons */
     private final static int FONT_SIZE = 12;
+    /** the number of solution steps shown each second when playing */
+    private final static double PLAY_RATE = 4;
+    /** added to the message of a move after which the puzzle can no longer be solved */
+    private final static String LOSING_MOVE = "(no solution from here)";
 
     /** The resources directory is located directly underneath the gui package */
     private final static String RESOURCES_DIR = "resources/";
-    private final Image redFrog = new Image(Objects.requireNonNull(getClass().getResourceAsStream(RESOURCES_DIR + "red_frog.png")));
-    private final Image greenFrog = new Image(Objects.requireNonNull(getClass().getResourceAsStream(RESOURCES_DIR + "green_frog.png")));
-    private final Image lilyPad = new Image(Objects.requireNonNull(getClass().getResourceAsStream(RESOURCES_DIR + "lily_pad.png")));
-    private final Image water = new Image(Objects.requireNonNull(getClass().getResourceAsStream(RESOURCES_DIR + "water.png")));
     private HoppersModel model;
     private VBox root;
-    private GridPane gridPane;
+    /** the board, which only repaints the cells that change */
+    private BoardCanvas board;
     private FileChooser fileChooser;
 
     private String currentPath;
     private Label messageLabel = new Label();
     private Stage stage;
 
+    /**
+     * Create the gui, which JavaFX does before calling init
+     */
+    public HoppersGUI() {
+    }
+
     /**
      * Initializes the gui by creating the model and adding the gui as an observer
      * @throws IOException
@@ -54,41 +62,48 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
     public void init() throws IOException {
         String filename = getParameters().getRaw().get(0);
         this.model = new HoppersModel(filename);
-        this.model.addObserver(this);
+        // drawn on the JavaFX thread, once for each burst of events
+        this.model.addObserver(this, Platform::runLater);
     }
 
     /**
-     * Make a grid of buttons to represent the current model's grid
-     * @return a GridPane representing the current model's grid
+     * Make a canvas to show the current model's grid
+     * @return a canvas drawing the current model's grid
      */
-    private GridPane makeGrid() {
-        GridPane pane = new GridPane();
-        int rows = model.getCurrentConfig().getRows();
-        int cols = model.getCurrentConfig().getColumns();
-        char[][] grid = model.getCurrentConfig().getGrid();
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                Button currentButton = new Button();
-                currentButton.setMaxSize(ICON_SIZE, ICON_SIZE);
-                currentButton.setMinSize(ICON_SIZE, ICON_SIZE);
-                int finalR = r;
-                int finalC = c;
-                currentButton.setOnAction(e -> model.select(finalR, finalC));
-                switch (grid[r][c]) {
-                    case HoppersConfig.INVALID -> currentButton.setGraphic(new ImageView(water));
-                    case HoppersConfig.RED_FROG -> currentButton.setGraphic(new ImageView(redFrog));
-                    case HoppersConfig.GREEN_FROG -> currentButton.setGraphic(new ImageView(greenFrog));
-                    case HoppersConfig.EMPTY -> currentButton.setGraphic(new ImageView(lilyPad));
-                }
-                pane.add(currentButton, c, r);
-            }
+    private BoardCanvas makeGrid() {
+        BoardCanvas canvas = new BoardCanvas(ICON_SIZE, null);
+        canvas.setImage(HoppersConfig.INVALID, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "water.png"));
+        canvas.setImage(HoppersConfig.RED_FROG, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "red_frog.png"));
+        canvas.setImage(HoppersConfig.GREEN_FROG, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "green_frog.png"));
+        canvas.setImage(HoppersConfig.EMPTY, BoardCanvas.loadImage(getClass(), RESOURCES_DIR + "lily_pad.png"));
+        canvas.setOnCellClicked(model::select);
+        canvas.draw(model.getCurrentConfig().getGrid());
+        return canvas;
+    }
+
+    /**
+     * Animate the solution from the current config without changing the model, then show the model's grid again
+     */
+    private void playSolution() {
+        List<Configuration> path = model.getSolution();
+        if (path.isEmpty()) {
+            messageLabel.setText("No solution.");
+            return;
+        }
+        List<char[][]> frames = new ArrayList<>();
+        for (Configuration config : path) {
+            frames.add(((HoppersConfig) config).getGrid());
         }
-        return pane;
+        messageLabel.setText("Playing solution...");
+        board.play(frames, PLAY_RATE, () -> {
+            messageLabel.setText("Solution played in " + (path.size() - 1) + " jumps");
+            board.draw(model.getCurrentConfig().getGrid());
+        });
     }
 
     /**
-     * Make the load, reset, and hint buttons and put them in a hbox
-     * @return An Hbox holding the load, reset and hint buttons
+     * Make the load, reset, undo, redo, hint, and play buttons and put them in a hbox
+     * @return An Hbox holding the load, reset, undo, redo, hint and play buttons
      */
     private HBox makeLowerButtons() {
         Button loadButton = new Button("Load");
@@ -100,16 +115,22 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
         });
         Button resetButton = new Button("Reset");
         resetButton.setOnAction(e -> model.reset());
+        Button undoButton = new Button("Undo");
+        undoButton.setOnAction(e -> model.undo());
+        Button redoButton = new Button("Redo");
+        redoButton.setOnAction(e -> model.redo());
         Button hintButton = new Button("Hint");
         hintButton.setOnAction(e -> model.getHint());
+        Button playButton = new Button("Play");
+        playButton.setOnAction(e -> playSolution());
 
-        return new HBox(loadButton, resetButton, hintButton);
+        return new HBox(loadButton, resetButton, undoButton, redoButton, hintButton, playButton);
     }
 
     @Override
     public void start(Stage stage) throws Exception {
         this.stage = stage;
-        gridPane = makeGrid();
+        board = makeGrid();
         messageLabel = new Label("Loaded: " + getParameters().getRaw().get(0));
         messageLabel.setTextAlignment(TextAlignment.CENTER);
         HBox lowerButtons = makeLowerButtons();
@@ -120,7 +141,7 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
         String dataPath = currentPath + File.separator + "data" + File.separator + "hoppers";
         fileChooser.setInitialDirectory(new File(dataPath));
 
-        root = new VBox(messageLabel, gridPane, lowerButtons);
+        root = new VBox(messageLabel, board, lowerButtons);
         root.setAlignment(Pos.CENTER);
         Scene scene = new Scene(root);
         stage.setScene(scene);
@@ -129,11 +150,17 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
     }
 
     @Override
-    public void update(HoppersModel hoppersModel, String msg) {
-        messageLabel.setText(msg);
-        root.getChildren().remove(gridPane);
-        gridPane = makeGrid();
-        root.getChildren().add(1, gridPane);
+    public void update(HoppersModel hoppersModel, ModelEvent event) {
+        board.stop();
+        board.draw(event.getBoard());
+        // the labels come with a later copy of the event, worked out off this thread
+        if (event.getKind() == ModelEvent.Kind.MOVED && event.isLabelled() && !event.isSolvable()) {
+            messageLabel.setText(event.getMessage() + " " + LOSING_MOVE);
+        } else {
+            messageLabel.setText(event.getMessage());
+        }
+        // outline the moves of the selected piece that can still win
+        board.highlight(event.getWinningTargets());
         this.stage.sizeToScene();  // when a different sized puzzle is loaded
     }
 
@@ -0,0 +1,119 @@
+package puzzles.hoppers.model;
+
+import java.util.Arrays;
+
+/**
+ * A batch of hoppers states laid out as columns, for expanding a whole layer
+ * of a search at once. A state is a bitboard of its green frogs, one bit per
+ * cell split over some longs, and the cell of its red frog. Column w of the
+ * green frogs holds word w of every state, so a kernel reads the same word
+ * of many states from one array.
+ */
+public class FrontierBatch {
+    /** the longs of each state's green bitboard */
+    private final int words;
+    /** word w of the green frogs of state i is green[w][i] */
+    long[][] green;
+    /** the cell of the red frog of each state */
+    long[] red;
+    /** the index of the state each state was expanded from, or -1 */
+    int[] parent;
+    int size;
+
+    /**
+     * Create an empty batch
+     * @param words the longs in each green bitboard
+     * @param capacity the states it holds before growing
+     */
+    public FrontierBatch(int words, int capacity) {
+        this.words = words;
+        int room = Math.max(1, capacity);
+        this.green = new long[words][room];
+        this.red = new long[room];
+        this.parent = new int[room];
+    }
+
+    /**
+     * Make room for more states, keeping the ones held
+     * @param capacity the states it must hold
+     */
+    void ensure(int capacity) {
+        if (capacity <= red.length) {
+            return;
+        }
+        int room = Math.max(capacity, 2 * red.length);
+        for (int w = 0; w < words; w++) {
+            green[w] = Arrays.copyOf(green[w], room);
+        }
+        red = Arrays.copyOf(red, room);
+        parent = Arrays.copyOf(parent, room);
+    }
+
+    /**
+     * Add a state
+     * @param greenWords the green bitboard of the state
+     * @param redCell the cell of its red frog
+     * @param from the index of the state it came from, or -1
+     * @return the index of the state
+     */
+    public int add(long[] greenWords, long redCell, int from) {
+        ensure(size + 1);
+        for (int w = 0; w < words; w++) {
+            green[w][size] = greenWords[w];
+        }
+        red[size] = redCell;
+        parent[size] = from;
+        return size++;
+    }
+
+    /**
+     * Forget every state, keeping the room
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Getter for the number of states
+     * @return the states in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter for the longs of each bitboard
+     * @return the words of a green bitboard
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Getter for one word of a state's green frogs
+     * @param word the word
+     * @param state the index of the state
+     * @return the bits of that word
+     */
+    public long getGreen(int word, int state) {
+        return green[word][state];
+    }
+
+    /**
+     * Getter for a state's red frog
+     * @param state the index of the state
+     * @return the cell of its red frog
+     */
+    public long getRed(int state) {
+        return red[state];
+    }
+
+    /**
+     * Getter for where a state came from
+     * @param state the index of the state
+     * @return the index of the state it was expanded from, or -1
+     */
+    public int getParent(int state) {
+        return parent[state];
+    }
+}
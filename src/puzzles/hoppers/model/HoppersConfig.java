@@ -1,7 +1,11 @@
 package puzzles.hoppers.model;
 
 import puzzles.common.Coordinates;
+import puzzles.common.MoveHistory;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.MoveConfiguration;
+import puzzles.common.solver.MutableConfiguration;
+import puzzles.common.solver.PackedKey;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -14,15 +18,23 @@ import java.util.*;
  *
  * @author Cameron Wilson
  */
-public class HoppersConfig implements Configuration{
+public class HoppersConfig implements MutableConfiguration, MoveConfiguration {
     public final static char EMPTY = '.';
     public final static char RED_FROG = 'R';
     public final static char GREEN_FROG = 'G';
     public final static char INVALID = '*';
-    private static int rows;
-    private static int columns;
+    /** cell codes used when packing a grid, in code order */
+    private final static String CELL_CODES = ".GR*";
+    /** bits used for each cell of a packed grid */
+    private final static int CELL_BITS = 2;
+    /** bits used for a cell index in a move */
+    private final static int MOVE_CELL_BITS = 12;
+    private final static int MOVE_CELL_MASK = (1 << MOVE_CELL_BITS) - 1;
+    private final int rows;
+    private final int columns;
     private final char[][] grid;
-    private Set<Coordinates> frogPositions = new HashSet<>();
+    /** the frogs, null after a move made in place until they are asked for */
+    private Set<Coordinates> frogPositions = new TreeSet<>();
 
     /**
      * Creates a HoppersConfig with a specified input filename
@@ -50,12 +62,31 @@ public class HoppersConfig implements Configuration{
         }
     }
 
+    /**
+     * Creates a HoppersConfig from a grid of cells
+     * @param grid the grid, which is used without copying
+     */
+    public HoppersConfig(char[][] grid) {
+        this.rows = grid.length;
+        this.columns = grid[0].length;
+        this.grid = grid;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (grid[i][j] == RED_FROG || grid[i][j] == GREEN_FROG) {
+                    frogPositions.add(new Coordinates(i, j));
+                }
+            }
+        }
+    }
+
     /**
      * Copy constructor, does a copy of all values of another config
      * @param other the HopperConfig to copy from
      */
     private HoppersConfig(HoppersConfig other) {
-        this.frogPositions = new HashSet<>(other.frogPositions);
+        this.rows = other.rows;
+        this.columns = other.columns;
+        this.frogPositions = new TreeSet<>(other.getFrogPositions());
         this.grid = new char[rows][columns];
         for (int i = 0; i < rows; i++) {
             this.grid[i] = Arrays.copyOf(other.grid[i], columns);
@@ -86,6 +117,62 @@ public class HoppersConfig implements Configuration{
         return columns;
     }
 
+    /**
+     * Getter for the frog positions
+     * @return the coordinates of every frog on the grid
+     */
+    public Set<Coordinates> getFrogPositions() {
+        if (frogPositions == null) {
+            frogPositions = new TreeSet<>();
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    if (grid[i][j] == RED_FROG || grid[i][j] == GREEN_FROG) {
+                        frogPositions.add(new Coordinates(i, j));
+                    }
+                }
+            }
+        }
+        return frogPositions;
+    }
+
+    /**
+     * Lists every jump the board geometry allows, whatever frogs are on it. Each jump is three cell indices
+     * (row * columns + column): the cell jumped from, the cell jumped over, and the cell landed on. Diagonal jumps
+     * go over a neighbor, horizontal and vertical jumps go over the cell two away and only start on even rows.
+     * @return the jumps as {from, over, to} triples
+     */
+    public List<int[]> getJumps() {
+        List<int[]> jumps = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (grid[r][c] == INVALID) {
+                    continue;
+                }
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        if (dr == 0 && dc == 0) {
+                            continue;
+                        }
+                        // diagonal jumps go one cell over, straight jumps two cells over
+                        int step = (dr != 0 && dc != 0) ? 1 : 2;
+                        if (step == 2 && r % 2 != 0) {
+                            continue;
+                        }
+                        int overRow = r + dr * step;
+                        int overCol = c + dc * step;
+                        int toRow = r + 2 * dr * step;
+                        int toCol = c + 2 * dc * step;
+                        if (toRow >= 0 && toRow < rows && toCol >= 0 && toCol < columns &&
+                                grid[overRow][overCol] != INVALID && grid[toRow][toCol] != INVALID) {
+                            jumps.add(new int[]{r * columns + c, overRow * columns + overCol, toRow * columns + toCol});
+                        }
+                    }
+                }
+            }
+        }
+        return jumps;
+    }
+
     /**
      * Returns whether this config is a solution or not
      *
@@ -115,7 +202,8 @@ public class HoppersConfig implements Configuration{
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof HoppersConfig otherConfig) {
-            return Arrays.deepEquals(otherConfig.grid, grid) && otherConfig.frogPositions.equals(frogPositions);
+            return Arrays.deepEquals(otherConfig.grid, grid) &&
+                    otherConfig.getFrogPositions().equals(getFrogPositions());
         }
         return false;
     }
@@ -127,7 +215,35 @@ public class HoppersConfig implements Configuration{
      */
     @Override
     public int hashCode() {
-        return rows + columns + Arrays.deepHashCode(grid) + frogPositions.hashCode();
+        return rows + columns + Arrays.deepHashCode(grid) + getFrogPositions().hashCode();
+    }
+
+    /**
+     * Packs the grid into longs, two bits per cell
+     * @return the packed grid
+     */
+    @Override
+    public long[] pack() {
+        return PackedKey.pack(grid, CELL_CODES, CELL_BITS);
+    }
+
+    /**
+     * Packs the grid into longs that are already there
+     * @param words where the packed grid goes
+     */
+    @Override
+    public void pack(long[] words) {
+        PackedKey.pack(grid, CELL_CODES, CELL_BITS, words);
+    }
+
+    /**
+     * Rebuilds a grid of this size from packed longs
+     * @param words the words made by {@link #pack()}
+     * @return the config of the packed grid
+     */
+    @Override
+    public HoppersConfig unpack(long[] words) {
+        return new HoppersConfig(PackedKey.unpack(words, rows, columns, CELL_CODES, CELL_BITS));
     }
 
     /**
@@ -196,6 +312,7 @@ public class HoppersConfig implements Configuration{
                             return false;
                         }
                     }
+                    getFrogPositions();
                     char temp = grid[rowFrom][colFrom];
                     grid[rowFrom][colFrom] = EMPTY;
                     grid[rowBetween][colBetween] = EMPTY;
@@ -210,6 +327,195 @@ public class HoppersConfig implements Configuration{
         return false;
     }
 
+    /**
+     * Takes back a jump made by makeMove. The frog returns to where it jumped from and the green frog it jumped over
+     * comes back, since only green frogs can be jumped.
+     * @param rowFrom the row the frog jumped from
+     * @param colFrom the column the frog jumped from
+     * @param rowTo the row the frog landed on
+     * @param colTo the column the frog landed on
+     */
+    public void undoMove(int rowFrom, int colFrom, int rowTo, int colTo) {
+        int rowBetween = (rowTo + rowFrom) / 2;
+        int colBetween = (colTo + colFrom) / 2;
+        getFrogPositions();
+        grid[rowFrom][colFrom] = grid[rowTo][colTo];
+        grid[rowBetween][colBetween] = GREEN_FROG;
+        grid[rowTo][colTo] = EMPTY;
+        frogPositions.remove(new Coordinates(rowTo, colTo));
+        frogPositions.add(new Coordinates(rowBetween, colBetween));
+        frogPositions.add(new Coordinates(rowFrom, colFrom));
+    }
+
+    /**
+     * Checks whether a frog can make a jump, following the same geometry as {@link #getJumps()}: a diagonal jump goes
+     * over a neighbor, a straight jump goes over the cell two away and starts on an even row, and only a green frog
+     * can be jumped over
+     * @param rowFrom the row to jump from
+     * @param colFrom the column to jump from
+     * @param rowTo the row to land on
+     * @param colTo the column to land on
+     * @return whether the jump is legal
+     */
+    public boolean canJump(int rowFrom, int colFrom, int rowTo, int colTo) {
+        if (rowFrom < 0 || rowFrom >= rows || colFrom < 0 || colFrom >= columns || rowTo < 0 || rowTo >= rows ||
+                colTo < 0 || colTo >= columns) {
+            return false;
+        }
+        char frog = grid[rowFrom][colFrom];
+        if ((frog != RED_FROG && frog != GREEN_FROG) || grid[rowTo][colTo] != EMPTY) {
+            return false;
+        }
+        int rowDistance = Math.abs(rowTo - rowFrom);
+        int colDistance = Math.abs(colTo - colFrom);
+        boolean diagonal = rowDistance == 2 && colDistance == 2;
+        boolean straight = rowFrom % 2 == 0 && ((rowDistance == 0 && colDistance == 4) ||
+                (rowDistance == 4 && colDistance == 0));
+        return (diagonal || straight) && grid[(rowFrom + rowTo) / 2][(colFrom + colTo) / 2] == GREEN_FROG;
+    }
+
+    /**
+     * Find the jump that turns this config into a neighbor. A jump empties two cells, the one jumped from and the one
+     * jumped over, and the one jumped over is halfway to the landing cell.
+     * @param neighbor the config after the jump
+     * @return the packed jump
+     */
+    @Override
+    public long findMove(Configuration neighbor) {
+        char[][] nextGrid = ((HoppersConfig) neighbor).grid;
+        Coordinates to = null;
+        List<Coordinates> cleared = new LinkedList<>();
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                if (grid[r][c] == EMPTY && nextGrid[r][c] != EMPTY) {
+                    to = new Coordinates(r, c);
+                } else if (grid[r][c] != EMPTY && nextGrid[r][c] == EMPTY) {
+                    cleared.add(new Coordinates(r, c));
+                }
+            }
+        }
+        Coordinates from = cleared.get(0);
+        Coordinates over = cleared.get(1);
+        if ((over.row() + to.row()) / 2 == from.row() && (over.col() + to.col()) / 2 == from.col()) {
+            from = over;
+        }
+        return MoveHistory.encode(from.row(), from.col(), to.row(), to.col(), 0);
+    }
+
+    /**
+     * Make a jump on a copy of this config, if it is legal
+     * @param move the packed jump
+     * @return the config after the jump, or null if it is not legal here
+     */
+    @Override
+    public Configuration afterMove(long move) {
+        int rowFrom = MoveHistory.fromRow(move);
+        int colFrom = MoveHistory.fromCol(move);
+        int rowTo = MoveHistory.toRow(move);
+        int colTo = MoveHistory.toCol(move);
+        if (!canJump(rowFrom, colFrom, rowTo, colTo)) {
+            return null;
+        }
+        HoppersConfig next = new HoppersConfig(this);
+        next.makeMove(rowFrom, colFrom, rowTo, colTo);
+        return next;
+    }
+
+    /**
+     * Each frog can make at most eight jumps
+     * @return eight for every cell of the grid
+     */
+    @Override
+    public int getMaxMoves() {
+        return rows * columns * 8;
+    }
+
+    /**
+     * Writes the jumps of every frog, in the order of {@link #getNeighbors()}. A move holds the cell jumped from
+     * and the cell landed on; the cell jumped over is halfway between them.
+     * @param moves the array to write into
+     * @param offset where in the array to start writing
+     * @return the number of moves written
+     */
+    @Override
+    public int generateMoves(int[] moves, int offset) {
+        int found = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (grid[r][c] != RED_FROG && grid[r][c] != GREEN_FROG) {
+                    continue;
+                }
+                // the same checks as getNeighbors, without making the children
+                for (int i = Math.max(0, r - 1); i <= Math.min(r + 1, rows - 1); i++) {
+                    for (int j = Math.max(0, c - 1); j <= Math.min(c + 1, columns - 1); j++) {
+                        int rowFurther = 2 * i - r;
+                        int colFurther = 2 * j - c;
+                        if ((i == r && j == c) || rowFurther < 0 || rowFurther >= rows ||
+                                colFurther < 0 || colFurther >= columns) {
+                            continue;
+                        }
+                        int rowTo = -1;
+                        int colTo = -1;
+                        if ((c == j || r == i) && grid[rowFurther][colFurther] == GREEN_FROG && r % 2 == 0) {
+                            int threeRowsFurther = 2 * (2 * rowFurther - i) - rowFurther;
+                            int threeColsFurther = 2 * (2 * colFurther - j) - colFurther;
+                            if (threeRowsFurther >= 0 && threeRowsFurther < rows && threeColsFurther >= 0 &&
+                                    threeColsFurther < columns &&
+                                    grid[threeRowsFurther][threeColsFurther] == EMPTY) {
+                                rowTo = threeRowsFurther;
+                                colTo = threeColsFurther;
+                            }
+                        } else if (grid[rowFurther][colFurther] == EMPTY && grid[i][j] == GREEN_FROG) {
+                            rowTo = rowFurther;
+                            colTo = colFurther;
+                        }
+                        if (rowTo != -1) {
+                            moves[offset + found] = (r * columns + c) | (rowTo * columns + colTo) << MOVE_CELL_BITS;
+                            found++;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Makes a jump on this grid. The frog positions are only found again when they are next asked for.
+     * @param move a move made by {@link #generateMoves(int[], int)}
+     */
+    @Override
+    public void applyMove(int move) {
+        int from = move & MOVE_CELL_MASK;
+        int to = (move >>> MOVE_CELL_BITS) & MOVE_CELL_MASK;
+        int rowFrom = from / columns;
+        int colFrom = from % columns;
+        int rowTo = to / columns;
+        int colTo = to % columns;
+        grid[rowTo][colTo] = grid[rowFrom][colFrom];
+        grid[(rowFrom + rowTo) / 2][(colFrom + colTo) / 2] = EMPTY;
+        grid[rowFrom][colFrom] = EMPTY;
+        frogPositions = null;
+    }
+
+    /**
+     * Takes back a jump made by {@link #applyMove(int)}, putting back the green frog jumped over
+     * @param move the move
+     */
+    @Override
+    public void undoMove(int move) {
+        int from = move & MOVE_CELL_MASK;
+        int to = (move >>> MOVE_CELL_BITS) & MOVE_CELL_MASK;
+        int rowFrom = from / columns;
+        int colFrom = from % columns;
+        int rowTo = to / columns;
+        int colTo = to % columns;
+        grid[rowFrom][colFrom] = grid[rowTo][colTo];
+        grid[(rowFrom + rowTo) / 2][(colFrom + colTo) / 2] = GREEN_FROG;
+        grid[rowTo][colTo] = EMPTY;
+        frogPositions = null;
+    }
+
     /**
      * Generates all neighbors/successors of this config
      *
@@ -219,7 +525,7 @@ public class HoppersConfig implements Configuration{
     public Collection<Configuration> getNeighbors() {
         List<Configuration> neighbors = new ArrayList<>();
         // Go through each frog's coordinates
-        for (Coordinates coord : frogPositions) {
+        for (Coordinates coord : getFrogPositions()) {
             // Go to the neighbors (within bounds)
             for (int i = Math.max(0, coord.row() - 1); i <= Math.min(coord.row() + 1, rows - 1); i++) {
                 for (int j = Math.max(0, coord.col() - 1); j <= Math.min(coord.col() + 1, columns - 1); j++) {
@@ -1,13 +1,19 @@
 package puzzles.hoppers.model;
 
 import puzzles.common.Coordinates;
+import puzzles.common.EventBus;
+import puzzles.common.ModelEvent;
+import puzzles.common.MoveHistory;
 import puzzles.common.Observer;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.HintPrefetcher;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.WinTable;
 
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class HoppersModel {
     private final static String MADE_MOVE = "Jumped from %1$s to %2$s";
@@ -18,28 +24,65 @@ public class HoppersModel {
     private final static String FAILED_LOADING = "Failed to load: %1$s";
     private final static String NO_SOLUTION = "No solution.";
     private final static String NEXT_STEP = "Next step!";
+    private final static String UNDID_MOVE = "Undid jump from %1$s to %2$s";
+    private final static String REDID_MOVE = "Redid jump from %1$s to %2$s";
+    private final static String NOTHING_TO_UNDO = "Nothing to undo.";
+    private final static String NOTHING_TO_REDO = "Nothing to redo.";
 
     public final static String RESET = "Puzzle reset!";
 
 
-    /** the collection of observers of this model */
-    private final List<Observer<HoppersModel, String>> observers = new LinkedList<>();
+    /** tells the observers of this model about its events */
+    private final EventBus<HoppersModel> events = new EventBus<>(this);
 
     /** the current configuration */
     private HoppersConfig currentConfig;
 
     private String currentFileName;
 
+    /** which configs of the loaded file can still be solved, labelled as they are asked about */
+    private WinTable wins;
+    /** rules out hints for configs that can never be solved, made for the board of each file loaded */
+    private ParityPruner parity;
+    /** the jumps made since loading */
+    private final MoveHistory history = new MoveHistory();
+
     private Coordinates currentSelection = null;
     private Coordinates lastSelection = null;
 
+    /** labels events off the thread that made them */
+    private final HintPrefetcher prefetcher = new HintPrefetcher();
+    /** true once a view wants labelled events, so a model nobody draws labels nothing */
+    private volatile boolean labelling;
+    /** the last event published, so the labelled copy of an older one is dropped */
+    private ModelEvent lastEvent;
+
     /**
      * The view calls this to add itself as an observer.
      *
      * @param observer the view
      */
     public void addObserver(Observer<HoppersModel, String> observer) {
-        this.observers.add(observer);
+        events.subscribe((model, event) -> {
+            if (!event.isLabelled()) {
+                observer.update(model, event.getMessage());
+            }
+        });
+    }
+
+    /**
+     * A view calls this to be told of events through an executor, such as
+     * the JavaFX thread's. Events that come faster than it runs are merged
+     * into the latest one, which has a copy of the board at that time.
+     * Each event is followed by a labelled copy once the background thread
+     * knows whether the board can be solved and which jumps can still win.
+     *
+     * @param observer the view
+     * @param executor runs the view's update
+     */
+    public void addObserver(Observer<HoppersModel, ModelEvent> observer, Executor executor) {
+        labelling = true;
+        events.subscribe(observer, executor);
     }
 
     /**
@@ -50,40 +93,178 @@ public class HoppersModel {
         try {
             currentConfig = new HoppersConfig(filename);
             currentFileName = filename;
-            alertObservers(String.format(LOADED_FILE, filename));
+            parity = new ParityPruner(currentConfig);
+            wins = new WinTable(currentConfig);
+            history.clear();
+            currentSelection = null;
+            lastSelection = null;
+            alertObservers(ModelEvent.Kind.LOADED, LOADED_FILE, filename);
         } catch (IOException e) {
-            alertObservers(String.format(FAILED_LOADING, filename));
+            alertObservers(ModelEvent.Kind.LOAD_FAILED, FAILED_LOADING, filename);
         }
     }
 
     /**
-     * Reset the model back to the original file's state
+     * Reset the model back to the original file's state by taking back every jump, without reading the file again.
+     * The jumps can still be redone.
      */
     public void reset() {
-        try {
-            currentConfig = new HoppersConfig(currentFileName);
-            currentSelection = null;
-            lastSelection = null;
-            alertObservers(RESET);
-        } catch (IOException e) {
-            System.err.println(e.getMessage());
+        while (history.canUndo()) {
+            revertMove(history.undo());
         }
+        currentSelection = null;
+        lastSelection = null;
+        alertObservers(ModelEvent.Kind.RESET, RESET);
+    }
+
+    /**
+     * Take back the last jump
+     */
+    public void undo() {
+        if (!history.canUndo()) {
+            alertObservers(ModelEvent.Kind.NOTHING_TO_DO, NOTHING_TO_UNDO);
+            return;
+        }
+        long move = history.undo();
+        revertMove(move);
+        currentSelection = null;
+        alertObservers(ModelEvent.Kind.UNDONE, UNDID_MOVE, from(move), to(move));
+    }
+
+    /**
+     * Make the last jump taken back again
+     */
+    public void redo() {
+        if (!history.canRedo()) {
+            alertObservers(ModelEvent.Kind.NOTHING_TO_DO, NOTHING_TO_REDO);
+            return;
+        }
+        long move = history.redo();
+        currentConfig.makeMove(MoveHistory.fromRow(move), MoveHistory.fromCol(move),
+                MoveHistory.toRow(move), MoveHistory.toCol(move));
+        currentSelection = null;
+        alertObservers(ModelEvent.Kind.REDONE, REDID_MOVE, from(move), to(move));
+    }
+
+    /**
+     * Take back a packed jump on the current config
+     * @param move the packed jump
+     */
+    private void revertMove(long move) {
+        currentConfig.undoMove(MoveHistory.fromRow(move), MoveHistory.fromCol(move),
+                MoveHistory.toRow(move), MoveHistory.toCol(move));
+    }
+
+    /**
+     * @param move a packed jump
+     * @return the cell jumped from
+     */
+    private static Coordinates from(long move) {
+        return new Coordinates(MoveHistory.fromRow(move), MoveHistory.fromCol(move));
+    }
+
+    /**
+     * @param move a packed jump
+     * @return the cell jumped to
+     */
+    private static Coordinates to(long move) {
+        return new Coordinates(MoveHistory.toRow(move), MoveHistory.toCol(move));
     }
 
     /**
-     * Find the correct next move
+     * Find the jump that turns the current config into the next one
+     * @param next the config after the jump
+     * @return the packed jump
+     */
+    private long findJump(HoppersConfig next) {
+        return currentConfig.findMove(next);
+    }
+
+    /**
+     * Make the first jump that leads to a config that can still be solved, looked up in the table of winning configs.
+     * A config the parity invariants rule out gets no solution straight away, without labelling anything.
      */
     public void getHint() {
-        Solver solver = new Solver(currentConfig);
-        List<Configuration> path = solver.solve();
-        if (path.size() <= 1) {
-            alertObservers(NO_SOLUTION);
-        } else {
-            currentConfig = (HoppersConfig) path.get(1);
-            alertObservers(NEXT_STEP);
+        if (!isSolvable() || currentConfig.isSolution()) {
+            alertObservers(ModelEvent.Kind.NO_HINT, NO_SOLUTION);
+            return;
+        }
+        for (Configuration neighbor : currentConfig.getNeighbors()) {
+            if (wins.isWinning((HoppersConfig) neighbor)) {
+                long move = findJump((HoppersConfig) neighbor);
+                currentConfig.makeMove(MoveHistory.fromRow(move), MoveHistory.fromCol(move),
+                        MoveHistory.toRow(move), MoveHistory.toCol(move));
+                history.record(move);
+                currentSelection = null;
+                alertObservers(ModelEvent.Kind.HINT, NEXT_STEP);
+                return;
+            }
         }
     }
 
+    /**
+     * Check whether the current config can still be solved
+     * @return true if some jumps from here reach a solution
+     */
+    public boolean isSolvable() {
+        return isSolvable(currentConfig, parity, wins);
+    }
+
+    /**
+     * Find the cells the selected frog can jump to and still leave a config that can be solved
+     * @return the cells of the winning jumps, empty if no frog is selected
+     */
+    public List<Coordinates> getWinningTargets() {
+        return winningTargets(currentConfig, currentSelection, wins);
+    }
+
+    /**
+     * Check whether a config can still be solved, asking the parity invariants first
+     * @param config the config
+     * @param parity the invariants of its board
+     * @param wins the labels of its board
+     * @return true if some jumps from it reach a solution
+     */
+    private static boolean isSolvable(HoppersConfig config, ParityPruner parity, WinTable wins) {
+        return !parity.isDead(config) && wins.isWinning(config);
+    }
+
+    /**
+     * Find the cells a frog can jump to and still leave a config that can be solved
+     * @param config the config, changed while each jump is tried and put back after
+     * @param selection the cell of the frog, or null
+     * @param wins the labels of its board
+     * @return the cells of the winning jumps, empty if there is no frog
+     */
+    private static List<Coordinates> winningTargets(HoppersConfig config, Coordinates selection, WinTable wins) {
+        List<Coordinates> targets = new LinkedList<>();
+        if (selection == null) {
+            return targets;
+        }
+        int row = selection.row();
+        int col = selection.col();
+        for (int r = 0; r < config.getRows(); r++) {
+            for (int c = 0; c < config.getColumns(); c++) {
+                if (config.canJump(row, col, r, c)) {
+                    config.makeMove(row, col, r, c);
+                    if (wins.isWinning(config)) {
+                        targets.add(new Coordinates(r, c));
+                    }
+                    config.undoMove(row, col, r, c);
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Solve the puzzle from the current config without changing it
+     * @return the configs from the current one to a solution, or an empty list if there is no solution
+     */
+    public List<Configuration> getSolution() {
+        return new Solver(currentConfig).solve();
+    }
+
     /**
      * Getter for the current config
      * @return the model's current config
@@ -102,31 +283,56 @@ public class HoppersModel {
         if (currentSelection == null) {
             currentSelection = new Coordinates(row, col);
             if (gridAt != HoppersConfig.EMPTY && gridAt != HoppersConfig.INVALID) {
-                alertObservers(String.format(SELECTED, currentSelection));
+                alertObservers(ModelEvent.Kind.SELECTED, SELECTED, currentSelection);
             } else {
-                alertObservers(String.format(INVALID_SELECT, currentSelection));
+                Coordinates invalid = currentSelection;
                 currentSelection = null;
+                alertObservers(ModelEvent.Kind.SELECTED, INVALID_SELECT, invalid);
             }
             lastSelection = currentSelection;
         } else {
             currentSelection = new Coordinates(row, col);
             if (currentConfig.makeMove(lastSelection.row(), lastSelection.col(), row, col)) {
-                alertObservers(String.format(MADE_MOVE, lastSelection, currentSelection));
+                history.record(MoveHistory.encode(lastSelection.row(), lastSelection.col(), row, col, 0));
+                alertObservers(ModelEvent.Kind.MOVED, MADE_MOVE, lastSelection, currentSelection);
             } else {
-                alertObservers(String.format(INVALID_MOVE, lastSelection, currentSelection));
+                alertObservers(ModelEvent.Kind.INVALID_MOVE, INVALID_MOVE, lastSelection, currentSelection);
             }
             currentSelection = null;
         }
     }
 
     /**
-     * The model's state has changed (the counter), so inform the view via
-     * the update method
+     * The model's state has changed, so inform the views with an event
+     * holding a copy of the board. If a view wants labels, they are worked
+     * out on a copy of the config in the background and published after.
+     * @param kind what happened
+     * @param format the message, formatted with the args only if a view reads it
+     * @param args the values put into the message
      */
-    private void alertObservers(String msg) {
-        for (var observer : observers) {
-            observer.update(this, msg);
+    private void alertObservers(ModelEvent.Kind kind, String format, Object... args) {
+        ModelEvent event = new ModelEvent(kind, ModelEvent.copy(currentConfig.getGrid()), format, args);
+        synchronized (events) {
+            lastEvent = event;
+            events.publish(event);
         }
+        if (!labelling) {
+            return;
+        }
+        HoppersConfig copy = currentConfig.unpack(currentConfig.pack());
+        // only a selection has winning targets to show
+        Coordinates selection = kind == ModelEvent.Kind.SELECTED ? currentSelection : null;
+        ParityPruner boardParity = parity;
+        WinTable boardWins = wins;
+        prefetcher.prefetch(() -> {
+            ModelEvent labelled = event.withLabels(isSolvable(copy, boardParity, boardWins),
+                    winningTargets(copy, selection, boardWins));
+            synchronized (events) {
+                if (lastEvent == event) {
+                    events.publish(labelled);
+                }
+            }
+        });
     }
 
     /**
@@ -137,5 +343,7 @@ public class HoppersModel {
     public HoppersModel(String filename) throws IOException {
         this.currentFileName = filename;
         this.currentConfig = new HoppersConfig(currentFileName);
+        this.parity = new ParityPruner(currentConfig);
+        this.wins = new WinTable(currentConfig);
     }
 }
@@ -0,0 +1,253 @@
+package puzzles.hoppers.model;
+
+import java.util.List;
+
+/**
+ * Makes every jump of a batch of hoppers states at once, writing the
+ * children into another batch. The board's jumps are turned into bit masks
+ * once, so checking a jump is a few mask tests instead of reading a grid of
+ * chars, and the same test runs down a column of states.
+ *
+ * Jumps are tried one at a time across the whole batch, so the children come
+ * out grouped by jump rather than by parent. This kernel is plain Java; a
+ * kernel on the incubating Vector API, which tests several states per
+ * instruction, lives in the BFSPuzzleSolver.vector module built from
+ * src-vector, and is used when the JVM is started with that module added.
+ * Only BatchBenchmark uses these kernels; the solvers don't.
+ */
+public class JumpKernel {
+    /** the module of the Vector API kernel, which is only there if asked for at startup */
+    private final static String VECTOR_MODULE = "BFSPuzzleSolver.vector";
+    private final static String VECTOR_KERNEL = "puzzles.hoppers.vector.VectorJumpKernel";
+
+    /** the board with its frogs taken off, for turning states back into configs */
+    private final char[][] pads;
+    private final int columns;
+    /** the longs in a green bitboard */
+    protected final int words;
+    /** the cells of each jump */
+    protected final int[] from;
+    protected final int[] over;
+    protected final int[] to;
+    /** the word of the bitboard holding each cell of each jump */
+    protected final int[] fromWord;
+    protected final int[] overWord;
+    protected final int[] toWord;
+    /** the bit within its word of each cell of each jump */
+    protected final long[] fromBit;
+    protected final long[] overBit;
+    protected final long[] toBit;
+
+    /**
+     * Turn the jumps of a board into masks
+     * @param config any config of the board
+     */
+    protected JumpKernel(HoppersConfig config) {
+        this.columns = config.getColumns();
+        this.pads = new char[config.getRows()][];
+        char[][] grid = config.getGrid();
+        for (int r = 0; r < grid.length; r++) {
+            pads[r] = grid[r].clone();
+            for (int c = 0; c < columns; c++) {
+                if (pads[r][c] == HoppersConfig.RED_FROG || pads[r][c] == HoppersConfig.GREEN_FROG) {
+                    pads[r][c] = HoppersConfig.EMPTY;
+                }
+            }
+        }
+        this.words = (config.getRows() * columns + 63) / 64;
+        List<int[]> jumps = config.getJumps();
+        int count = jumps.size();
+        from = new int[count];
+        over = new int[count];
+        to = new int[count];
+        fromWord = new int[count];
+        overWord = new int[count];
+        toWord = new int[count];
+        fromBit = new long[count];
+        overBit = new long[count];
+        toBit = new long[count];
+        for (int j = 0; j < count; j++) {
+            int[] jump = jumps.get(j);
+            from[j] = jump[0];
+            over[j] = jump[1];
+            to[j] = jump[2];
+            fromWord[j] = jump[0] >>> 6;
+            overWord[j] = jump[1] >>> 6;
+            toWord[j] = jump[2] >>> 6;
+            fromBit[j] = 1L << jump[0];
+            overBit[j] = 1L << jump[1];
+            toBit[j] = 1L << jump[2];
+        }
+    }
+
+    /**
+     * Check whether the Vector API kernel can be used by this run
+     * @return true if the JVM was started with the vector kernel's module
+     */
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Make a kernel for a board, on the Vector API if asked for and available
+     * and in plain Java otherwise
+     * @param config any config of the board
+     * @param vector whether to use the Vector API when it is there
+     * @return the kernel
+     */
+    public static JumpKernel of(HoppersConfig config, boolean vector) {
+        if (vector && isVectorAvailable()) {
+            try {
+                // loaded by name so this module never links against the incubating one
+                return (JumpKernel) Class.forName(VECTOR_KERNEL)
+                        .getConstructor(HoppersConfig.class).newInstance(config);
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                return new JumpKernel(config);
+            }
+        }
+        return new JumpKernel(config);
+    }
+
+    /**
+     * Getter for the name of the kernel, for reports
+     * @return what the kernel runs on
+     */
+    public String getName() {
+        return "scalar";
+    }
+
+    /**
+     * Make an empty batch for the states of this board
+     * @param capacity the states it holds before growing
+     * @return the batch
+     */
+    public FrontierBatch newBatch(int capacity) {
+        return new FrontierBatch(words, capacity);
+    }
+
+    /**
+     * Add a config to a batch
+     * @param batch the batch
+     * @param config a config of this kernel's board
+     * @param parent the index of the state it came from, or -1
+     * @return the index of the state
+     */
+    public int add(FrontierBatch batch, HoppersConfig config, int parent) {
+        long[] greenWords = new long[words];
+        long redCell = -1;
+        char[][] grid = config.getGrid();
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < columns; c++) {
+                int cell = r * columns + c;
+                if (grid[r][c] == HoppersConfig.GREEN_FROG) {
+                    greenWords[cell >>> 6] |= 1L << cell;
+                } else if (grid[r][c] == HoppersConfig.RED_FROG) {
+                    redCell = cell;
+                }
+            }
+        }
+        return batch.add(greenWords, redCell, parent);
+    }
+
+    /**
+     * Turn a state of a batch back into a config
+     * @param batch the batch
+     * @param state the index of the state
+     * @return the config
+     */
+    public HoppersConfig toConfig(FrontierBatch batch, int state) {
+        char[][] grid = new char[pads.length][];
+        for (int r = 0; r < pads.length; r++) {
+            grid[r] = pads[r].clone();
+            for (int c = 0; c < columns; c++) {
+                int cell = r * columns + c;
+                if ((batch.green[cell >>> 6][state] & (1L << cell)) != 0) {
+                    grid[r][c] = HoppersConfig.GREEN_FROG;
+                } else if (batch.red[state] == cell) {
+                    grid[r][c] = HoppersConfig.RED_FROG;
+                }
+            }
+        }
+        return new HoppersConfig(grid);
+    }
+
+    /**
+     * Make every jump of every state of a batch, adding the children to another
+     * @param in the states to expand
+     * @param out where the children are added, their parents being indices into in
+     * @return the number of children added
+     */
+    public int expand(FrontierBatch in, FrontierBatch out) {
+        int before = out.size;
+        for (int j = 0; j < from.length; j++) {
+            expand(j, in, 0, in.size, out);
+        }
+        return out.size - before;
+    }
+
+    /**
+     * Make one jump on a range of the states of a batch where it is legal
+     * @param j the jump
+     * @param in the states
+     * @param start the first state
+     * @param end one past the last state
+     * @param out where the children are added
+     */
+    protected void expand(int j, FrontierBatch in, int start, int end, FrontierBatch out) {
+        long[] fromColumn = in.green[fromWord[j]];
+        long[] overColumn = in.green[overWord[j]];
+        long[] toColumn = in.green[toWord[j]];
+        for (int i = start; i < end; i++) {
+            long redCell = in.red[i];
+            boolean greenFrom = (fromColumn[i] & fromBit[j]) != 0;
+            if ((overColumn[i] & overBit[j]) != 0 && (toColumn[i] & toBit[j]) == 0 && redCell != to[j]
+                    && (greenFrom || redCell == from[j])) {
+                emit(j, in, i, greenFrom, out);
+            }
+        }
+    }
+
+    /**
+     * Getter for one word of the green frogs of every state of a batch, for kernels in other packages
+     * @param batch the batch
+     * @param word the word of the bitboard
+     * @return that word of each state, indexed by state
+     */
+    protected static long[] greenColumn(FrontierBatch batch, int word) {
+        return batch.green[word];
+    }
+
+    /**
+     * Getter for the red frog of every state of a batch, for kernels in other packages
+     * @param batch the batch
+     * @return the red frog's cell in each state, indexed by state
+     */
+    protected static long[] redColumn(FrontierBatch batch) {
+        return batch.red;
+    }
+
+    /**
+     * Add the child of one legal jump
+     * @param j the jump
+     * @param in the states
+     * @param i the state jumping
+     * @param greenFrom true if a green frog jumps, false if the red one does
+     * @param out where the child is added
+     */
+    protected final void emit(int j, FrontierBatch in, int i, boolean greenFrom, FrontierBatch out) {
+        out.ensure(out.size + 1);
+        int k = out.size++;
+        for (int w = 0; w < words; w++) {
+            out.green[w][k] = in.green[w][i];
+        }
+        out.green[overWord[j]][k] ^= overBit[j];
+        if (greenFrom) {
+            out.green[fromWord[j]][k] ^= fromBit[j];
+            out.green[toWord[j]][k] ^= toBit[j];
+            out.red[k] = in.red[i];
+        } else {
+            out.red[k] = to[j];
+        }
+        out.parent[k] = i;
+    }
+}
@@ -0,0 +1,263 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.Coordinates;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Pruner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prunes hoppers configs with pagoda functions.
+ *
+ * A pagoda function gives each cell a weight so that no legal jump raises the total weight of the frogs: for every
+ * jump from a over b to c, w(c) <= w(a) + w(b). The weightings are derived from the jumps of the board geometry, so
+ * they hold for any config with the same board.
+ *
+ * The red frog must make the last jump, from some cell a over a green frog on b, and a must be a cell the red frog can
+ * reach by jumping. So while green frogs are left, the total weight can never drop below the smallest w(a) + w(b)
+ * over those last jumps. A config whose total is already lower can never be solved.
+ */
+public class PagodaPruner implements Pruner {
+    /** the most pagoda functions checked on each config */
+    private final static int MAX_PAGODAS = 16;
+    /** the most position classes whose unions are tried as pagoda functions */
+    private final static int MAX_CLASSES = 10;
+
+    private final int columns;
+    /** the weights of each pagoda function, indexed by cell */
+    private final List<long[]> pagodas = new ArrayList<>();
+    /** for each pagoda, the weight needed to finish with the red frog on each cell */
+    private final List<long[]> needs = new ArrayList<>();
+    private long checked;
+    private long pruned;
+
+    /**
+     * Derives the pagoda functions for the board of a config
+     * @param config any config with the board geometry to prune
+     */
+    public PagodaPruner(HoppersConfig config) {
+        int rows = config.getRows();
+        this.columns = config.getColumns();
+        int cells = rows * columns;
+        char[][] grid = config.getGrid();
+        List<int[]> jumps = config.getJumps();
+
+        // cells the red frog can ever jump to from each cell, found on the jump graph
+        boolean[][] reach = new boolean[cells][cells];
+        for (int start = 0; start < cells; start++) {
+            reach[start][start] = true;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int[] jump : jumps) {
+                    if (reach[start][jump[0]] && !reach[start][jump[2]]) {
+                        reach[start][jump[2]] = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // keep the pagoda functions that need the most weight for how much weight they give out
+        List<long[]> found = new ArrayList<>();
+        List<long[]> foundNeeds = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        for (long[] weights : candidates(grid, jumps)) {
+            if (!isPagoda(weights, jumps)) {
+                continue;
+            }
+            long[] need = new long[cells];
+            long totalNeed = 0;
+            long totalWeight = 0;
+            for (int red = 0; red < cells; red++) {
+                need[red] = Long.MAX_VALUE;
+                for (int[] jump : jumps) {
+                    if (reach[red][jump[0]]) {
+                        need[red] = Math.min(need[red], weights[jump[0]] + weights[jump[1]]);
+                    }
+                }
+                // with no last jump possible there is nothing to bound
+                if (need[red] == Long.MAX_VALUE) {
+                    need[red] = 0;
+                }
+                totalNeed += need[red];
+                totalWeight += weights[red];
+            }
+            if (totalNeed > 0) {
+                found.add(weights);
+                foundNeeds.add(need);
+                scores.add((double) totalNeed / totalWeight);
+            }
+        }
+        while (pagodas.size() < MAX_PAGODAS && !found.isEmpty()) {
+            int best = 0;
+            for (int i = 1; i < found.size(); i++) {
+                if (scores.get(i) > scores.get(best)) {
+                    best = i;
+                }
+            }
+            if (!containsWeights(found.get(best))) {
+                pagodas.add(found.get(best));
+                needs.add(foundNeeds.get(best));
+            }
+            found.remove(best);
+            foundNeeds.remove(best);
+            scores.remove(best);
+        }
+    }
+
+    /**
+     * Makes the candidate weightings, which are checked before being used. The first are the unions of position
+     * classes, cells grouped by row and column modulo 4, weighted 1. The rest come from weights falling away from a
+     * cell, lowered until no jump raises the total.
+     * @param grid the grid of the board
+     * @param jumps the jumps of the board
+     * @return the candidate weightings
+     */
+    private List<long[]> candidates(char[][] grid, List<int[]> jumps) {
+        int rows = grid.length;
+        int cells = rows * columns;
+        List<long[]> candidates = new ArrayList<>();
+
+        int[] classOf = new int[cells];
+        List<Integer> classes = new ArrayList<>();
+        for (int cell = 0; cell < cells; cell++) {
+            int key = (cell / columns % 4) * 4 + cell % columns % 4;
+            if (grid[cell / columns][cell % columns] == HoppersConfig.INVALID) {
+                classOf[cell] = -1;
+            } else {
+                if (!classes.contains(key)) {
+                    classes.add(key);
+                }
+                classOf[cell] = classes.indexOf(key);
+            }
+        }
+        int unions = classes.size() <= MAX_CLASSES ? 1 << classes.size() : 0;
+        for (int set = 1; set < unions; set++) {
+            long[] weights = new long[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                if (classOf[cell] >= 0 && (set & (1 << classOf[cell])) != 0) {
+                    weights[cell] = 1;
+                }
+            }
+            candidates.add(weights);
+        }
+
+        for (int peak = 0; peak < cells; peak++) {
+            if (classOf[peak] < 0) {
+                continue;
+            }
+            long[] weights = new long[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                int distance = Math.max(Math.abs(cell / columns - peak / columns),
+                        Math.abs(cell % columns - peak % columns));
+                weights[cell] = classOf[cell] < 0 ? 0 : 1L << Math.max(0, 8 - distance);
+            }
+            // lower the landing cells of jumps that would raise the total until none do
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int[] jump : jumps) {
+                    long limit = weights[jump[0]] + weights[jump[1]];
+                    if (weights[jump[2]] > limit) {
+                        weights[jump[2]] = limit;
+                        changed = true;
+                    }
+                }
+            }
+            candidates.add(weights);
+        }
+        return candidates;
+    }
+
+    /**
+     * Checks that no jump raises the total weight
+     * @param weights the weights to check
+     * @param jumps the jumps of the board
+     * @return true if the weights are a pagoda function
+     */
+    private static boolean isPagoda(long[] weights, List<int[]> jumps) {
+        for (int[] jump : jumps) {
+            if (weights[jump[2]] > weights[jump[0]] + weights[jump[1]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether some weights are already used
+     * @param weights the weights to look for
+     * @return true if an equal pagoda function is already used
+     */
+    private boolean containsWeights(long[] weights) {
+        for (long[] pagoda : pagodas) {
+            if (Arrays.equals(pagoda, weights)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a config has too little weight left to be solved, in time linear in the number of frogs
+     * @param config the config to check
+     * @return true if some pagoda function proves the config can never be solved
+     */
+    @Override
+    public boolean isDead(Configuration config) {
+        HoppersConfig hoppers = (HoppersConfig) config;
+        checked++;
+        if (hoppers.getFrogPositions().size() <= 1) {
+            return false;
+        }
+        int red = -1;
+        for (Coordinates frog : hoppers.getFrogPositions()) {
+            if (hoppers.getGrid()[frog.row()][frog.col()] == HoppersConfig.RED_FROG) {
+                red = frog.row() * columns + frog.col();
+            }
+        }
+        if (red < 0) {
+            return false;
+        }
+        for (int p = 0; p < pagodas.size(); p++) {
+            long[] weights = pagodas.get(p);
+            long total = 0;
+            for (Coordinates frog : hoppers.getFrogPositions()) {
+                total += weights[frog.row() * columns + frog.col()];
+            }
+            if (total < needs.get(p)[red]) {
+                pruned++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Getter for the number of pagoda functions in use
+     * @return the number of pagoda functions checked on each config
+     */
+    public int getPagodaCount() {
+        return pagodas.size();
+    }
+
+    /**
+     * Getter for the number of configs pruned
+     * @return the number of configs proven dead
+     */
+    public long getPruned() {
+        return pruned;
+    }
+
+    /**
+     * Prints how many configs were checked and pruned
+     */
+    public void printCounts() {
+        System.out.println("Pagoda functions: " + pagodas.size());
+        System.out.println("Checked configs: " + checked);
+        System.out.println("Pruned configs: " + pruned);
+    }
+}
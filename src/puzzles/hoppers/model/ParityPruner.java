@@ -0,0 +1,173 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Pruner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Prunes hoppers configs with parity invariants, the position class argument of peg solitaire.
+ *
+ * Write a config as the set of cells holding frogs. A jump from a over b to c empties a and b and fills c, so it flips
+ * exactly those three cells. Take any set of cells W that holds an even number of the three cells of every jump the
+ * board allows. Then no jump changes whether an odd or an even number of frogs sit on W. The sets W are found once for
+ * the board by Gaussian elimination over GF(2): they are the solutions of one equation per jump.
+ *
+ * A solution has one frog, the red one, on a cell it can jump to. So a config is dead if its parities on every W
+ * differ from those of a single frog on every cell the red frog can reach. Each config takes one pass over the grid.
+ */
+public class ParityPruner implements Pruner {
+    /** the most invariants kept, one bit of a signature each */
+    private final static int MAX_INVARIANTS = 64;
+
+    private final int columns;
+    /** for each cell, bit i is set if the cell is in the i-th invariant set */
+    private final long[] cellSignature;
+    /** for each cell of the red frog, the signatures of the solutions it can finish in */
+    private final List<Set<Long>> goals = new ArrayList<>();
+    private int invariants;
+    private long checked;
+    private long pruned;
+
+    /**
+     * Finds the invariants for the board of a config
+     * @param config any config with the board geometry to prune
+     */
+    public ParityPruner(HoppersConfig config) {
+        int rows = config.getRows();
+        this.columns = config.getColumns();
+        int cells = rows * columns;
+        List<int[]> jumps = config.getJumps();
+        this.cellSignature = new long[cells];
+
+        // the sets are the null space of the jumps, one row per jump and one column per cell
+        int words = (cells + 63) / 64;
+        List<long[]> matrix = new ArrayList<>();
+        for (int[] jump : jumps) {
+            long[] row = new long[words];
+            for (int cell : jump) {
+                row[cell / 64] ^= 1L << cell;
+            }
+            matrix.add(row);
+        }
+        int[] pivotRow = new int[cells];
+        int rank = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            pivotRow[cell] = -1;
+            int found = -1;
+            for (int r = rank; r < matrix.size(); r++) {
+                if ((matrix.get(r)[cell / 64] & (1L << cell)) != 0) {
+                    found = r;
+                    break;
+                }
+            }
+            if (found < 0) {
+                continue;
+            }
+            long[] pivot = matrix.get(found);
+            matrix.set(found, matrix.get(rank));
+            matrix.set(rank, pivot);
+            for (int r = 0; r < matrix.size(); r++) {
+                long[] row = matrix.get(r);
+                if (r != rank && (row[cell / 64] & (1L << cell)) != 0) {
+                    for (int w = 0; w < words; w++) {
+                        row[w] ^= pivot[w];
+                    }
+                }
+            }
+            pivotRow[cell] = rank;
+            rank++;
+        }
+
+        // each free cell that can hold a frog gives one set: itself plus the pivot cells its column reaches
+        char[][] grid = config.getGrid();
+        for (int free = 0; free < cells && invariants < MAX_INVARIANTS; free++) {
+            if (pivotRow[free] >= 0 || grid[free / columns][free % columns] == HoppersConfig.INVALID) {
+                continue;
+            }
+            long bit = 1L << invariants;
+            cellSignature[free] |= bit;
+            for (int cell = 0; cell < cells; cell++) {
+                if (pivotRow[cell] >= 0 && (matrix.get(pivotRow[cell])[free / 64] & (1L << free)) != 0) {
+                    cellSignature[cell] |= bit;
+                }
+            }
+            invariants++;
+        }
+
+        // cells the red frog can ever jump to from each cell, found on the jump graph
+        for (int red = 0; red < cells; red++) {
+            boolean[] reach = new boolean[cells];
+            reach[red] = true;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int[] jump : jumps) {
+                    if (reach[jump[0]] && !reach[jump[2]]) {
+                        reach[jump[2]] = true;
+                        changed = true;
+                    }
+                }
+            }
+            Set<Long> signatures = new HashSet<>();
+            for (int cell = 0; cell < cells; cell++) {
+                if (reach[cell]) {
+                    signatures.add(cellSignature[cell]);
+                }
+            }
+            goals.add(signatures);
+        }
+    }
+
+    /**
+     * Checks whether a config's parities rule out every solution, in one pass over the grid
+     * @param config the config to check
+     * @return true if the invariants prove the config can never be solved
+     */
+    @Override
+    public boolean isDead(Configuration config) {
+        char[][] grid = ((HoppersConfig) config).getGrid();
+        checked++;
+        long signature = 0;
+        int red = -1;
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < columns; c++) {
+                char cell = grid[r][c];
+                if (cell == HoppersConfig.RED_FROG || cell == HoppersConfig.GREEN_FROG) {
+                    signature ^= cellSignature[r * columns + c];
+                    if (cell == HoppersConfig.RED_FROG) {
+                        red = r * columns + c;
+                    }
+                }
+            }
+        }
+        if (red < 0) {
+            return false;
+        }
+        if (!goals.get(red).contains(signature)) {
+            pruned++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Getter for the number of invariants in use
+     * @return the number of parity invariants checked on each config
+     */
+    public int getInvariantCount() {
+        return invariants;
+    }
+
+    /**
+     * Prints how many configs were checked and pruned
+     */
+    public void printCounts() {
+        System.out.println("Parity invariants: " + invariants);
+        System.out.println("Checked configs: " + checked);
+        System.out.println("Pruned configs: " + pruned);
+    }
+}
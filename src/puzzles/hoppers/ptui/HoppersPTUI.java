@@ -4,6 +4,7 @@ import puzzles.common.Observer;
 import puzzles.hoppers.model.HoppersModel;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 /**
@@ -13,6 +14,23 @@ import java.util.Scanner;
 public class HoppersPTUI implements Observer<HoppersModel, String> {
     private HoppersModel model;
     private boolean initialized = false;
+    /** where everything is printed */
+    private final PrintStream out;
+
+    /**
+     * Creates a ptui that prints to standard output
+     */
+    public HoppersPTUI() {
+        this(System.out);
+    }
+
+    /**
+     * Creates a ptui that prints somewhere else, to run it without a console
+     * @param out where to print
+     */
+    public HoppersPTUI(PrintStream out) {
+        this.out = out;
+    }
 
     /**
      * Initializes the ptui by creating the model and adding the ptui as an observer
@@ -31,48 +49,63 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
     @Override
     public void update(HoppersModel model, String data) {
         if (!initialized) return;
-        System.out.println(data);
-        System.out.println(model.getCurrentConfig().prettyToString());
+        out.println(data);
+        out.println(model.getCurrentConfig().prettyToString());
     }
 
     /**
      * display the commands
      */
     private void displayHelp() {
-        System.out.println( "h(int)              -- hint next move" );
-        System.out.println( "l(oad) filename     -- load new puzzle file" );
-        System.out.println( "s(elect) r c        -- select cell at r, c" );
-        System.out.println( "q(uit)              -- quit the game" );
-        System.out.println( "r(eset)             -- reset the current game" );
+        out.println( "h(int)              -- hint next move" );
+        out.println( "l(oad) filename     -- load new puzzle file" );
+        out.println( "s(elect) r c        -- select cell at r, c" );
+        out.println( "q(uit)              -- quit the game" );
+        out.println( "r(eset)             -- reset the current game" );
+        out.println( "u(ndo)              -- take back the last move" );
+        out.println( "redo                -- make the last move taken back again" );
     }
 
     /**
-     * Check the system input for the commands and run them, if a command wasn't recognized, display help. If quit is
-     * inputted, stop running.
+     * Check the system input for the commands and run them, until quit is inputted
      */
     public void run() {
         Scanner in = new Scanner( System.in );
-        for ( ; ; ) {
-            System.out.print( "> " );
-            String line = in.nextLine();
-            String[] words = line.split( "\\s+" );
-            if (words.length > 0) {
-                if (words[0].startsWith( "q" )) {
-                    break;
-                } else if (words[0].startsWith("l")) {
-                    model.load(words[1]);
-                } else if (words[0].startsWith("h")) {
-                    model.getHint();
-                } else if (words[0].startsWith("s")) {
-                    model.select(Integer.parseInt(words[1]), Integer.parseInt(words[2]));
-                } else if (words[0].startsWith("r")) {
-                    model.reset();
-                }
-                else {
-                    displayHelp();
-                }
+        boolean running = true;
+        while (running) {
+            out.print( "> " );
+            running = execute(in.nextLine());
+        }
+    }
+
+    /**
+     * Runs one command, if the command wasn't recognized, display help
+     * @param line the command as inputted
+     * @return false if the command was quit, true otherwise
+     */
+    public boolean execute(String line) {
+        String[] words = line.split( "\\s+" );
+        if (words.length > 0) {
+            if (words[0].startsWith( "q" )) {
+                return false;
+            } else if (words[0].startsWith("l")) {
+                model.load(words[1]);
+            } else if (words[0].startsWith("h")) {
+                model.getHint();
+            } else if (words[0].startsWith("s")) {
+                model.select(Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+            } else if (words[0].startsWith("u")) {
+                model.undo();
+            } else if (words[0].equals("redo")) {
+                model.redo();
+            } else if (words[0].startsWith("r")) {
+                model.reset();
+            }
+            else {
+                displayHelp();
             }
         }
+        return true;
     }
 
     /**
@@ -0,0 +1,165 @@
+package puzzles.hoppers.solver;
+
+import puzzles.corpus.HoppersGenerator;
+import puzzles.hoppers.model.FrontierBatch;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.model.JumpKernel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Times the plain and Vector API jump kernels on batches of generated
+ * hoppers boards of each size asked for, and checks that both make the same
+ * children as getNeighbors. Each kernel is warmed up first, then the rounds
+ * of the two kernels are interleaved so both see the same machine.
+ *
+ * Run with --add-modules BFSPuzzleSolver.vector, the kernel built from
+ * src-vector, to time the vector kernel; without it both columns time the
+ * plain kernel.
+ */
+public class BatchBenchmark {
+    /** states whose children are checked against getNeighbors */
+    private final static int CHECKED = 64;
+    private final static int WARMUP_ROUNDS = 20;
+
+    /**
+     * Check a kernel's children of the first states of a batch against getNeighbors
+     * @param kernel the kernel
+     * @param in the states
+     * @param out the children the kernel made of them
+     * @return true if every state checked got exactly its neighbors
+     */
+    private static boolean check(JumpKernel kernel, FrontierBatch in, FrontierBatch out) {
+        for (int i = 0; i < Math.min(CHECKED, in.getSize()); i++) {
+            Set<HoppersConfig> children = new HashSet<>();
+            for (int k = 0; k < out.getSize(); k++) {
+                if (out.getParent(k) == i) {
+                    children.add(kernel.toConfig(out, k));
+                }
+            }
+            Set<Object> neighbors = new HashSet<>(kernel.toConfig(in, i).getNeighbors());
+            if (!neighbors.equals(children)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that two kernels made the same children in the same order
+     * @param first the children of one kernel
+     * @param second the children of the other
+     * @return true if they are the same
+     */
+    private static boolean same(FrontierBatch first, FrontierBatch second) {
+        if (first.getSize() != second.getSize()) {
+            return false;
+        }
+        for (int k = 0; k < first.getSize(); k++) {
+            if (first.getRed(k) != second.getRed(k) || first.getParent(k) != second.getParent(k)) {
+                return false;
+            }
+            for (int w = 0; w < first.getWords(); w++) {
+                if (first.getGreen(w, k) != second.getGreen(w, k)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Time one round of a kernel
+     * @param kernel the kernel
+     * @param in the states
+     * @param out the batch the children go in, emptied first
+     * @return the nanoseconds taken
+     */
+    private static long time(JumpKernel kernel, FrontierBatch in, FrontierBatch out) {
+        out.clear();
+        long start = System.nanoTime();
+        kernel.expand(in, out);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Time both kernels on one board size
+     * @param rows rows of the boards
+     * @param cols columns of the boards
+     * @param states the states in the batch
+     * @param rounds the timed rounds of each kernel
+     */
+    private static void run(int rows, int cols, int states, int rounds) {
+        int pads = (rows * cols + 1) / 2;
+        HoppersGenerator generator = new HoppersGenerator(rows, cols, Math.max(2, pads / 3));
+        HoppersConfig first = (HoppersConfig) generator.generate(1, 0);
+        JumpKernel scalar = JumpKernel.of(first, false);
+        JumpKernel vector = JumpKernel.of(first, true);
+        FrontierBatch in = scalar.newBatch(states);
+        for (int i = 0; i < states; i++) {
+            scalar.add(in, (HoppersConfig) generator.generate(1, i), -1);
+        }
+        FrontierBatch scalarOut = scalar.newBatch(states);
+        FrontierBatch vectorOut = vector.newBatch(states);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            time(scalar, in, scalarOut);
+            time(vector, in, vectorOut);
+        }
+        boolean correct = same(scalarOut, vectorOut) && check(scalar, in, scalarOut);
+
+        long scalarBest = Long.MAX_VALUE;
+        long vectorBest = Long.MAX_VALUE;
+        long scalarTotal = 0;
+        long vectorTotal = 0;
+        for (int i = 0; i < rounds; i++) {
+            long nanos = time(scalar, in, scalarOut);
+            scalarBest = Math.min(scalarBest, nanos);
+            scalarTotal += nanos;
+            nanos = time(vector, in, vectorOut);
+            vectorBest = Math.min(vectorBest, nanos);
+            vectorTotal += nanos;
+        }
+        System.out.printf("%-7s %6d %8d %9d %12.1f %12.1f %12.1f %12.1f %8.2f  %s %s%n", rows + "x" + cols,
+                first.getJumps().size(), states, scalarOut.getSize(),
+                (double) scalarTotal / rounds / states, (double) scalarBest / states,
+                (double) vectorTotal / rounds / states, (double) vectorBest / states,
+                (double) scalarBest / vectorBest, vector.getName(), correct ? "ok" : "MISMATCH");
+    }
+
+    /**
+     * Time the jump kernels
+     * @param args java BatchBenchmark [--states n] [--rounds n] [rowsxcols...]
+     */
+    public static void main(String[] args) {
+        int states = 4096;
+        int rounds = 50;
+        List<String> sizes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--states") && i + 1 < args.length) {
+                states = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--rounds") && i + 1 < args.length) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].matches("\\d+x\\d+")) {
+                sizes.add(args[i]);
+            } else {
+                System.out.println("Usage: java BatchBenchmark [--states n] [--rounds n] [rowsxcols...]");
+                return;
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes = List.of("5x5", "7x7", "9x9", "11x11", "13x13");
+        }
+        System.out.println("Vector API: " + (JumpKernel.isVectorAvailable()
+                ? "available" : "not available, start with --add-modules BFSPuzzleSolver.vector"));
+        System.out.printf("%-7s %6s %8s %9s %12s %12s %12s %12s %8s%n", "board", "jumps", "states", "children",
+                "scalar ns", "scalar best", "vector ns", "vector best", "speedup");
+        System.out.println("(nanoseconds per state expanded, mean and best round; speedup of the best rounds)");
+        for (String size : sizes) {
+            String[] field = size.split("x");
+            run(Integer.parseInt(field[0]), Integer.parseInt(field[1]), Math.max(1, states), Math.max(1, rounds));
+        }
+    }
+}
@@ -1,31 +1,268 @@
 package puzzles.hoppers.solver;
 
+import puzzles.common.solver.BitstateSearch;
+import puzzles.common.solver.CostEstimator;
+import puzzles.common.solver.DepthFirstSearch;
+import puzzles.common.solver.Fingerprint;
+import puzzles.common.solver.HeuristicSearch;
+import puzzles.common.solver.MoveList;
+import puzzles.common.solver.SearchTrace;
+import puzzles.common.solver.SolutionCounter;
+import puzzles.common.solver.SolutionWriter;
 import puzzles.common.solver.Solver;
 import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.model.PagodaPruner;
+import puzzles.hoppers.model.ParityPruner;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Solves a hoppers puzzle
  * @author Cameron Wilson
  */
 public class Hoppers {
+    /** configs expanded between checkpoints */
+    private final static long CHECKPOINT_INTERVAL = 100_000;
+    /** the searches a --format can be given before */
+    private final static String SEARCHES = "--(dfs|greedy|beam|bitstate|bitstate-hashcode)";
+
     /**
      * Create a config based on a specified input file, and then use the solver to solve it
-     * @param args java Hoppers filename
+     * @param args java Hoppers [--prune|--parity] filename, java Hoppers --count filename..., or
+     *             java Hoppers --checkpoint|--resume checkpointfile filename, or
+     *             java Hoppers --bitstate|--bitstate-hashcode logbits hashes filename, or
+     *             java Hoppers --beam width filename, or java Hoppers --greedy filename, or
+     *             java Hoppers --dfs filename, or java Hoppers --format moves|json|boards filename..., or
+     *             java Hoppers --format moves|json|boards followed by any of the four searches above, or
+     *             java Hoppers --replay filename solutionfile, or java Hoppers --trace tracefile filename, or
+     *             java Hoppers --estimate filename..., or
+     *             java Hoppers --admit solvemillis approximatemillis filename
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
+        SolutionWriter.Format format = SolutionWriter.Format.BOARDS;
+        if (args.length >= 4 && args[0].equals("--format") && args[2].matches(SEARCHES)) {
+            // write what the search after it finds as moves or a line of JSON, e.g. --format json --dfs filename
+            try {
+                format = SolutionWriter.formatOf(args[1]);
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Unknown format: " + args[1]);
+                return;
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        SolutionWriter writer = new SolutionWriter(System.out, format);
+        if (args.length >= 2 && args[0].equals("--count")) {
+            // count the solutions of every file given, without solving
+            for (int i = 1; i < args.length; i++) {
+                System.out.println("File: " + args[i]);
+                new SolutionCounter(new HoppersConfig(args[i])).countAndPrint();
+            }
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--prune")) {
+            // solve without expanding configs the pagoda functions prove dead
+            System.out.println("File: " + args[1]);
+            HoppersConfig initialConfig = new HoppersConfig(args[1]);
+            PagodaPruner pruner = new PagodaPruner(initialConfig);
+            System.out.println(initialConfig);
+            new Solver(initialConfig, pruner).solveAndPrint();
+            pruner.printCounts();
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--parity")) {
+            // solve without expanding configs the parity invariants prove dead
+            System.out.println("File: " + args[1]);
+            HoppersConfig initialConfig = new HoppersConfig(args[1]);
+            ParityPruner pruner = new ParityPruner(initialConfig);
+            System.out.println(initialConfig);
+            new Solver(initialConfig, pruner).solveAndPrint();
+            pruner.printCounts();
+            return;
+        }
+        if (args.length == 3 && (args[0].equals("--checkpoint") || args[0].equals("--resume"))) {
+            // save the search as it goes, and with --resume carry on from the last save
+            System.out.println("File: " + args[2]);
+            HoppersConfig initialConfig = new HoppersConfig(args[2]);
+            System.out.println(initialConfig);
+            Solver solver = new Solver(initialConfig);
+            solver.setCheckpoint(Path.of(args[1]), CHECKPOINT_INTERVAL, args[0].equals("--resume"));
+            try {
+                solver.solveAndPrint();
+            } catch (UncheckedIOException ex) {
+                // a checkpoint of another puzzle, a corrupt one, or one that can't be written
+                System.err.println(ex.getCause().getMessage());
+            }
+            return;
+        }
+        if (args.length == 4 && (args[0].equals("--bitstate") || args[0].equals("--bitstate-hashcode"))) {
+            // depth first with visited configs kept as bits of a Bloom filter, in bounded memory
+            HoppersConfig initialConfig = new HoppersConfig(args[3]);
+            Fingerprint fingerprint = args[0].equals("--bitstate") ? Fingerprint.PACKED : Fingerprint.HASH_CODE;
+            BitstateSearch search;
+            try {
+                search = new BitstateSearch(initialConfig, Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        fingerprint);
+            } catch (IllegalArgumentException ex) {
+                // not a number, or a table size or hash count out of range
+                System.out.println(ex.getMessage());
+                System.out.println("Usage: java Hoppers --bitstate|--bitstate-hashcode logbits hashes filename");
+                return;
+            }
+            printStart(args[3], initialConfig, format);
+            search.solveAndWrite(args[3], writer);
+            return;
+        }
+        if ((args.length == 3 && args[0].equals("--beam") && args[1].matches("[1-9]\\d{0,8}"))
+                || (args.length == 2 && args[0].equals("--greedy"))) {
+            // find any solution fast, expanding the frogs with the most jumps left first
+            String filename = args[args.length - 1];
+            HoppersConfig initialConfig = new HoppersConfig(filename);
+            printStart(filename, initialConfig, format);
+            HeuristicSearch search = new HeuristicSearch(initialConfig, HeuristicSearch.MOBILITY);
+            // a beam that finds nothing falls back to the greedy search, which is complete
+            search.write(filename, args[0].equals("--beam") ? search.solve(Integer.parseInt(args[1]))
+                    : search.greedy(), writer);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--dfs")) {
+            // depth first, making and taking back jumps on one grid
+            HoppersConfig initialConfig = new HoppersConfig(args[1]);
+            printStart(args[1], initialConfig, format);
+            new DepthFirstSearch(initialConfig).solveAndWrite(args[1], writer);
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--format")) {
+            // solve every file given, writing each solution as moves or a line of JSON
+            try {
+                writer = new SolutionWriter(System.out, SolutionWriter.formatOf(args[1]));
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Unknown format: " + args[1]);
+                return;
+            }
+            for (int i = 2; i < args.length; i++) {
+                HoppersConfig initialConfig = new HoppersConfig(args[i]);
+                ParityPruner parity = new ParityPruner(initialConfig);
+                Solver solver = parity.isDead(initialConfig) ? new Solver(initialConfig, parity)
+                        : new Solver(initialConfig);
+                solver.solveAndWrite(args[i], writer);
+            }
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--replay")) {
+            // rebuild the grids of a solution written as moves
+            HoppersConfig initialConfig = new HoppersConfig(args[1]);
+            List<Long> moves = MoveList.parse(Files.readString(Path.of(args[2])));
+            try {
+                writer.writeSteps(MoveList.replay(initialConfig, moves));
+            } catch (IllegalArgumentException ex) {
+                System.out.println(ex.getMessage());
+            }
+            writer.flush();
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--trace")) {
+            // record every expansion for TraceSummary to sum up
+            System.out.println("File: " + args[2]);
+            HoppersConfig initialConfig = new HoppersConfig(args[2]);
+            System.out.println(initialConfig);
+            try (SearchTrace trace = new SearchTrace(Path.of(args[1]))) {
+                Solver solver = new Solver(initialConfig);
+                solver.setTrace(trace);
+                solver.solveAndPrint();
+            }
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--estimate")) {
+            // guess the cost of each search, then run it to check the guess
+            for (int i = 1; i < args.length; i++) {
+                HoppersConfig initialConfig = new HoppersConfig(args[i]);
+                CostEstimator.Estimate estimate = new CostEstimator(initialConfig).estimate();
+                Solver solver = new Solver(initialConfig);
+                long begin = System.nanoTime();
+                solver.solve();
+                double millis = (System.nanoTime() - begin) / 1e6;
+                System.out.println("File: " + args[i]);
+                System.out.println(estimate.compare(solver.getTotalConfig(), millis));
+            }
+            return;
+        }
+        if (args.length == 4 && args[0].equals("--admit")
+                && isAdmitLimits(args[1], args[2])) {
+            // search in full only if the guess is cheap enough, greedily if it is not too dear
+            System.out.println("File: " + args[3]);
+            HoppersConfig initialConfig = new HoppersConfig(args[3]);
+            System.out.println(initialConfig);
+            CostEstimator.Estimate estimate = new CostEstimator(initialConfig).estimate();
+            System.out.println(estimate);
+            switch (estimate.decide(Double.parseDouble(args[1]), Double.parseDouble(args[2]))) {
+                case SOLVE -> new Solver(initialConfig).solveAndPrint();
+                case APPROXIMATE -> {
+                    HeuristicSearch search = new HeuristicSearch(initialConfig, HeuristicSearch.MOBILITY);
+                    search.print(search.greedy());
+                }
+                case REJECT -> System.out.println("Rejected: too dear to search");
+            }
+            return;
+        }
         if (args.length != 1) {
             System.out.println("Usage: java Hoppers filename");
+            System.out.println("       java Hoppers --prune filename");
+            System.out.println("       java Hoppers --parity filename");
+            System.out.println("       java Hoppers --count filename...");
+            System.out.println("       java Hoppers --checkpoint|--resume checkpointfile filename");
+            System.out.println("       java Hoppers --bitstate|--bitstate-hashcode logbits hashes filename");
+            System.out.println("       java Hoppers --beam width filename");
+            System.out.println("       java Hoppers --greedy filename");
+            System.out.println("       java Hoppers --dfs filename");
+            System.out.println("       java Hoppers --format moves|json|boards filename...");
+            System.out.println("       java Hoppers --format moves|json|boards --dfs|--greedy|--beam|--bitstate args...");
+            System.out.println("       java Hoppers --replay filename solutionfile");
+            System.out.println("       java Hoppers --trace tracefile filename");
+            System.out.println("       java Hoppers --estimate filename...");
+            System.out.println("       java Hoppers --admit solvemillis approximatemillis filename");
+            return;
         }
 
         System.out.println("File: " + args[0]);
         HoppersConfig initialConfig = new HoppersConfig(args[0]);
-        Solver solver = new Solver(initialConfig);
+        // a start the parity invariants rule out is answered without searching
+        ParityPruner parity = new ParityPruner(initialConfig);
+        Solver solver = parity.isDead(initialConfig) ? new Solver(initialConfig, parity) : new Solver(initialConfig);
 
         System.out.println(initialConfig);
 
         solver.solveAndPrint();
     }
+
+    /**
+     * Print the file and the start of a search whose solution is written as
+     * boards, leaving the moves and JSON to the writer alone
+     * @param filename the puzzle file
+     * @param initialConfig the start
+     * @param format how the solution is written
+     */
+    private static void printStart(String filename, HoppersConfig initialConfig, SolutionWriter.Format format) {
+        if (format == SolutionWriter.Format.BOARDS) {
+            System.out.println("File: " + filename);
+            System.out.println(initialConfig);
+        }
+    }
+
+    /**
+     * Check the limits given to --admit, before any puzzle is loaded or estimated
+     * @param solve the most milliseconds a full search may take
+     * @param approximate the most milliseconds before a search is turned down
+     * @return true if both are numbers of milliseconds and the first is no more than the second
+     */
+    private static boolean isAdmitLimits(String solve, String approximate) {
+        String millis = "\\d{1,9}(\\.\\d+)?";
+        return solve.matches(millis) && approximate.matches(millis)
+                && Double.parseDouble(solve) <= Double.parseDouble(approximate);
+    }
 }
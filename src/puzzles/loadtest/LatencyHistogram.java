@@ -0,0 +1,110 @@
+package puzzles.loadtest;
+
+/**
+ * A histogram of latencies in nanoseconds with a fixed relative precision,
+ * laid out like an HDR histogram. Values below 32 get a bucket each; above
+ * that every power of two is split into 32 buckets, so a value is known to
+ * within about 3% whatever its size, in a fixed 1920 buckets.
+ */
+public class LatencyHistogram {
+    /** bits of a value kept below its highest set bit */
+    private final static int SUB_BITS = 5;
+    private final static int SUB_BUCKETS = 1 << SUB_BITS;
+    private final static int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Find the bucket of a value
+     * @param value the value, at least 0
+     * @return the index of its bucket
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highest = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (highest - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (highest - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Find the largest value that falls in a bucket
+     * @param bucket the index of the bucket
+     * @return the highest value counted in it
+     */
+    private static long highestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int highest = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long low = (1L << highest) | ((long) (bucket % SUB_BUCKETS) << (highest - SUB_BITS));
+        return low + (1L << (highest - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Count a latency
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add the counts of another histogram to this one
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return the number of latencies counted
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean latency in nanoseconds, 0 if none were counted
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @return the largest latency counted, exactly
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the latency that a share of the counted latencies are at or below
+     * @param percentile the share, from 0 to 100
+     * @return the highest value of the bucket holding that latency, at most the max
+     */
+    public long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(highestIn(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,336 @@
+package puzzles.loadtest;
+
+import puzzles.chess.ptui.ChessPTUI;
+import puzzles.hoppers.ptui.HoppersPTUI;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays PTUI scripts without a console, many sessions at once, and
+ * records how long each kind of command takes. The first session runs the
+ * script as written and its transcript can be checked against a saved one;
+ * the others run variations of it with some commands swapped for random
+ * selections, hints, undos, redos and resets.
+ *
+ * Every session has its own PTUI and model, printing into memory. The
+ * latencies include printing the board, as a player would see them.
+ */
+public class PtuiLoadTester {
+    /** the kinds of command, in the order they are reported */
+    private final static String[] KINDS = {"load", "select", "hint", "reset", "undo", "redo", "other"};
+    /** the chance that a variation swaps out a command */
+    private final static double SWAP_CHANCE = 0.3;
+
+    /**
+     * One PTUI being driven
+     */
+    private interface Session {
+        /**
+         * @param line the command to run
+         * @return false if it was quit
+         */
+        boolean execute(String line);
+    }
+
+    /**
+     * What a session left behind
+     * @param transcript everything it printed
+     * @param latencies the histogram of each kind of command
+     * @param failures a line for each command that threw an exception
+     */
+    private record Result(String transcript, Map<String, LatencyHistogram> latencies, List<String> failures) {
+    }
+
+    private final String puzzle;
+    private final String filename;
+    private final List<String> script;
+
+    /**
+     * Create a tester
+     * @param puzzle chess or hoppers
+     * @param filename the puzzle file each session starts with
+     * @param script the commands of the script
+     */
+    public PtuiLoadTester(String puzzle, String filename, List<String> script) {
+        this.puzzle = puzzle;
+        this.filename = filename;
+        this.script = script;
+    }
+
+    /**
+     * Start a PTUI for a session
+     * @param out where it prints
+     * @return the session
+     * @throws IOException if the puzzle file can't be read
+     */
+    private Session open(PrintStream out) throws IOException {
+        if (puzzle.equals("chess")) {
+            ChessPTUI ptui = new ChessPTUI(out);
+            ptui.init(filename);
+            return ptui::execute;
+        }
+        HoppersPTUI ptui = new HoppersPTUI(out);
+        ptui.init(filename);
+        return ptui::execute;
+    }
+
+    /**
+     * Find the kind of a command the same way the PTUIs read it
+     * @param line the command
+     * @return its kind
+     */
+    static String kindOf(String line) {
+        String word = line.strip().split("\\s+")[0];
+        if (word.startsWith("l")) {
+            return "load";
+        } else if (word.startsWith("s")) {
+            return "select";
+        } else if (word.startsWith("h")) {
+            return "hint";
+        } else if (word.startsWith("u")) {
+            return "undo";
+        } else if (word.equals("redo")) {
+            return "redo";
+        } else if (word.startsWith("r")) {
+            return "reset";
+        }
+        return "other";
+    }
+
+    /**
+     * Read the size of a puzzle from the first line of its file
+     * @param file the puzzle file
+     * @return the rows and columns, or null if the file can't be read
+     */
+    private static int[] sizeOf(String file) {
+        try (Scanner in = new Scanner(Path.of(file))) {
+            return new int[]{in.nextInt(), in.nextInt()};
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Make a variation of the script, swapping some commands for random
+     * ones. Loads and the quit at the end are kept. Random selections are
+     * on the board loaded at that point, so they fail only as a player's
+     * would and don't hide real failures.
+     * @param seed the seed of the variation
+     * @return the commands of the variation
+     */
+    List<String> vary(long seed) {
+        Random random = new Random(seed);
+        List<String> variation = new ArrayList<>();
+        int[] size = sizeOf(filename);
+        if (size == null) {
+            size = new int[]{1, 1};
+        }
+        for (String line : script) {
+            String kind = kindOf(line);
+            if (kind.equals("load")) {
+                // a load that fails leaves the board as it was
+                String[] words = line.strip().split("\\s+");
+                int[] loaded = words.length > 1 ? sizeOf(words[1]) : null;
+                if (loaded != null) {
+                    size = loaded;
+                }
+            }
+            if (kind.equals("load") || line.startsWith("q") || random.nextDouble() >= SWAP_CHANCE) {
+                variation.add(line);
+            } else {
+                switch (random.nextInt(5)) {
+                    case 0 -> variation.add("h");
+                    case 1 -> variation.add("u");
+                    case 2 -> variation.add("redo");
+                    case 3 -> variation.add("reset");
+                    default -> variation.add("s " + random.nextInt(Math.max(1, size[0]))
+                            + " " + random.nextInt(Math.max(1, size[1])));
+                }
+            }
+        }
+        return variation;
+    }
+
+    /**
+     * Run one session
+     * @param commands the commands to run
+     * @return the transcript and latencies of the session
+     * @throws IOException if the puzzle file can't be read
+     */
+    private Result run(List<String> commands) throws IOException {
+        Map<String, LatencyHistogram> latencies = histograms();
+        List<String> failures = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, false);
+        long start = System.nanoTime();
+        Session session = open(out);
+        latencies.get("load").record(System.nanoTime() - start);
+        for (String line : commands) {
+            out.print("> ");
+            start = System.nanoTime();
+            boolean running = true;
+            try {
+                running = session.execute(line);
+            } catch (RuntimeException ex) {
+                // the PTUI would have died here, but the rest of the session can still be timed
+                failures.add(line + ": " + ex);
+            }
+            latencies.get(kindOf(line)).record(System.nanoTime() - start);
+            if (!running) {
+                break;
+            }
+        }
+        out.flush();
+        return new Result(bytes.toString(), latencies, failures);
+    }
+
+    /**
+     * Make an empty histogram for each kind of command
+     * @return the histograms
+     */
+    private static Map<String, LatencyHistogram> histograms() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        for (String kind : KINDS) {
+            latencies.put(kind, new LatencyHistogram());
+        }
+        return latencies;
+    }
+
+    /**
+     * Run the sessions and print the latencies, and the differences from
+     * the expected transcript if there is one
+     * @param sessions the number of sessions, the first running the script as written
+     * @param threads the number of sessions run at once
+     * @param seed the seed of the first variation
+     * @param expected the transcript the script should print, or null to not check it
+     * @return true if the script ran without failures and its transcript
+     *         matched, if there was one to check
+     * @throws IOException if a file can't be read
+     * @throws InterruptedException if interrupted while waiting for the sessions
+     */
+    public boolean runAndPrint(int sessions, int threads, long seed, String expected)
+            throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            List<String> commands = i == 0 ? script : vary(seed + i);
+            results.add(executor.submit(() -> run(commands)));
+        }
+        Map<String, LatencyHistogram> total = histograms();
+        List<String> failures = new ArrayList<>();
+        String printed;
+        List<String> scriptFailures;
+        try {
+            printed = results.get(0).get().transcript();
+            scriptFailures = results.get(0).get().failures();
+            for (Future<Result> result : results) {
+                for (Map.Entry<String, LatencyHistogram> entry : result.get().latencies().entrySet()) {
+                    total.get(entry.getKey()).add(entry.getValue());
+                }
+                failures.addAll(result.get().failures());
+            }
+        } catch (ExecutionException ex) {
+            throw new IOException("A session failed", ex.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Sessions: " + sessions + ", threads: " + threads);
+        System.out.printf("Elapsed: %.1f ms%n", elapsed / 1e6);
+        System.out.printf("%-8s %8s %10s %10s %10s %10s %10s%n",
+                "command", "count", "mean us", "p50 us", "p90 us", "p99 us", "max us");
+        for (Map.Entry<String, LatencyHistogram> entry : total.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() > 0) {
+                System.out.printf("%-8s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(),
+                        histogram.getCount(), histogram.getMean() / 1e3,
+                        histogram.getPercentile(50) / 1e3, histogram.getPercentile(90) / 1e3,
+                        histogram.getPercentile(99) / 1e3, histogram.getMax() / 1e3);
+            }
+        }
+        if (!failures.isEmpty()) {
+            System.out.println("Failed commands: " + failures.size() + ", the first being");
+            System.out.println("  " + failures.get(0));
+        }
+        // the script as written must run cleanly, whatever the variations do
+        for (String failure : scriptFailures) {
+            System.out.println("Failed in the script: " + failure);
+        }
+
+        if (expected == null) {
+            return scriptFailures.isEmpty();
+        }
+        List<String> differences = new Transcript(printed)
+                .differences(new Transcript(Files.readString(Path.of(expected))), script);
+        if (differences.isEmpty()) {
+            System.out.println("Transcript matches " + expected);
+        } else {
+            System.out.println("Transcript differs from " + expected + " in "
+                    + differences.size() + " commands:");
+            for (String difference : differences) {
+                System.out.println("  " + difference);
+            }
+        }
+        return differences.isEmpty() && scriptFailures.isEmpty();
+    }
+
+    /**
+     * Replay a script many times at once. Exits 1 if a transcript differs
+     * from the expected one, and 2 if the files can't be read or the run is
+     * interrupted, so a script can't mistake either for a pass.
+     * @param args java PtuiLoadTester chess|hoppers filename script [expected]
+     *             [--sessions n] [--threads n] [--seed n]
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || !(args[0].equals("chess") || args[0].equals("hoppers"))) {
+            System.out.println("Usage: java PtuiLoadTester chess|hoppers filename script [expected]"
+                    + " [--sessions n] [--threads n] [--seed n]");
+            return;
+        }
+        String expected = null;
+        int sessions = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals("--sessions") && i + 1 < args.length) {
+                sessions = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                expected = args[i];
+            }
+        }
+        try {
+            List<String> script = Files.readAllLines(Path.of(args[2]));
+            PtuiLoadTester tester = new PtuiLoadTester(args[0], args[1], script);
+            if (!tester.runAndPrint(Math.max(1, sessions), Math.max(1, threads), seed, expected)) {
+                System.exit(1);
+            }
+        } catch (IOException ex) {
+            System.err.println(ex.getCause() == null ? ex.getMessage() : ex.getMessage() + ": " + ex.getCause());
+            System.exit(2);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+            System.exit(2);
+        }
+    }
+}
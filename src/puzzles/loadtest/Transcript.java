@@ -0,0 +1,109 @@
+package puzzles.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a PTUI printed, cut into the output of each command so two runs can
+ * be compared. The saved transcripts differ from this PTUI's output in
+ * spacing, in how coordinates and file names are written and in the help,
+ * so each command is boiled down to its last message and the cells of the
+ * last board it printed. A hint may make any move that leads to a
+ * solution, so only the message of a hint is compared.
+ */
+public class Transcript {
+    /**
+     * The output of one command
+     * @param message the last message printed, normalized
+     * @param board the cells of the last board printed, a row per line, or an empty string for none
+     */
+    public record Step(String message, String board) {
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Cut a transcript into steps. The output before the first prompt is
+     * the first step, that of the first load; each prompt starts another.
+     * @param text the transcript
+     */
+    public Transcript(String text) {
+        for (String block : text.split("(^|\n)>( |$)", -1)) {
+            String message = "";
+            List<String> rows = new ArrayList<>();
+            boolean header = false;
+            for (String line : block.split("\n")) {
+                String trimmed = line.strip();
+                if (trimmed.matches("\\d+\\s*\\|.*")) {
+                    // the rows after a header are a new board
+                    if (header) {
+                        rows.clear();
+                        header = false;
+                    }
+                    rows.add(trimmed.substring(trimmed.indexOf('|') + 1).replaceAll("\\s", ""));
+                } else if (trimmed.matches("[\\d\\s]+") || trimmed.matches("-+")) {
+                    header = true;
+                } else if (!trimmed.isEmpty() && !trimmed.contains(" -- ")) {
+                    message = normalize(trimmed);
+                }
+            }
+            steps.add(new Step(message, String.join("\n", rows)));
+        }
+    }
+
+    /**
+     * Write a message the same way whatever printed it: no spaces, no full
+     * stop at the end, and file names without their directories
+     * @param message the message
+     * @return the normalized message
+     */
+    static String normalize(String message) {
+        StringBuilder result = new StringBuilder();
+        for (String word : message.split("\\s+")) {
+            result.append(word.substring(word.lastIndexOf('/') + 1));
+        }
+        String text = result.toString();
+        return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * @return the output of each command in order
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Compare this transcript with the one expected, command by command
+     * @param expected the transcript expected
+     * @param commands the commands run, to name the ones that differ
+     * @return a line for each command whose output differs, empty if they all match
+     */
+    public List<String> differences(Transcript expected, List<String> commands) {
+        List<String> differences = new ArrayList<>();
+        int count = Math.max(steps.size(), expected.steps.size());
+        for (int i = 0; i < count; i++) {
+            Step got = i < steps.size() ? steps.get(i) : null;
+            Step want = i < expected.steps.size() ? expected.steps.get(i) : null;
+            String command = i == 0 ? "(start)" : i - 1 < commands.size() ? commands.get(i - 1) : "(none)";
+            boolean same = got != null && want != null && got.message().equals(want.message())
+                    && (PtuiLoadTester.kindOf(command).equals("hint") || got.board().equals(want.board()));
+            if (!same) {
+                differences.add("Command " + i + " " + command + ": expected "
+                        + describe(want) + ", got " + describe(got));
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * @param step a step, or null
+     * @return the step on one line
+     */
+    private static String describe(Step step) {
+        if (step == null) {
+            return "nothing";
+        }
+        return "\"" + step.message() + "\" " + step.board().replace('\n', '/');
+    }
+}
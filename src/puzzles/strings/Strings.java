@@ -1,7 +1,11 @@
 package puzzles.strings;
 
+import puzzles.common.solver.DistanceOracle;
 import puzzles.common.solver.Solver;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Strings {
     private String start;
     private String finish;
@@ -19,11 +23,16 @@ public class Strings {
     /**
      * Create a Strings puzzle from the command line args
      * Call the solve function
-     * @param args the args used to create the Strings puzzle (start finish)
+     * @param args the args used to create the Strings puzzle (start finish [--bfs]),
+     *             --bfs searches the strings instead of turning each character straight to its goal,
+     *             or (--oracle tablefile finish start...) to answer every start from one table
      */
     public static void main(String[] args) {
-        if (args.length < 2) {
-            System.out.println(("Usage: java Strings start finish"));
+        if (args.length > 0 && args[0].equals("--oracle")) {
+            oracle(args);
+        } else if (args.length < 2) {
+            System.out.println(("Usage: java Strings start finish [--bfs]"));
+            System.out.println(("       java Strings --oracle tablefile finish start..."));
         } else {
             String start = args[0];
             String finish = args[1];
@@ -32,7 +41,31 @@ public class Strings {
             StringsConfig startConfig = new StringsConfig(start, finish);
             StringsConfig goalConfig = new StringsConfig(finish, finish);
             Solver solve = new Solver(startConfig);
+            solve.setDecompose(!(args.length > 2 && args[2].equals("--bfs")));
             solve.solveAndPrint();
         }
     }
+
+    /**
+     * Answer many starts with one goal from a table of the distance of
+     * every string to the goal, built and saved the first time
+     * @param args --oracle tablefile finish start...
+     */
+    private static void oracle(String[] args) {
+        if (args.length < 4) {
+            System.out.println(("Usage: java Strings --oracle tablefile finish start..."));
+            return;
+        }
+        String finish = args[2];
+        try {
+            DistanceOracle oracle = DistanceOracle.loadOrBuild(Path.of(args[1]), new StringsConfig(finish, finish));
+            for (int i = 3; i < args.length; i++) {
+                String start = args[i];
+                System.out.println("Start: " + start + ", End: " + finish);
+                oracle.printPath(new StringsConfig(start, finish));
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
 }
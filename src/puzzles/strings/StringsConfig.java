@@ -1,12 +1,14 @@
 package puzzles.strings;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.CyclicProduct;
+import puzzles.common.solver.IndexedConfiguration;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.lang.StringBuffer;
 
-public class StringsConfig implements Configuration {
+public class StringsConfig implements CyclicProduct, IndexedConfiguration {
     private String current;
     private String finish;
     public StringsConfig(String current, String finish) {
@@ -64,6 +66,146 @@ public class StringsConfig implements Configuration {
         return neighbors;
     }
 
+    /**
+     * Every character turns on its own A-Z wheel
+     * @return the length of the string
+     */
+    @Override
+    public int getDimensions() {
+        return current.length();
+    }
+
+    /**
+     * A character outside A-Z is not on the wheel and can never move
+     * @param dimension the index of the character
+     * @return 26, or 1 for a character outside A-Z
+     */
+    @Override
+    public int getCycleLength(int dimension) {
+        return isLetter(current.charAt(dimension)) ? 26 : 1;
+    }
+
+    @Override
+    public int getPosition(int dimension) {
+        char c = current.charAt(dimension);
+        return isLetter(c) ? c - 'A' : 0;
+    }
+
+    /**
+     * The goal of a character is the matching character of the finish
+     * @param dimension the index of the character
+     * @return the goal position, or -1 if the finish character can't be reached
+     */
+    @Override
+    public int getGoal(int dimension) {
+        if (finish.length() != current.length()) {
+            return -1;
+        }
+        char c = current.charAt(dimension);
+        char goal = finish.charAt(dimension);
+        if (!isLetter(c)) {
+            return c == goal ? 0 : -1;
+        }
+        return isLetter(goal) ? goal - 'A' : -1;
+    }
+
+    @Override
+    public CyclicProduct withPosition(int dimension, int position) {
+        StringBuilder str = new StringBuilder(current);
+        str.setCharAt(dimension, (char) ('A' + position));
+        return new StringsConfig(str.toString(), finish);
+    }
+
+    /**
+     * Strings of A-Z are base 26 numbers, so there are 26 to the power of the
+     * length of them
+     * @return the number of strings of this length, or -1 if it has a character outside A-Z
+     */
+    @Override
+    public long getStateCount() {
+        long count = 1;
+        for (int i = 0; i < current.length(); i++) {
+            if (!isLetter(current.charAt(i)) || count > Integer.MAX_VALUE) {
+                return -1;
+            }
+            count *= 26;
+        }
+        return count;
+    }
+
+    /**
+     * The string read as a base 26 number, A being 0 and the first character the most significant
+     * @return the number of the string
+     */
+    @Override
+    public int getIndex() {
+        return toIndex(current);
+    }
+
+    @Override
+    public IndexedConfiguration fromIndex(int index) {
+        char[] chars = new char[current.length()];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = (char) ('A' + index % 26);
+            index /= 26;
+        }
+        return new StringsConfig(new String(chars), finish);
+    }
+
+    @Override
+    public int getMaxNeighbors() {
+        return 2 * current.length();
+    }
+
+    /**
+     * Each character turned back then forwards, in order along the string
+     * @param index the number of the string
+     * @param neighbors filled with the numbers of the neighbors
+     * @return twice the length of the string
+     */
+    @Override
+    public int getNeighborIndices(int index, int[] neighbors) {
+        int place = 1;
+        int found = 2 * current.length();
+        for (int i = current.length() - 1; i >= 0; i--) {
+            int digit = index / place % 26;
+            neighbors[2 * i] = index + ((digit + 25) % 26 - digit) * place;
+            neighbors[2 * i + 1] = index + ((digit + 1) % 26 - digit) * place;
+            place *= 26;
+        }
+        return found;
+    }
+
+    @Override
+    public boolean isSolutionIndex(int index) {
+        return finish.length() == current.length() && index == toIndex(finish);
+    }
+
+    /**
+     * Read a string as a base 26 number
+     * @param str the string
+     * @return its number, or -1 if it has a character outside A-Z
+     */
+    private static int toIndex(String str) {
+        int index = 0;
+        for (int i = 0; i < str.length(); i++) {
+            if (!isLetter(str.charAt(i))) {
+                return -1;
+            }
+            index = index * 26 + str.charAt(i) - 'A';
+        }
+        return index;
+    }
+
+    /**
+     * Is the character on the A-Z wheel?
+     * @param c the character
+     * @return true if c is from A to Z
+     */
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
     @Override
     public boolean equals(Object other) {
         boolean result = false;